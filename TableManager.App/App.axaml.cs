@@ -1,6 +1,7 @@
 using Avalonia;
 using Avalonia.Controls.ApplicationLifetimes;
 using Avalonia.Markup.Xaml;
+using System.Threading.Tasks;
 
 namespace TableManager.App;
 
@@ -18,6 +19,9 @@ public partial class App : Application
             desktop.MainWindow = new MainWindow();
         }
 
+        // Прогрів DFA парсера у фоні, поки відкривається вікно
+        Task.Run(() => Controllers.Parser.WarmUp());
+
         base.OnFrameworkInitializationCompleted();
     }
 }
\ No newline at end of file
@@ -0,0 +1,285 @@
+using System;
+using System.Buffers;
+using System.Numerics;
+using System.Runtime.InteropServices;
+
+namespace TableManager.App.Controllers
+{
+    // Обчислює один R1C1-шаблон для діапазону рядків стовпця CellStore блоками по BlockSize:
+    // кожен вузол дерева рахується одразу для всього блоку векторними операціями Vector<double>.
+    // Рядки, де вхід не число (порожньо, помилка, булеве значення) або де операція дає помилку
+    // (ділення на нуль, mod/div), позначаються й перераховуються звичайним інтерпретатором,
+    // тож результат завжди збігається з покомірковим обчисленням.
+    //
+    // Вхідні клітинки мають бути вже обчислені й лежати в CellStore. RecalcScheduler викликає його
+    // для заповнених униз формул одного рівня (RecalcScheduler.BatchTemplates).
+    public sealed class BatchFormulaEvaluator
+    {
+        public const int BlockSize = 256;
+
+        private static readonly Vector<double> Epsilon = new Vector<double>(0.0001);
+        private static readonly Vector<double> One = Vector<double>.One;
+
+        private readonly CompiledFormula _template;
+
+        public BatchFormulaEvaluator(CompiledFormula template)
+        {
+            _template = template;
+            CanVectorize = template.IsRelative && !ReadsOwnColumn(template);
+        }
+
+        // Вимикає векторний шлях для всіх екземплярів: тоді працює лише скалярний
+        public static bool VectorEnabled { get; set; } = Vector.IsHardwareAccelerated;
+
+        // Шаблон, що читає власний стовпець (ланцюжок =(A1 + 1) униз), рахується лише
+        // скалярно: кожен рядок залежить від щойно записаного попереднього
+        public bool CanVectorize { get; }
+
+        public long VectorizedRows { get; private set; }
+        public long FallbackRows { get; private set; }
+
+        public void Evaluate(CellStore cells, int column, int startRow, int endRow)
+        {
+            if (startRow >= endRow)
+                return;
+
+            cells.Reserve(new CellAddress(endRow - 1, column));
+
+            if (!CanVectorize || !VectorEnabled)
+            {
+                for (int row = startRow; row < endRow; row++)
+                    EvaluateScalar(cells, row, column);
+                return;
+            }
+
+            bool isBoolean = _template.Root is ComparisonNode;
+            var result = ArrayPool<double>.Shared.Rent(BlockSize);
+            var fallback = ArrayPool<bool>.Shared.Rent(BlockSize);
+            try
+            {
+                for (int block = startRow; block < endRow; block += BlockSize)
+                {
+                    int count = Math.Min(BlockSize, endRow - block);
+                    var values = result.AsSpan(0, count);
+                    var failed = fallback.AsSpan(0, count);
+                    failed.Clear();
+
+                    EvaluateNode(_template.Root, cells, column, block, values, failed);
+
+                    cells.SetRange(column, block, values, isBoolean ? CellStore.Boolean : CellStore.Number);
+
+                    int failedCount = 0;
+                    for (int i = failed.IndexOf(true); i >= 0 && i < count; i++)
+                    {
+                        if (!failed[i])
+                            continue;
+                        EvaluateScalar(cells, block + i, column);
+                        failedCount++;
+                    }
+
+                    VectorizedRows += count - failedCount;
+                }
+            }
+            finally
+            {
+                ArrayPool<double>.Shared.Return(result);
+                ArrayPool<bool>.Shared.Return(fallback);
+            }
+        }
+
+        private void EvaluateScalar(CellStore cells, int row, int column)
+        {
+            var host = new CellAddress(row, column);
+            cells.Set(host, _template.Evaluate(cells, host));
+            FallbackRows++;
+        }
+
+        private static void EvaluateNode(FormulaNode node, CellStore cells, int column, int row, Span<double> dest, Span<bool> failed)
+        {
+            switch (node)
+            {
+                case NumberNode number:
+                    dest.Fill(number.Value);
+                    break;
+
+                case CellReferenceNode reference when reference.IsRelative:
+                    LoadColumn(cells, row + reference.Address.Row, column + reference.Address.Column, dest, failed);
+                    break;
+
+                case IncDecNode incDec:
+                    EvaluateNode(incDec.Operand, cells, column, row, dest, failed);
+                    AddScalar(dest, incDec.Delta);
+                    break;
+
+                case BinaryNode binary:
+                {
+                    var right = ArrayPool<double>.Shared.Rent(dest.Length);
+                    try
+                    {
+                        var rhs = right.AsSpan(0, dest.Length);
+                        EvaluateNode(binary.Left, cells, column, row, dest, failed);
+                        EvaluateNode(binary.Right, cells, column, row, rhs, failed);
+                        ApplyBinary(binary.Operator, dest, rhs, failed);
+                    }
+                    finally
+                    {
+                        ArrayPool<double>.Shared.Return(right);
+                    }
+                    break;
+                }
+
+                case ComparisonNode comparison:
+                {
+                    var right = ArrayPool<double>.Shared.Rent(dest.Length);
+                    try
+                    {
+                        var rhs = right.AsSpan(0, dest.Length);
+                        EvaluateNode(comparison.Left, cells, column, row, dest, failed);
+                        EvaluateNode(comparison.Right, cells, column, row, rhs, failed);
+                        ApplyComparison(comparison.Operator, dest, rhs);
+                    }
+                    finally
+                    {
+                        ArrayPool<double>.Shared.Return(right);
+                    }
+                    break;
+                }
+
+                default:
+                    failed.Fill(true);
+                    break;
+            }
+        }
+
+        // Копіює значення стовпця; рядки поза масивом або не числа — у failed
+        private static void LoadColumn(CellStore cells, int firstRow, int column, Span<double> dest, Span<bool> failed)
+        {
+            var values = cells.ValuesOf(column);
+            var kinds = cells.KindsOf(column);
+
+            int from = Math.Max(firstRow, 0);
+            int to = Math.Min(firstRow + dest.Length, kinds.Length);
+            if (from >= to)
+            {
+                dest.Clear();
+                failed.Fill(true);
+                return;
+            }
+
+            int offset = from - firstRow;
+            int length = to - from;
+            dest.Slice(0, offset).Clear();
+            failed.Slice(0, offset).Fill(true);
+            dest.Slice(offset + length).Clear();
+            failed.Slice(offset + length).Fill(true);
+
+            values.AsSpan(from, length).CopyTo(dest.Slice(offset));
+
+            // Швидка перевірка: здебільшого весь відрізок — числа
+            var range = kinds.AsSpan(from, length);
+            for (int i = range.IndexOfAnyExcept(CellStore.Number); i >= 0 && i < length; i++)
+            {
+                if (range[i] != CellStore.Number)
+                    failed[offset + i] = true;
+            }
+        }
+
+        private static void AddScalar(Span<double> dest, double delta)
+        {
+            var lanes = MemoryMarshal.Cast<double, Vector<double>>(dest);
+            var vector = new Vector<double>(delta);
+            for (int i = 0; i < lanes.Length; i++)
+                lanes[i] += vector;
+
+            for (int i = lanes.Length * Vector<double>.Count; i < dest.Length; i++)
+                dest[i] += delta;
+        }
+
+        private static void ApplyBinary(FormulaOperator op, Span<double> left, ReadOnlySpan<double> right, Span<bool> failed)
+        {
+            if (op == FormulaOperator.Mod || op == FormulaOperator.Div)
+            {
+                // Цілочисельні операції лишаються скалярними
+                for (int i = 0; i < left.Length; i++)
+                {
+                    if (!BinaryNode.Apply(op, left[i], right[i], out left[i]))
+                        failed[i] = true;
+                }
+                return;
+            }
+
+            var l = MemoryMarshal.Cast<double, Vector<double>>(left);
+            var r = MemoryMarshal.Cast<double, Vector<double>>(right);
+            int width = Vector<double>.Count;
+
+            for (int i = 0; i < l.Length; i++)
+            {
+                switch (op)
+                {
+                    case FormulaOperator.Add:
+                        l[i] += r[i];
+                        break;
+                    case FormulaOperator.Subtract:
+                        l[i] -= r[i];
+                        break;
+                    case FormulaOperator.Multiply:
+                        l[i] *= r[i];
+                        break;
+                    case FormulaOperator.Divide:
+                        // Не ">= ε" замість "< ε", щоб NaN у дільнику теж ішов у скалярний шлях
+                        var zero = ~Vector.GreaterThanOrEqual(Vector.Abs(r[i]), Epsilon);
+                        l[i] /= r[i];
+                        if (!Vector.EqualsAll(zero, Vector<long>.Zero))
+                        {
+                            for (int lane = 0; lane < width; lane++)
+                            {
+                                if (zero[lane] != 0)
+                                    failed[i * width + lane] = true;
+                            }
+                        }
+                        break;
+                }
+            }
+
+            for (int i = l.Length * width; i < left.Length; i++)
+            {
+                if (!BinaryNode.Apply(op, left[i], right[i], out left[i]))
+                    failed[i] = true;
+            }
+        }
+
+        // Результат порівняння — маска лейнів, перетворена на 1/0, як булеві значення в CellStore
+        private static void ApplyComparison(ComparisonOperator op, Span<double> left, ReadOnlySpan<double> right)
+        {
+            var l = MemoryMarshal.Cast<double, Vector<double>>(left);
+            var r = MemoryMarshal.Cast<double, Vector<double>>(right);
+
+            for (int i = 0; i < l.Length; i++)
+            {
+                var mask = op switch
+                {
+                    ComparisonOperator.LessThan => Vector.LessThan(l[i], r[i]),
+                    ComparisonOperator.LessOrEqual => Vector.LessThanOrEqual(l[i], r[i]),
+                    ComparisonOperator.GreaterThan => Vector.GreaterThan(l[i], r[i]),
+                    ComparisonOperator.GreaterOrEqual => Vector.GreaterThanOrEqual(l[i], r[i]),
+                    ComparisonOperator.Equal => Vector.LessThan(Vector.Abs(l[i] - r[i]), Epsilon),
+                    _ => Vector.GreaterThan(Vector.Abs(l[i] - r[i]), Epsilon)
+                };
+                l[i] = Vector.ConditionalSelect(mask, One, Vector<double>.Zero);
+            }
+
+            for (int i = l.Length * Vector<double>.Count; i < left.Length; i++)
+                left[i] = ComparisonNode.Compare(op, left[i], right[i]) ? 1 : 0;
+        }
+
+        private static bool ReadsOwnColumn(CompiledFormula template)
+        {
+            foreach (var reference in template.References)
+            {
+                if (reference.Column == 0)
+                    return true;
+            }
+            return false;
+        }
+    }
+}
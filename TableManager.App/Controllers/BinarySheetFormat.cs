@@ -0,0 +1,408 @@
+using System;
+using System.Collections.Generic;
+using System.IO;
+using System.Runtime.InteropServices;
+
+namespace TableManager.App.Controllers
+{
+    // Двійковий формат таблиці, версія 2:
+    //   заголовок   "TMSB", версія, рядки, стовпці
+    //   шаблони     кількість; для кожного — текст, ознака R1C1, посилання (індекс залежностей)
+    //               і дерево виразу, тож при відкритті ANTLR не запускається
+    //   тексти      кількість; для кожного — рядок, стовпець і сам текст (звичайний текст клітинки
+    //               або вихідний текст формули з синтаксичною помилкою). У версії 1 розділу немає.
+    //   каталог     зсув блоку кожного стовпця
+    //   блоки       на стовпець: типи (byte[рядки]), значення (double[рядки]), шаблони (int[рядки])
+    public static class BinarySheetFormat
+    {
+        public const int Version = 2;
+        private const int VersionWithoutTexts = 1;
+
+        private static readonly byte[] Magic = { (byte)'T', (byte)'M', (byte)'S', (byte)'B' };
+
+        internal const byte EmptyCell = 0;
+        internal const byte NumberCell = 1;
+        internal const byte BooleanCell = 2;
+        internal const byte GeneralErrorCell = 3;
+        internal const byte RefErrorCell = 4;
+        internal const byte CycleErrorCell = 5;
+        internal const byte FormulaCell = 6;
+        internal const byte TextCell = 7;
+
+        private const byte NumberNodeTag = 0;
+        private const byte CellReferenceNodeTag = 1;
+        private const byte IncDecNodeTag = 2;
+        private const byte BinaryNodeTag = 3;
+        private const byte ComparisonNodeTag = 4;
+
+        public static void Save(string path, NativeSheetStore store)
+        {
+            using var stream = new FileStream(path, FileMode.Create, FileAccess.Write, FileShare.None, 1 << 16);
+            Write(stream, store);
+        }
+
+        public static void Write(Stream stream, NativeSheetStore store)
+        {
+            using var writer = new BinaryWriter(stream, System.Text.Encoding.UTF8, leaveOpen: true);
+
+            // Шаблони нумеруються з 1, 0 у блоці означає "формули немає"
+            var templates = new List<CompiledFormula>();
+            var templateIds = new Dictionary<CompiledFormula, int>();
+            var texts = new List<(CellAddress Address, string Text)>();
+            for (int row = 0; row < store.Rows; row++)
+            {
+                for (int column = 0; column < store.Columns; column++)
+                {
+                    var address = new CellAddress(row, column);
+                    var formula = store.GetFormula(address);
+                    if (formula != null && !templateIds.ContainsKey(formula))
+                    {
+                        templates.Add(formula);
+                        templateIds[formula] = templates.Count;
+                    }
+                    else if (formula == null && store.GetText(address) is { } text)
+                    {
+                        texts.Add((address, text));
+                    }
+                }
+            }
+
+            writer.Write(Magic);
+            writer.Write(Version);
+            writer.Write(store.Rows);
+            writer.Write(store.Columns);
+
+            writer.Write(templates.Count);
+            foreach (var template in templates)
+                WriteTemplate(writer, template);
+
+            writer.Write(texts.Count);
+            foreach (var (address, text) in texts)
+            {
+                writer.Write(address.Row);
+                writer.Write(address.Column);
+                writer.Write(text);
+            }
+
+            writer.Flush();
+            long blockSize = BlockSize(store.Rows);
+            long firstBlock = stream.Position + (long)store.Columns * sizeof(long);
+            for (int column = 0; column < store.Columns; column++)
+                writer.Write(firstBlock + column * blockSize);
+
+            var kinds = new byte[store.Rows];
+            var values = new double[store.Rows];
+            var handles = new int[store.Rows];
+            for (int column = 0; column < store.Columns; column++)
+            {
+                for (int row = 0; row < store.Rows; row++)
+                {
+                    var address = new CellAddress(row, column);
+                    var formula = store.GetFormula(address);
+                    handles[row] = formula == null ? 0 : templateIds[formula];
+                    values[row] = 0;
+
+                    if (formula != null)
+                        kinds[row] = FormulaCell;
+                    else if (store.GetText(address) != null)
+                        kinds[row] = TextCell;
+                    else if (store.IsEmpty(address))
+                        kinds[row] = EmptyCell;
+                    else
+                        kinds[row] = Encode(store.GetCellValue(address), out values[row]);
+                }
+
+                writer.Write(kinds);
+                writer.Write(MemoryMarshal.AsBytes(values.AsSpan()));
+                writer.Write(MemoryMarshal.AsBytes(handles.AsSpan()));
+            }
+        }
+
+        // Читає заголовок, шаблони й каталог; блоки стовпців завантажуються на вимогу
+        public static BinarySheet Open(string path)
+        {
+            var stream = new FileStream(path, FileMode.Open, FileAccess.Read, FileShare.Read, 1 << 16, FileOptions.RandomAccess);
+            try
+            {
+                using var reader = new BinaryReader(stream, System.Text.Encoding.UTF8, leaveOpen: true);
+
+                var magic = reader.ReadBytes(Magic.Length);
+                if (!magic.AsSpan().SequenceEqual(Magic))
+                    throw new InvalidDataException("Файл не є двійковою таблицею");
+
+                int version = reader.ReadInt32();
+                if (version != Version && version != VersionWithoutTexts)
+                    throw new InvalidDataException($"Непідтримувана версія формату: {version}");
+
+                int rows = reader.ReadInt32();
+                int columns = reader.ReadInt32();
+
+                var templates = new CompiledFormula[reader.ReadInt32()];
+                for (int i = 0; i < templates.Length; i++)
+                    templates[i] = ReadTemplate(reader);
+
+                // Тексти читаються одразу: їх мало порівняно з блоками стовпців
+                var texts = new Dictionary<long, string>();
+                int textCount = version == VersionWithoutTexts ? 0 : reader.ReadInt32();
+                for (int i = 0; i < textCount; i++)
+                {
+                    int row = reader.ReadInt32();
+                    int column = reader.ReadInt32();
+                    texts[(long)row * columns + column] = reader.ReadString();
+                }
+
+                var offsets = new long[columns];
+                for (int column = 0; column < columns; column++)
+                    offsets[column] = reader.ReadInt64();
+
+                return new BinarySheet(stream, rows, columns, templates, texts, offsets);
+            }
+            catch
+            {
+                stream.Dispose();
+                throw;
+            }
+        }
+
+        internal static long BlockSize(int rows)
+        {
+            return (long)rows * (sizeof(byte) + sizeof(double) + sizeof(int));
+        }
+
+        // Значення, яке формат не вміє зберегти, — помилка, а не тихе перетворення на #ERROR
+        private static byte Encode(FormulaValue value, out double number)
+        {
+            number = value.Number;
+            return value.Type switch
+            {
+                ValueType.Number => NumberCell,
+                ValueType.Boolean => BooleanCell,
+                _ => value.Error switch
+                {
+                    FormulaValue.GeneralErrorCode => GeneralErrorCell,
+                    FormulaValue.RefErrorCode => RefErrorCell,
+                    FormulaValue.CycleErrorCode => CycleErrorCell,
+                    _ => throw new NotSupportedException($"Значення {value.Error} не можна записати у двійковий формат")
+                }
+            };
+        }
+
+        private static void WriteTemplate(BinaryWriter writer, CompiledFormula template)
+        {
+            writer.Write(template.Text);
+            writer.Write(template.IsRelative);
+            writer.Write(template.References.Count);
+            foreach (var reference in template.References)
+            {
+                writer.Write(reference.Row);
+                writer.Write(reference.Column);
+            }
+            WriteNode(writer, template.Root);
+        }
+
+        private static CompiledFormula ReadTemplate(BinaryReader reader)
+        {
+            string text = reader.ReadString();
+            bool isRelative = reader.ReadBoolean();
+
+            var references = new CellAddress[reader.ReadInt32()];
+            for (int i = 0; i < references.Length; i++)
+                references[i] = new CellAddress(reader.ReadInt32(), reader.ReadInt32());
+
+            return new CompiledFormula(text, ReadNode(reader), references, isRelative);
+        }
+
+        private static void WriteNode(BinaryWriter writer, FormulaNode node)
+        {
+            switch (node)
+            {
+                case NumberNode number:
+                    writer.Write(NumberNodeTag);
+                    writer.Write(number.Value);
+                    break;
+                case CellReferenceNode reference:
+                    writer.Write(CellReferenceNodeTag);
+                    writer.Write(reference.Address.Row);
+                    writer.Write(reference.Address.Column);
+                    writer.Write(reference.IsRelative);
+                    break;
+                case IncDecNode incDec:
+                    writer.Write(IncDecNodeTag);
+                    writer.Write(incDec.Delta);
+                    WriteNode(writer, incDec.Operand);
+                    break;
+                case BinaryNode binary:
+                    writer.Write(BinaryNodeTag);
+                    writer.Write((byte)binary.Operator);
+                    WriteNode(writer, binary.Left);
+                    WriteNode(writer, binary.Right);
+                    break;
+                case ComparisonNode comparison:
+                    writer.Write(ComparisonNodeTag);
+                    writer.Write((byte)comparison.Operator);
+                    WriteNode(writer, comparison.Left);
+                    WriteNode(writer, comparison.Right);
+                    break;
+                default:
+                    throw new NotSupportedException($"Невідомий вузол формули: {node.GetType().Name}");
+            }
+        }
+
+        private static FormulaNode ReadNode(BinaryReader reader)
+        {
+            byte tag = reader.ReadByte();
+            switch (tag)
+            {
+                case NumberNodeTag:
+                    return new NumberNode(reader.ReadDouble());
+                case CellReferenceNodeTag:
+                    var address = new CellAddress(reader.ReadInt32(), reader.ReadInt32());
+                    return new CellReferenceNode(address, reader.ReadBoolean());
+                case IncDecNodeTag:
+                    double delta = reader.ReadDouble();
+                    return new IncDecNode(ReadNode(reader), delta);
+                case BinaryNodeTag:
+                    var op = (FormulaOperator)reader.ReadByte();
+                    var left = ReadNode(reader);
+                    return new BinaryNode(op, left, ReadNode(reader));
+                case ComparisonNodeTag:
+                    var comparison = (ComparisonOperator)reader.ReadByte();
+                    var lhs = ReadNode(reader);
+                    return new ComparisonNode(comparison, lhs, ReadNode(reader));
+                default:
+                    throw new InvalidDataException($"Невідомий вузол формули: {tag}");
+            }
+        }
+    }
+
+    // Відкрита двійкова таблиця. Блок стовпця читається з файлу під час першого звернення;
+    // разом із ним довантажуються стовпці, на які посилаються його формули.
+    public sealed class BinarySheet : ICellValueSource, IDisposable
+    {
+        private readonly FileStream _stream;
+        private readonly long[] _offsets;
+        private readonly Dictionary<long, string> _texts;
+        private readonly bool[] _loaded;
+        private byte[]? _block;
+
+        internal BinarySheet(FileStream stream, int rows, int columns, CompiledFormula[] templates,
+            Dictionary<long, string> texts, long[] offsets)
+        {
+            _stream = stream;
+            _offsets = offsets;
+            _texts = texts;
+            _loaded = new bool[columns];
+            Templates = templates;
+            Store = new NativeSheetStore(rows, columns);
+        }
+
+        public NativeSheetStore Store { get; }
+        public IReadOnlyList<CompiledFormula> Templates { get; }
+        public int Rows => Store.Rows;
+        public int Columns => Store.Columns;
+        public int LoadedColumnCount { get; private set; }
+
+        public bool IsColumnLoaded(int column) => _loaded[column];
+
+        public FormulaValue GetCellValue(CellAddress address)
+        {
+            if (Store.Contains(address))
+                EnsureColumn(address.Column);
+
+            return Store.GetCellValue(address);
+        }
+
+        public void LoadAll()
+        {
+            for (int column = 0; column < Columns; column++)
+                EnsureColumn(column);
+        }
+
+        // Стовпці довантажуються через явний стек, а не рекурсію: ланцюжок сусідніх
+        // стовпців може бути завдовжки в усю таблицю
+        public void EnsureColumn(int column)
+        {
+            if (_loaded[column])
+                return;
+
+            var pending = new Stack<int>();
+            pending.Push(column);
+            while (pending.Count > 0)
+            {
+                int next = pending.Pop();
+                if (_loaded[next])
+                    continue;
+
+                _loaded[next] = true;
+                LoadedColumnCount++;
+
+                // Індекс залежностей: посилання шаблонів кажуть, які стовпці ще потрібні
+                foreach (int id in LoadBlock(next))
+                {
+                    var template = Templates[id];
+                    foreach (var reference in template.References)
+                    {
+                        int target = template.IsRelative ? next + reference.Column : reference.Column;
+                        if ((uint)target < (uint)Columns && !_loaded[target])
+                            pending.Push(target);
+                    }
+                }
+            }
+        }
+
+        public void Dispose()
+        {
+            _stream.Dispose();
+            Store.Dispose();
+        }
+
+        // Повертає номери шаблонів, що трапилися в стовпці
+        private IEnumerable<int> LoadBlock(int column)
+        {
+            int rows = Rows;
+            var block = _block ??= new byte[BinarySheetFormat.BlockSize(rows)];
+            _stream.Position = _offsets[column];
+            _stream.ReadExactly(block);
+
+            var kinds = block.AsSpan(0, rows);
+            var values = MemoryMarshal.Cast<byte, double>(block.AsSpan(rows, rows * sizeof(double)));
+            var handles = MemoryMarshal.Cast<byte, int>(block.AsSpan(rows * (1 + sizeof(double)), rows * sizeof(int)));
+
+            var used = new HashSet<int>();
+            for (int row = 0; row < rows; row++)
+            {
+                var address = new CellAddress(row, column);
+                switch (kinds[row])
+                {
+                    case BinarySheetFormat.EmptyCell:
+                        break;
+                    case BinarySheetFormat.NumberCell:
+                        Store.SetValue(address, FormulaValue.FromNumber(values[row]));
+                        break;
+                    case BinarySheetFormat.BooleanCell:
+                        Store.SetValue(address, FormulaValue.FromBool(values[row] != 0));
+                        break;
+                    case BinarySheetFormat.RefErrorCell:
+                        Store.SetValue(address, FormulaValue.RefError);
+                        break;
+                    case BinarySheetFormat.CycleErrorCell:
+                        Store.SetValue(address, FormulaValue.CycleError);
+                        break;
+                    case BinarySheetFormat.FormulaCell:
+                        Store.SetFormula(address, Templates[handles[row] - 1]);
+                        used.Add(handles[row] - 1);
+                        break;
+                    case BinarySheetFormat.TextCell:
+                        Store.SetLiteralText(address, _texts[(long)row * Columns + column]);
+                        break;
+                    case BinarySheetFormat.GeneralErrorCell:
+                        Store.SetValue(address, FormulaValue.GeneralError);
+                        break;
+                    default:
+                        throw new InvalidDataException($"Невідомий тип клітинки: {kinds[row]}");
+                }
+            }
+            return used;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+using System;
+
+namespace TableManager.App.Controllers
+{
+    public readonly struct CellAddress : IEquatable<CellAddress>
+    {
+        // Обмеження, щоб "AAAAAAAA1" чи "A99999999999" не переповнювали int
+        public const int MaxRows = 1 << 24;
+        public const int MaxColumns = 1 << 16;
+
+        public int Row { get; }
+        public int Column { get; }
+
+        public CellAddress(int row, int column)
+        {
+            Row = row;
+            Column = column;
+        }
+
+        public bool IsValid => Row >= 0 && Row < MaxRows && Column >= 0 && Column < MaxColumns;
+
+        public CellAddress Offset(int rowOffset, int columnOffset)
+        {
+            return new CellAddress(Row + rowOffset, Column + columnOffset);
+        }
+
+        // Рядок у старших 32 бітах, стовпець — у молодших
+        public long Pack() => ((long)Row << 32) | (uint)Column;
+
+        public static CellAddress Unpack(long packed) => new CellAddress((int)(packed >> 32), (int)packed);
+
+        public static bool TryParse(string? name, out CellAddress address)
+        {
+            return TryParse(name.AsSpan(), out address);
+        }
+
+        public static bool TryParse(ReadOnlySpan<char> name, out CellAddress address)
+        {
+            address = default;
+
+            int i = 0;
+            int column = 0;
+            while (i < name.Length && name[i] >= 'A' && name[i] <= 'Z')
+            {
+                column = column * 26 + (name[i] - 'A' + 1);
+                if (column > MaxColumns)
+                    return false;
+                i++;
+            }
+
+            // Рядок без провідних нулів: A01 — не інша назва A1, а невалідне посилання
+            if (i == 0 || i == name.Length || name[i] == '0')
+                return false;
+
+            int row = 0;
+            while (i < name.Length && name[i] >= '0' && name[i] <= '9')
+            {
+                row = row * 10 + (name[i] - '0');
+                if (row > MaxRows)
+                    return false;
+                i++;
+            }
+
+            if (i != name.Length || row == 0)
+                return false;
+
+            address = new CellAddress(row - 1, column - 1);
+            return true;
+        }
+
+        public static string GetColumnName(int index)
+        {
+            string columnName = "";
+            while (index >= 0)
+            {
+                columnName = (char)('A' + (index % 26)) + columnName;
+                index = (index / 26) - 1;
+            }
+            return columnName;
+        }
+
+        public override string ToString()
+        {
+            return $"{GetColumnName(Column)}{Row + 1}";
+        }
+
+        public bool Equals(CellAddress other) => Row == other.Row && Column == other.Column;
+
+        public override bool Equals(object? obj) => obj is CellAddress other && Equals(other);
+
+        public override int GetHashCode() => (Row * 397) ^ Column;
+
+        public static bool operator ==(CellAddress left, CellAddress right) => left.Equals(right);
+
+        public static bool operator !=(CellAddress left, CellAddress right) => !left.Equals(right);
+    }
+}
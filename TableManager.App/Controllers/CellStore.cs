@@ -0,0 +1,164 @@
+using System;
+using System.Collections.Concurrent;
+
+namespace TableManager.App.Controllers
+{
+    // Значення клітинок по стовпцях: для кожного стовпця масив double і паралельний масив
+    // байтів із типом значення. Читання клітинки — два звернення до масивів без рядкових
+    // ключів і без повторного double.TryParse.
+    public sealed class CellStore : ICellValueSource
+    {
+        private const byte Missing = 0;
+        internal const byte Number = 1;
+        internal const byte Boolean = 2;
+        private const byte GeneralError = 3;
+        private const byte RefError = 4;
+        private const byte CycleError = 5;
+        // Нестандартний текст помилки зберігається окремо
+        private const byte OtherError = 6;
+
+        private double[][] _values = Array.Empty<double[]>();
+        private byte[][] _kinds = Array.Empty<byte[]>();
+        // Паралельні рівні RecalcScheduler пишуть сюди одночасно, тому словник потокобезпечний
+        private readonly ConcurrentDictionary<long, string> _otherErrors = new();
+
+        public int ColumnCount => _kinds.Length;
+
+        public bool Contains(CellAddress address)
+        {
+            return KindAt(address) != Missing;
+        }
+
+        // Відсутня клітинка читається як #REF, як і в DictionaryCellSource
+        public FormulaValue GetCellValue(CellAddress address)
+        {
+            switch (KindAt(address))
+            {
+                case Number:
+                    return FormulaValue.FromNumber(_values[address.Column][address.Row]);
+                case Boolean:
+                    return FormulaValue.FromBool(_values[address.Column][address.Row] != 0);
+                case GeneralError:
+                    return FormulaValue.GeneralError;
+                case CycleError:
+                    return FormulaValue.CycleError;
+                case OtherError:
+                    return FormulaValue.FromError(_otherErrors[address.Pack()]);
+                default:
+                    return FormulaValue.RefError;
+            }
+        }
+
+        public void Set(CellAddress address, FormulaValue value)
+        {
+            Reserve(address);
+
+            byte kind = value.Type switch
+            {
+                ValueType.Number => Number,
+                ValueType.Boolean => Boolean,
+                _ => value.Error switch
+                {
+                    FormulaValue.GeneralErrorCode => GeneralError,
+                    FormulaValue.RefErrorCode => RefError,
+                    FormulaValue.CycleErrorCode => CycleError,
+                    _ => OtherError
+                }
+            };
+
+            if (kind == OtherError)
+                _otherErrors[address.Pack()] = value.Error;
+            else if (_kinds[address.Column][address.Row] == OtherError)
+                _otherErrors.TryRemove(address.Pack(), out _);
+
+            _values[address.Column][address.Row] = value.Number;
+            _kinds[address.Column][address.Row] = kind;
+        }
+
+        public void Remove(CellAddress address)
+        {
+            if (KindAt(address) == Missing)
+                return;
+
+            if (_kinds[address.Column][address.Row] == OtherError)
+                _otherErrors.TryRemove(address.Pack(), out _);
+
+            _values[address.Column][address.Row] = 0;
+            _kinds[address.Column][address.Row] = Missing;
+        }
+
+        public void Clear()
+        {
+            _values = Array.Empty<double[]>();
+            _kinds = Array.Empty<byte[]>();
+            _otherErrors.Clear();
+        }
+
+        // Виділяє місце заздалегідь, щоб паралельні записи в різні клітинки не зустрілися з розширенням масиву
+        public void Reserve(CellAddress address)
+        {
+            if (address.Column >= _kinds.Length)
+            {
+                int oldCount = _kinds.Length;
+                int columns = Math.Max(address.Column + 1, oldCount * 2);
+                Array.Resize(ref _values, columns);
+                Array.Resize(ref _kinds, columns);
+                for (int i = oldCount; i < columns; i++)
+                {
+                    _values[i] = Array.Empty<double>();
+                    _kinds[i] = Array.Empty<byte>();
+                }
+            }
+
+            var kinds = _kinds[address.Column];
+            if (address.Row >= kinds.Length)
+            {
+                int rows = Math.Max(address.Row + 1, Math.Max(16, kinds.Length * 2));
+                Array.Resize(ref _values[address.Column], rows);
+                Array.Resize(ref _kinds[address.Column], rows);
+            }
+        }
+
+        // Прямий доступ до масивів стовпця для пакетного обчислення; порожні масиви, якщо стовпця немає
+        internal double[] ValuesOf(int column)
+        {
+            return (uint)column < (uint)_values.Length ? _values[column] : Array.Empty<double>();
+        }
+
+        internal byte[] KindsOf(int column)
+        {
+            return (uint)column < (uint)_kinds.Length ? _kinds[column] : Array.Empty<byte>();
+        }
+
+        // Записує поспіль values.Length значень одного типу (Number або Boolean) у стовпець
+        internal void SetRange(int column, int startRow, ReadOnlySpan<double> values, byte kind)
+        {
+            if (values.IsEmpty)
+                return;
+
+            Reserve(new CellAddress(startRow + values.Length - 1, column));
+
+            var kinds = _kinds[column].AsSpan(startRow, values.Length);
+            if (kinds.Contains(OtherError))
+            {
+                for (int i = 0; i < kinds.Length; i++)
+                {
+                    if (kinds[i] == OtherError)
+                        _otherErrors.TryRemove(new CellAddress(startRow + i, column).Pack(), out _);
+                }
+            }
+
+            values.CopyTo(_values[column].AsSpan(startRow));
+            kinds.Fill(kind);
+        }
+
+        private byte KindAt(CellAddress address)
+        {
+            if ((uint)address.Column >= (uint)_kinds.Length)
+                return Missing;
+
+            var kinds = _kinds[address.Column];
+            return (uint)address.Row < (uint)kinds.Length ? kinds[address.Row] : Missing;
+        }
+    }
+}
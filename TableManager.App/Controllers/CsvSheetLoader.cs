@@ -0,0 +1,236 @@
+using System;
+using System.Collections.Generic;
+using System.IO;
+using System.IO.MemoryMappedFiles;
+using System.Text;
+using System.Threading.Tasks;
+
+namespace TableManager.App.Controllers
+{
+    // Завантажує CSV у NativeSheetStore без проміжних рядків: файл відображається в пам'ять,
+    // ділиться на шматки по межах рядків, і кожен шматок розбирається паралельно прямо з байтів.
+    // Поля розбиваються так само, як у FileManager.LoadTableFromFile — Split(',') без лапок;
+    // рядки закінчуються на '\n' або '\r\n'. Поле, що не є ні числом, ні формулою, а також формула
+    // з синтаксичною помилкою зберігаються текстом (NativeSheetStore.GetText), тож CsvSheetWriter
+    // запише їх назад як є. Числа читаються FormulaValue.TryParseNumber в InvariantCulture,
+    // як їх пише CsvSheetWriter.
+    public static unsafe class CsvSheetLoader
+    {
+        public const int DefaultChunkSize = 4 << 20;
+        // Шматок має вміщатися у Span
+        private const int MaxChunkSize = 1 << 28;
+
+        // Порожній файл — null, як і порожня таблиця у FileManager
+        public static NativeSheetStore? Load(string path, int chunkSize = DefaultChunkSize)
+        {
+            if (chunkSize <= 0)
+                throw new ArgumentOutOfRangeException(nameof(chunkSize));
+
+            long length = new FileInfo(path).Length;
+            if (length == 0)
+                return null;
+
+            using var file = MemoryMappedFile.CreateFromFile(path, FileMode.Open, null, 0, MemoryMappedFileAccess.Read);
+            using var view = file.CreateViewAccessor(0, length, MemoryMappedFileAccess.Read);
+
+            byte* pointer = null;
+            view.SafeMemoryMappedViewHandle.AcquirePointer(ref pointer);
+            try
+            {
+                return Load((nint)(pointer + view.PointerOffset), length, Math.Min(chunkSize, MaxChunkSize));
+            }
+            finally
+            {
+                view.SafeMemoryMappedViewHandle.ReleasePointer();
+            }
+        }
+
+        private static NativeSheetStore? Load(nint data, long length, int chunkSize)
+        {
+            long start = HasUtf8Bom(data, length) ? 3 : 0;
+            var bounds = FindChunkBounds(data, start, length, chunkSize);
+            int chunkCount = bounds.Length - 1;
+
+            // Перший прохід: кількість рядків і найширший рядок у кожному шматку
+            var lineCounts = new int[chunkCount];
+            var maxFields = new int[chunkCount];
+            Parallel.For(0, chunkCount, i =>
+            {
+                CountLines(Chunk(data, bounds[i], bounds[i + 1]), out lineCounts[i], out maxFields[i]);
+            });
+
+            var firstRows = new int[chunkCount];
+            long rows = 0;
+            int columns = 0;
+            for (int i = 0; i < chunkCount; i++)
+            {
+                firstRows[i] = (int)Math.Min(rows, int.MaxValue);
+                rows += lineCounts[i];
+                columns = Math.Max(columns, maxFields[i]);
+            }
+
+            if (rows == 0)
+                return null;
+            if (rows > CellAddress.MaxRows || columns > CellAddress.MaxColumns)
+                throw new InvalidDataException($"Таблиця {rows}x{columns} перевищує допустимий розмір");
+
+            var store = new NativeSheetStore((int)rows, columns);
+
+            // Другий прохід: числа пишуться в сховище одразу, формули компілюються пачками
+            // по шматку, а формули й тексти реєструються в сховищі вже в одному потоці
+            var batches = new List<PendingCell>[chunkCount];
+            Parallel.For(0, chunkCount, i =>
+            {
+                batches[i] = ParseChunk(Chunk(data, bounds[i], bounds[i + 1]), firstRows[i], store);
+            });
+
+            foreach (var batch in batches)
+            {
+                foreach (var cell in batch)
+                {
+                    if (cell.Formula != null)
+                        store.SetFormula(cell.Address, cell.Formula);
+                    else
+                        store.SetLiteralText(cell.Address, cell.Text!);
+                }
+            }
+
+            return store;
+        }
+
+        // Межі шматків завжди стоять одразу після '\n', тож кожен шматок містить цілі рядки
+        private static long[] FindChunkBounds(nint data, long start, long length, int chunkSize)
+        {
+            var bounds = new List<long> { start };
+            long position = start;
+
+            while (length - position > chunkSize)
+            {
+                var window = new ReadOnlySpan<byte>((byte*)data + position + chunkSize, (int)Math.Min(length - position - chunkSize, MaxChunkSize));
+                int newLine = window.IndexOf((byte)'\n');
+                if (newLine < 0)
+                    break;
+
+                position += chunkSize + newLine + 1;
+                if (position >= length)
+                    break;
+
+                bounds.Add(position);
+            }
+
+            bounds.Add(length);
+            return bounds.ToArray();
+        }
+
+        private static void CountLines(ReadOnlySpan<byte> chunk, out int lines, out int maxFields)
+        {
+            lines = 0;
+            maxFields = 0;
+
+            while (!chunk.IsEmpty)
+            {
+                var line = NextLine(ref chunk);
+                lines++;
+                maxFields = Math.Max(maxFields, line.Count((byte)',') + 1);
+            }
+        }
+
+        private static List<PendingCell> ParseChunk(ReadOnlySpan<byte> chunk, int row, NativeSheetStore store)
+        {
+            var pending = new List<PendingCell>();
+
+            while (!chunk.IsEmpty)
+            {
+                var line = NextLine(ref chunk);
+                int column = 0;
+
+                while (true)
+                {
+                    int comma = line.IndexOf((byte)',');
+                    var field = comma < 0 ? line : line.Slice(0, comma);
+                    var address = new CellAddress(row, column);
+
+                    if (!IsWhiteSpace(field))
+                    {
+                        if (field[0] == (byte)'=')
+                        {
+                            string text = Encoding.UTF8.GetString(field);
+                            var formula = FormulaCompiler.GetOrCompile(text, address);
+                            pending.Add(new PendingCell(address, formula, formula == null ? text : null));
+                        }
+                        else if (FormulaValue.TryParseNumber(field, out double number))
+                        {
+                            store.SetValue(address, FormulaValue.FromNumber(number));
+                        }
+                        else
+                        {
+                            pending.Add(new PendingCell(address, null, Encoding.UTF8.GetString(field)));
+                        }
+                    }
+
+                    if (comma < 0)
+                        break;
+
+                    line = line.Slice(comma + 1);
+                    column++;
+                }
+
+                row++;
+            }
+
+            return pending;
+        }
+
+        // Рядок до '\n' без завершального '\r'; останній рядок може не мати '\n'
+        private static ReadOnlySpan<byte> NextLine(ref ReadOnlySpan<byte> chunk)
+        {
+            int newLine = chunk.IndexOf((byte)'\n');
+            ReadOnlySpan<byte> line;
+            if (newLine < 0)
+            {
+                line = chunk;
+                chunk = ReadOnlySpan<byte>.Empty;
+            }
+            else
+            {
+                line = chunk.Slice(0, newLine);
+                chunk = chunk.Slice(newLine + 1);
+            }
+
+            if (!line.IsEmpty && line[^1] == (byte)'\r')
+                line = line.Slice(0, line.Length - 1);
+
+            return line;
+        }
+
+        private static bool IsWhiteSpace(ReadOnlySpan<byte> field)
+        {
+            foreach (byte b in field)
+            {
+                if (b != (byte)' ' && (b < (byte)'\t' || b > (byte)'\r'))
+                    return false;
+            }
+            return true;
+        }
+
+        private static bool HasUtf8Bom(nint data, long length)
+        {
+            var bytes = (byte*)data;
+            return length >= 3 && bytes[0] == 0xEF && bytes[1] == 0xBB && bytes[2] == 0xBF;
+        }
+
+        // Шматок без '\n' у вікні MaxChunkSize тягнеться до кінця файлу й може не вміститися у Span
+        private static ReadOnlySpan<byte> Chunk(nint data, long start, long end)
+        {
+            long length = end - start;
+            if (length > int.MaxValue)
+                throw new InvalidDataException($"Фрагмент CSV від байта {start} довший за {int.MaxValue} байтів без переносу рядка");
+
+            return new ReadOnlySpan<byte>((byte*)data + start, (int)length);
+        }
+
+        // Формула або текст (звичайний чи формули з помилкою), які реєструються в сховищі
+        // після паралельного розбору
+        private readonly record struct PendingCell(CellAddress Address, CompiledFormula? Formula, string? Text);
+    }
+}
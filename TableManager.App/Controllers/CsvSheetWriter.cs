@@ -0,0 +1,248 @@
+using System;
+using System.Collections.Generic;
+using System.Globalization;
+using System.IO;
+using System.Text;
+
+namespace TableManager.App.Controllers
+{
+    // Пише CSV через власний багаторазовий буфер байтів: без string.Join на рядок і без
+    // проміжних рядків для чисел. Формат той самий, що в FileManager.SaveTableToFile.
+    // Числа пишуться в InvariantCulture: кома культури uk-UA зламала б поля CSV.
+    public sealed class CsvSheetWriter : IDisposable
+    {
+        public const int DefaultBufferSize = 1 << 20;
+        // Найдовше число у форматі round-trip із запасом
+        private const int MaxNumberLength = 64;
+
+        private static readonly byte[] NewLine = Encoding.UTF8.GetBytes(Environment.NewLine);
+
+        private readonly Stream _stream;
+        private readonly byte[] _buffer;
+        private int _position;
+
+        public CsvSheetWriter(Stream stream, int bufferSize = DefaultBufferSize)
+        {
+            _stream = stream;
+            _buffer = new byte[Math.Max(bufferSize, MaxNumberLength)];
+        }
+
+        // atomic: запис у тимчасовий файл поруч і заміна цілого файлу лише після успіху,
+        // тож збій посеред збереження не обрізає наявну таблицю
+        public static void Save(string path, NativeSheetStore store, bool atomic = true)
+        {
+            SaveFile(path, atomic, writer => writer.WriteSheet(store));
+        }
+
+        public static void Save(string path, IEnumerable<IEnumerable<string?>> rows, bool atomic = true)
+        {
+            SaveFile(path, atomic, writer =>
+            {
+                foreach (var row in rows)
+                    writer.WriteRow(row);
+            });
+        }
+
+        // Формули пишуться вихідним текстом, відновленим із шаблону; текст — як є;
+        // інші константи — значеннями
+        public void WriteSheet(NativeSheetStore store)
+        {
+            for (int row = 0; row < store.Rows; row++)
+            {
+                for (int column = 0; column < store.Columns; column++)
+                {
+                    if (column > 0)
+                        WriteByte((byte)',');
+
+                    var address = new CellAddress(row, column);
+                    var formula = store.GetFormula(address);
+                    if (formula != null)
+                        WriteFormula(formula, address);
+                    else if (store.GetText(address) is { } text)
+                        WriteChars(text);
+                    else if (!store.IsEmpty(address))
+                        WriteValue(store.GetCellValue(address));
+                }
+                WriteBytes(NewLine);
+            }
+        }
+
+        public void WriteRow(IEnumerable<string?> cells)
+        {
+            bool first = true;
+            foreach (var cell in cells)
+            {
+                if (!first)
+                    WriteByte((byte)',');
+                WriteChars(cell ?? "");
+                first = false;
+            }
+            WriteBytes(NewLine);
+        }
+
+        public void WriteValue(FormulaValue value)
+        {
+            switch (value.Type)
+            {
+                case ValueType.Number:
+                    WriteNumber(value.Number);
+                    break;
+                case ValueType.Boolean:
+                    WriteChars(value.Bool ? "TRUE" : "FALSE");
+                    break;
+                default:
+                    WriteChars(value.Error);
+                    break;
+            }
+        }
+
+        public void WriteNumber(double value)
+        {
+            Ensure(MaxNumberLength);
+            value.TryFormat(_buffer.AsSpan(_position), out int written, default, CultureInfo.InvariantCulture);
+            _position += written;
+        }
+
+        // Розгортає R[dr]C[dc] шаблону назад в A1 для клітинки host. '[' немає в жодному
+        // токені граматики, тож інший текст формули з цим шаблоном не сплутати.
+        public void WriteFormula(CompiledFormula formula, CellAddress host)
+        {
+            var text = formula.Text.AsSpan();
+            if (!formula.IsRelative)
+            {
+                WriteChars(text);
+                return;
+            }
+
+            while (true)
+            {
+                int start = text.IndexOf("R[", StringComparison.Ordinal);
+                if (start < 0)
+                    break;
+
+                WriteChars(text.Slice(0, start));
+                text = text.Slice(start + 2);
+
+                int rowOffset = ReadOffset(ref text, "]C[");
+                int columnOffset = ReadOffset(ref text, "]");
+                WriteCellName(host.Offset(rowOffset, columnOffset));
+            }
+
+            WriteChars(text);
+        }
+
+        public void Flush()
+        {
+            if (_position > 0)
+            {
+                _stream.Write(_buffer, 0, _position);
+                _position = 0;
+            }
+            _stream.Flush();
+        }
+
+        public void Dispose()
+        {
+            Flush();
+        }
+
+        private static void SaveFile(string path, bool atomic, Action<CsvSheetWriter> write)
+        {
+            string target = Path.GetFullPath(path);
+            string output = atomic
+                ? Path.Combine(Path.GetDirectoryName(target) ?? ".", $".{Path.GetFileName(target)}.{Guid.NewGuid():N}.tmp")
+                : target;
+
+            try
+            {
+                // Буфер FileStream вимкнено: усе буферизує CsvSheetWriter
+                using (var stream = new FileStream(output, atomic ? FileMode.CreateNew : FileMode.Create,
+                           FileAccess.Write, FileShare.None, bufferSize: 0, FileOptions.SequentialScan))
+                {
+                    using (var writer = new CsvSheetWriter(stream))
+                        write(writer);
+
+                    if (atomic)
+                        stream.Flush(flushToDisk: true);
+                }
+
+                if (atomic)
+                    File.Move(output, target, overwrite: true);
+            }
+            catch
+            {
+                if (atomic)
+                    File.Delete(output);
+                throw;
+            }
+        }
+
+        private static int ReadOffset(ref ReadOnlySpan<char> text, string terminator)
+        {
+            int end = text.IndexOf(terminator, StringComparison.Ordinal);
+            int offset = int.Parse(text.Slice(0, end), NumberStyles.AllowLeadingSign, CultureInfo.InvariantCulture);
+            text = text.Slice(end + terminator.Length);
+            return offset;
+        }
+
+        private void WriteCellName(CellAddress address)
+        {
+            Span<byte> letters = stackalloc byte[8];
+            int length = 0;
+            for (int index = address.Column; index >= 0; index = index / 26 - 1)
+                letters[length++] = (byte)('A' + index % 26);
+
+            Ensure(length + 16);
+            for (int i = length - 1; i >= 0; i--)
+                _buffer[_position++] = letters[i];
+
+            (address.Row + 1).TryFormat(_buffer.AsSpan(_position), out int written, default, CultureInfo.InvariantCulture);
+            _position += written;
+        }
+
+        private void WriteChars(ReadOnlySpan<char> text)
+        {
+            if (text.IsEmpty)
+                return;
+
+            int maxBytes = Encoding.UTF8.GetMaxByteCount(text.Length);
+            if (maxBytes > _buffer.Length)
+            {
+                WriteBytes(Encoding.UTF8.GetBytes(text.ToArray()));
+                return;
+            }
+
+            Ensure(maxBytes);
+            _position += Encoding.UTF8.GetBytes(text, _buffer.AsSpan(_position));
+        }
+
+        private void WriteBytes(ReadOnlySpan<byte> bytes)
+        {
+            if (bytes.Length > _buffer.Length)
+            {
+                Ensure(_buffer.Length);
+                _stream.Write(bytes);
+                return;
+            }
+
+            Ensure(bytes.Length);
+            bytes.CopyTo(_buffer.AsSpan(_position));
+            _position += bytes.Length;
+        }
+
+        private void WriteByte(byte value)
+        {
+            Ensure(1);
+            _buffer[_position++] = value;
+        }
+
+        private void Ensure(int count)
+        {
+            if (_buffer.Length - _position < count)
+            {
+                _stream.Write(_buffer, 0, _position);
+                _position = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,433 @@
+using System;
+using System.Collections.Generic;
+
+namespace TableManager.App.Controllers
+{
+    // Постійний індекс залежностей між клітинками. Кожна адреса отримує щільний int-ідентифікатор,
+    // ребра зберігаються як масиви int у двох напрямках: precedents (на кого посилається формула)
+    // і dependents (хто посилається на клітинку). Оновлюється по одній клітинці.
+    //
+    // Разом із ребрами підтримуються компоненти сильної зв'язності (цикли). Цикл, що містить
+    // змінену клітинку, цілком лежить серед її транзитивних залежних, тому після зміни Тарʼян
+    // запускається лише на цій області плюс колишній цикл клітинки.
+    public class DependencyGraph
+    {
+        // Номер вузла + 1 за адресою, по стовпцях; 0 — вузла немає
+        private int[][] _nodeIndex = Array.Empty<int[]>();
+        private CellAddress[] _addresses = new CellAddress[16];
+        private string?[] _formulas = new string?[16];
+        private int[][] _precedents = new int[16][];
+        private int[] _precedentCounts = new int[16];
+        private int[][] _dependents = new int[16][];
+        private int[] _dependentCounts = new int[16];
+
+        private int[] _queueMarks = new int[16];
+        private int[] _resultMarks = new int[16];
+        private int _stamp;
+
+        // Ідентифікатор циклу для кожного вузла, -1 якщо вузол не в циклі
+        private int[] _componentOf = new int[16];
+        private readonly Dictionary<int, int[]> _components = new();
+        private readonly List<int> _pendingCycleChecks = new();
+        private int _nextComponentId;
+
+        private int[] _tarjanIndex = new int[16];
+        private int[] _tarjanLowLink = new int[16];
+        private bool[] _tarjanOnStack = new bool[16];
+
+        public int NodeCount { get; private set; }
+        public int EdgeCount { get; private set; }
+
+        public bool TryGetNode(CellAddress address, out int node)
+        {
+            node = -1;
+            if ((uint)address.Column >= (uint)_nodeIndex.Length)
+                return false;
+
+            var column = _nodeIndex[address.Column];
+            if ((uint)address.Row >= (uint)column.Length)
+                return false;
+
+            node = column[address.Row] - 1;
+            return node >= 0;
+        }
+
+        public int GetOrAddNode(CellAddress address)
+        {
+            if (TryGetNode(address, out int node))
+                return node;
+
+            if (!address.IsValid)
+                throw new ArgumentOutOfRangeException(nameof(address));
+
+            node = NodeCount++;
+            EnsureCapacity(NodeCount);
+
+            SetNodeIndex(address, node + 1);
+            _addresses[node] = address;
+            _formulas[node] = null;
+            _precedents[node] = Array.Empty<int>();
+            _precedentCounts[node] = 0;
+            _dependents[node] = Array.Empty<int>();
+            _dependentCounts[node] = 0;
+            _componentOf[node] = -1;
+            return node;
+        }
+
+        public CellAddress GetAddress(int node) => _addresses[node];
+
+        public ReadOnlySpan<int> GetPrecedents(int node)
+            => new ReadOnlySpan<int>(_precedents[node], 0, _precedentCounts[node]);
+
+        public ReadOnlySpan<int> GetDependents(int node)
+            => new ReadOnlySpan<int>(_dependents[node], 0, _dependentCounts[node]);
+
+        // Оновлює ребра клітинки за текстом її значення. Якщо текст не змінився, нічого не робить.
+        public void UpdateCell(CellAddress cell, string? value)
+        {
+            if (!TryGetNode(cell, out int node))
+            {
+                if (string.IsNullOrEmpty(value) || !value.StartsWith("="))
+                    return;
+                node = GetOrAddNode(cell);
+            }
+
+            if (string.Equals(_formulas[node], value, StringComparison.Ordinal))
+                return;
+
+            var formula = value != null && value.StartsWith("=") ? FormulaCompiler.GetOrCompile(value, cell) : null;
+            SetPrecedents(node, ResolvePrecedents(formula, cell));
+            _formulas[node] = value;
+        }
+
+        public void SetPrecedents(CellAddress cell, IReadOnlyList<CellAddress> precedents)
+        {
+            int node = GetOrAddNode(cell);
+            var newPrecedents = precedents.Count == 0 ? Array.Empty<int>() : new int[precedents.Count];
+            for (int i = 0; i < precedents.Count; i++)
+                newPrecedents[i] = GetOrAddNode(precedents[i]);
+
+            SetPrecedents(node, newPrecedents);
+        }
+
+        // Посилання шаблону зсуваються на клітинку одразу у вузли, без проміжного списку адрес
+        private int[] ResolvePrecedents(CompiledFormula? formula, CellAddress host)
+        {
+            int count = formula?.References.Count ?? 0;
+            if (count == 0)
+                return Array.Empty<int>();
+
+            var nodes = new int[count];
+            for (int i = 0; i < count; i++)
+                nodes[i] = GetOrAddNode(formula!.GetReference(i, host));
+            return nodes;
+        }
+
+        private void SetPrecedents(int node, int[] newPrecedents)
+        {
+            var oldPrecedents = _precedents[node];
+            int oldCount = _precedentCounts[node];
+
+            for (int i = 0; i < oldCount; i++)
+            {
+                if (Array.IndexOf(newPrecedents, oldPrecedents[i]) < 0)
+                    RemoveDependent(oldPrecedents[i], node);
+            }
+
+            for (int i = 0; i < newPrecedents.Length; i++)
+            {
+                if (Array.IndexOf(oldPrecedents, newPrecedents[i], 0, oldCount) < 0)
+                    AddDependent(newPrecedents[i], node);
+            }
+
+            _precedents[node] = newPrecedents;
+            _precedentCounts[node] = newPrecedents.Length;
+            _pendingCycleChecks.Add(node);
+        }
+
+        public void RemoveCell(CellAddress cell)
+        {
+            if (!TryGetNode(cell, out int node))
+                return;
+
+            SetPrecedents(node, Array.Empty<int>());
+            _formulas[node] = null;
+        }
+
+        public void Clear()
+        {
+            _nodeIndex = Array.Empty<int[]>();
+            _components.Clear();
+            _pendingCycleChecks.Clear();
+            NodeCount = 0;
+            EdgeCount = 0;
+        }
+
+        public int CycleCount
+        {
+            get
+            {
+                FlushCycleChecks();
+                return _components.Count;
+            }
+        }
+
+        public bool IsInCycle(int node)
+        {
+            FlushCycleChecks();
+            return _componentOf[node] >= 0;
+        }
+
+        public bool IsInCycle(CellAddress address)
+        {
+            return TryGetNode(address, out int node) && IsInCycle(node);
+        }
+
+        private void FlushCycleChecks()
+        {
+            if (_pendingCycleChecks.Count == 0)
+                return;
+
+            var changed = _pendingCycleChecks.ToArray();
+            _pendingCycleChecks.Clear();
+
+            var region = CollectDependents(changed);
+            int stamp = _stamp;
+            foreach (int node in changed)
+            {
+                if (_resultMarks[node] != stamp)
+                {
+                    _resultMarks[node] = stamp;
+                    region.Add(node);
+                }
+
+                // Колишній цикл міг розпастися, і його вузли вже недосяжні зі зміненої клітинки
+                if (_componentOf[node] >= 0 && _components.TryGetValue(_componentOf[node], out var members))
+                {
+                    foreach (int member in members)
+                    {
+                        if (_resultMarks[member] != stamp)
+                        {
+                            _resultMarks[member] = stamp;
+                            region.Add(member);
+                        }
+                    }
+                }
+            }
+
+            foreach (int node in region)
+            {
+                if (_componentOf[node] >= 0)
+                {
+                    _components.Remove(_componentOf[node]);
+                    _componentOf[node] = -1;
+                }
+            }
+
+            long started = FormulaMetrics.Start();
+            FindComponents(region, stamp);
+            FormulaMetrics.Stop(MetricPhase.CycleDetection, started);
+        }
+
+        // Ітеративний алгоритм Тарʼяна, обмежений вузлами з region (позначеними stamp у _resultMarks)
+        private void FindComponents(List<int> region, int stamp)
+        {
+            foreach (int node in region)
+                _tarjanIndex[node] = 0;
+
+            var callNodes = new int[region.Count];
+            var callPositions = new int[region.Count];
+            var sccStack = new Stack<int>();
+            int index = 0;
+
+            foreach (int root in region)
+            {
+                if (_tarjanIndex[root] != 0)
+                    continue;
+
+                int depth = 0;
+                callNodes[0] = root;
+                callPositions[0] = 0;
+                _tarjanIndex[root] = _tarjanLowLink[root] = ++index;
+                sccStack.Push(root);
+                _tarjanOnStack[root] = true;
+
+                while (depth >= 0)
+                {
+                    int v = callNodes[depth];
+                    int position = callPositions[depth];
+
+                    if (position < _dependentCounts[v])
+                    {
+                        callPositions[depth] = position + 1;
+                        int w = _dependents[v][position];
+                        if (_resultMarks[w] != stamp)
+                            continue;
+
+                        if (_tarjanIndex[w] == 0)
+                        {
+                            _tarjanIndex[w] = _tarjanLowLink[w] = ++index;
+                            sccStack.Push(w);
+                            _tarjanOnStack[w] = true;
+                            depth++;
+                            callNodes[depth] = w;
+                            callPositions[depth] = 0;
+                        }
+                        else if (_tarjanOnStack[w])
+                        {
+                            _tarjanLowLink[v] = Math.Min(_tarjanLowLink[v], _tarjanIndex[w]);
+                        }
+                        continue;
+                    }
+
+                    depth--;
+                    if (depth >= 0)
+                    {
+                        int parent = callNodes[depth];
+                        _tarjanLowLink[parent] = Math.Min(_tarjanLowLink[parent], _tarjanLowLink[v]);
+                    }
+
+                    if (_tarjanLowLink[v] == _tarjanIndex[v])
+                        PopComponent(v, sccStack);
+                }
+            }
+        }
+
+        private void PopComponent(int root, Stack<int> sccStack)
+        {
+            var members = new List<int>();
+            int node;
+            do
+            {
+                node = sccStack.Pop();
+                _tarjanOnStack[node] = false;
+                members.Add(node);
+            } while (node != root);
+
+            bool isCycle = members.Count > 1 || Array.IndexOf(_precedents[root], root, 0, _precedentCounts[root]) >= 0;
+            if (!isCycle)
+                return;
+
+            int id = _nextComponentId++;
+            foreach (int member in members)
+                _componentOf[member] = id;
+            _components[id] = members.ToArray();
+        }
+
+        // Усі клітинки, що транзитивно залежать від roots. Час пропорційний кількості зачеплених ребер.
+        public List<int> CollectDependents(IEnumerable<int> roots)
+        {
+            int stamp = NextStamp();
+            var result = new List<int>();
+            var queue = new Queue<int>();
+
+            foreach (int root in roots)
+            {
+                if (_queueMarks[root] != stamp)
+                {
+                    _queueMarks[root] = stamp;
+                    queue.Enqueue(root);
+                }
+            }
+
+            while (queue.Count > 0)
+            {
+                int current = queue.Dequeue();
+                var dependents = _dependents[current];
+                int count = _dependentCounts[current];
+
+                for (int i = 0; i < count; i++)
+                {
+                    int dependent = dependents[i];
+                    if (_resultMarks[dependent] != stamp)
+                    {
+                        _resultMarks[dependent] = stamp;
+                        result.Add(dependent);
+                    }
+                    if (_queueMarks[dependent] != stamp)
+                    {
+                        _queueMarks[dependent] = stamp;
+                        queue.Enqueue(dependent);
+                    }
+                }
+            }
+
+            return result;
+        }
+
+        private void AddDependent(int precedent, int dependent)
+        {
+            int count = _dependentCounts[precedent];
+            var list = _dependents[precedent];
+            if (count == list.Length)
+            {
+                Array.Resize(ref list, Math.Max(4, count * 2));
+                _dependents[precedent] = list;
+            }
+
+            list[count] = dependent;
+            _dependentCounts[precedent] = count + 1;
+            EdgeCount++;
+        }
+
+        private void RemoveDependent(int precedent, int dependent)
+        {
+            int count = _dependentCounts[precedent];
+            var list = _dependents[precedent];
+            int index = Array.IndexOf(list, dependent, 0, count);
+            if (index < 0)
+                return;
+
+            list[index] = list[count - 1];
+            _dependentCounts[precedent] = count - 1;
+            EdgeCount--;
+        }
+
+        private void SetNodeIndex(CellAddress address, int value)
+        {
+            if (address.Column >= _nodeIndex.Length)
+            {
+                int oldCount = _nodeIndex.Length;
+                Array.Resize(ref _nodeIndex, Math.Max(address.Column + 1, oldCount * 2));
+                for (int i = oldCount; i < _nodeIndex.Length; i++)
+                    _nodeIndex[i] = Array.Empty<int>();
+            }
+
+            if (address.Row >= _nodeIndex[address.Column].Length)
+                Array.Resize(ref _nodeIndex[address.Column], Math.Max(address.Row + 1, Math.Max(16, _nodeIndex[address.Column].Length * 2)));
+
+            _nodeIndex[address.Column][address.Row] = value;
+        }
+
+        private int NextStamp()
+        {
+            if (++_stamp == int.MaxValue)
+            {
+                Array.Clear(_queueMarks);
+                Array.Clear(_resultMarks);
+                _stamp = 1;
+            }
+            return _stamp;
+        }
+
+        private void EnsureCapacity(int size)
+        {
+            if (size <= _addresses.Length)
+                return;
+
+            int capacity = Math.Max(size, _addresses.Length * 2);
+            Array.Resize(ref _addresses, capacity);
+            Array.Resize(ref _formulas, capacity);
+            Array.Resize(ref _precedents, capacity);
+            Array.Resize(ref _precedentCounts, capacity);
+            Array.Resize(ref _dependents, capacity);
+            Array.Resize(ref _dependentCounts, capacity);
+            Array.Resize(ref _queueMarks, capacity);
+            Array.Resize(ref _resultMarks, capacity);
+            Array.Resize(ref _componentOf, capacity);
+            Array.Resize(ref _tarjanIndex, capacity);
+            Array.Resize(ref _tarjanLowLink, capacity);
+            Array.Resize(ref _tarjanOnStack, capacity);
+        }
+    }
+}
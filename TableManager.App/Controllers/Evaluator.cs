@@ -1,7 +1,5 @@
 using System;
 using System.Collections.Generic;
-using System.Linq;
-using System.Text.RegularExpressions;
 
 namespace TableManager.App.Controllers
 {
@@ -48,298 +46,23 @@ namespace TableManager.App.Controllers
             if (!expression.StartsWith("="))
                 return new EvaluationResult { Success = false, Type = ValueType.Error, Error = "#ERROR" };
 
-            string expr = expression.Substring(1).Trim();
-
-            var syntaxCheck = Parser.CheckSyntax(expression);
-            if (!syntaxCheck.isValid)
+            var formula = FormulaCompiler.GetOrCompile(expression);
+            if (formula == null)
                 return new EvaluationResult { Success = false, Type = ValueType.Error, Error = "#ERROR" };
 
-            if (expr.StartsWith("(") && expr.EndsWith(")"))
-            {
-                expr = expr.Substring(1, expr.Length - 2).Trim();
-            }
-
-            try
-            {
-                return EvaluateExpression(expr, cellValues);
-            }
-            catch (Exception)
-            {
-                return new EvaluationResult { Success = false, Type = ValueType.Error, Error = "#ERROR" };
-            }
+            return formula.Evaluate(new DictionaryCellSource(cellValues)).ToResult();
         }
 
-        private static EvaluationResult EvaluateExpression(string expr, Dictionary<string, string> cellValues)
+        public static EvaluationResult Evaluate(string expression, ICellValueSource cells)
         {
-            if (expr.Contains(">="))
-            {
-                var parts = expr.Split(new[] { ">=" }, StringSplitOptions.None);
-                if (parts.Length == 2)
-                {
-                    var left = EvaluateExpression(parts[0].Trim(), cellValues);
-                    var right = EvaluateExpression(parts[1].Trim(), cellValues);
-                    
-                    if (!left.Success) return left;
-                    if (!right.Success) return right;
-                    
-                    // Конвертуємо булеві в числа
-                    double leftValue = left.Type == ValueType.Boolean ? (left.BoolValue ? 1.0 : 0.0) : left.NumberValue;
-                    double rightValue = right.Type == ValueType.Boolean ? (right.BoolValue ? 1.0 : 0.0) : right.NumberValue;
-                    
-                    // Перевірка на змішування типів - обидва мають бути або числа, або булеві
-                    if ((left.Type == ValueType.Boolean) != (right.Type == ValueType.Boolean))
-                        return new EvaluationResult { Success = false, Type = ValueType.Error, Error = "#ERROR" };
-                    
-                    return new EvaluationResult { Success = true, Type = ValueType.Boolean, BoolValue = leftValue >= rightValue };
-                }
-            }
-            
-            if (expr.Contains("<="))
-            {
-                var parts = expr.Split(new[] { "<=" }, StringSplitOptions.None);
-                if (parts.Length == 2)
-                {
-                    var left = EvaluateExpression(parts[0].Trim(), cellValues);
-                    var right = EvaluateExpression(parts[1].Trim(), cellValues);
-                    
-                    if (!left.Success) return left;
-                    if (!right.Success) return right;
-                    
-                    double leftValue = left.Type == ValueType.Boolean ? (left.BoolValue ? 1.0 : 0.0) : left.NumberValue;
-                    double rightValue = right.Type == ValueType.Boolean ? (right.BoolValue ? 1.0 : 0.0) : right.NumberValue;
-                    
-                    if ((left.Type == ValueType.Boolean) != (right.Type == ValueType.Boolean))
-                        return new EvaluationResult { Success = false, Type = ValueType.Error, Error = "#ERROR" };
-                    
-                    return new EvaluationResult { Success = true, Type = ValueType.Boolean, BoolValue = leftValue <= rightValue };
-                }
-            }
-            
-            if (expr.Contains("<>"))
-            {
-                var parts = expr.Split(new[] { "<>" }, StringSplitOptions.None);
-                if (parts.Length == 2)
-                {
-                    var left = EvaluateExpression(parts[0].Trim(), cellValues);
-                    var right = EvaluateExpression(parts[1].Trim(), cellValues);
-                    
-                    if (!left.Success) return left;
-                    if (!right.Success) return right;
-                    
-                    double leftValue = left.Type == ValueType.Boolean ? (left.BoolValue ? 1.0 : 0.0) : left.NumberValue;
-                    double rightValue = right.Type == ValueType.Boolean ? (right.BoolValue ? 1.0 : 0.0) : right.NumberValue;
-                    
-                    if ((left.Type == ValueType.Boolean) != (right.Type == ValueType.Boolean))
-                        return new EvaluationResult { Success = false, Type = ValueType.Error, Error = "#ERROR" };
-                    
-                    return new EvaluationResult { Success = true, Type = ValueType.Boolean, BoolValue = Math.Abs(leftValue - rightValue) > 0.0001 };
-                }
-            }
-            
-            if (expr.Contains(">") && !expr.Contains(">="))
-            {
-                var parts = expr.Split('>');
-                if (parts.Length == 2)
-                {
-                    var left = EvaluateExpression(parts[0].Trim(), cellValues);
-                    var right = EvaluateExpression(parts[1].Trim(), cellValues);
-                    
-                    if (!left.Success) return left;
-                    if (!right.Success) return right;
-                    
-                    double leftValue = left.Type == ValueType.Boolean ? (left.BoolValue ? 1.0 : 0.0) : left.NumberValue;
-                    double rightValue = right.Type == ValueType.Boolean ? (right.BoolValue ? 1.0 : 0.0) : right.NumberValue;
-                    
-                    if ((left.Type == ValueType.Boolean) != (right.Type == ValueType.Boolean))
-                        return new EvaluationResult { Success = false, Type = ValueType.Error, Error = "#ERROR" };
-                    
-                    return new EvaluationResult { Success = true, Type = ValueType.Boolean, BoolValue = leftValue > rightValue };
-                }
-            }
-            
-            if (expr.Contains("<") && !expr.Contains("<=") && !expr.Contains("<>"))
-            {
-                var parts = expr.Split('<');
-                if (parts.Length == 2)
-                {
-                    var left = EvaluateExpression(parts[0].Trim(), cellValues);
-                    var right = EvaluateExpression(parts[1].Trim(), cellValues);
-                    
-                    if (!left.Success) return left;
-                    if (!right.Success) return right;
-                    
-                    double leftValue = left.Type == ValueType.Boolean ? (left.BoolValue ? 1.0 : 0.0) : left.NumberValue;
-                    double rightValue = right.Type == ValueType.Boolean ? (right.BoolValue ? 1.0 : 0.0) : right.NumberValue;
-                    
-                    if ((left.Type == ValueType.Boolean) != (right.Type == ValueType.Boolean))
-                        return new EvaluationResult { Success = false, Type = ValueType.Error, Error = "#ERROR" };
-                    
-                    return new EvaluationResult { Success = true, Type = ValueType.Boolean, BoolValue = leftValue < rightValue };
-                }
-            }
-            
-            if (expr.Contains("=") && !expr.Contains("<=") && !expr.Contains(">="))
-            {
-                var parts = expr.Split('=');
-                if (parts.Length == 2)
-                {
-                    var left = EvaluateExpression(parts[0].Trim(), cellValues);
-                    var right = EvaluateExpression(parts[1].Trim(), cellValues);
-                    
-                    if (!left.Success) return left;
-                    if (!right.Success) return right;
-                    
-                    double leftValue = left.Type == ValueType.Boolean ? (left.BoolValue ? 1.0 : 0.0) : left.NumberValue;
-                    double rightValue = right.Type == ValueType.Boolean ? (right.BoolValue ? 1.0 : 0.0) : right.NumberValue;
-                    
-                    if ((left.Type == ValueType.Boolean) != (right.Type == ValueType.Boolean))
-                        return new EvaluationResult { Success = false, Type = ValueType.Error, Error = "#ERROR" };
-                    
-                    return new EvaluationResult { Success = true, Type = ValueType.Boolean, BoolValue = Math.Abs(leftValue - rightValue) < 0.0001 };
-                }
-            }
-
-            return EvaluateArithmetic(expr, cellValues);
-        }
-
-        private static EvaluationResult EvaluateArithmetic(string expr, Dictionary<string, string> cellValues)
-        {
-            if (expr.StartsWith("inc(") && expr.EndsWith(")"))
-            {
-                string inner = expr.Substring(4, expr.Length - 5).Trim();
-                var result = EvaluateArithmetic(inner, cellValues);
-                if (!result.Success) return result;
-                if (result.Type != ValueType.Number)
-                    return new EvaluationResult { Success = false, Type = ValueType.Error, Error = "#ERROR" };
-                
-                return new EvaluationResult { Success = true, Type = ValueType.Number, NumberValue = result.NumberValue + 1 };
-            }
-            
-            if (expr.StartsWith("dec(") && expr.EndsWith(")"))
-            {
-                string inner = expr.Substring(4, expr.Length - 5).Trim();
-                var result = EvaluateArithmetic(inner, cellValues);
-                if (!result.Success) return result;
-                if (result.Type != ValueType.Number)
-                    return new EvaluationResult { Success = false, Type = ValueType.Error, Error = "#ERROR" };
-                
-                return new EvaluationResult { Success = true, Type = ValueType.Number, NumberValue = result.NumberValue - 1 };
-            }
-
-            int parenLevel = 0;
-            
-            for (int i = expr.Length - 1; i >= 0; i--)
-            {
-                if (expr[i] == ')') parenLevel++;
-                if (expr[i] == '(') parenLevel--;
-                
-                if (parenLevel == 0 && (expr[i] == '+' || (expr[i] == '-' && i > 0)))
-                {
-                    var left = EvaluateArithmetic(expr.Substring(0, i).Trim(), cellValues);
-                    var right = EvaluateArithmetic(expr.Substring(i + 1).Trim(), cellValues);
-                    
-                    if (!left.Success) return left;
-                    if (!right.Success) return right;
-                    
-                    if (left.Type != ValueType.Number || right.Type != ValueType.Number)
-                        return new EvaluationResult { Success = false, Type = ValueType.Error, Error = "#ERROR" };
-                    
-                    double result = expr[i] == '+' ? left.NumberValue + right.NumberValue : left.NumberValue - right.NumberValue;
-                    return new EvaluationResult { Success = true, Type = ValueType.Number, NumberValue = result };
-                }
-            }
-            
-            parenLevel = 0;
-            
-            for (int i = expr.Length - 1; i >= 0; i--)
-            {
-                if (expr[i] == ')') parenLevel++;
-                if (expr[i] == '(') parenLevel--;
-                
-                if (parenLevel == 0)
-                {
-                    if (expr[i] == '*' || expr[i] == '/')
-                    {
-                        var left = EvaluateArithmetic(expr.Substring(0, i).Trim(), cellValues);
-                        var right = EvaluateArithmetic(expr.Substring(i + 1).Trim(), cellValues);
-                        
-                        if (!left.Success) return left;
-                        if (!right.Success) return right;
-                        
-                        if (left.Type != ValueType.Number || right.Type != ValueType.Number)
-                            return new EvaluationResult { Success = false, Type = ValueType.Error, Error = "#ERROR" };
-                        
-                        if (expr[i] == '/' && Math.Abs(right.NumberValue) < 0.0001)
-                            return new EvaluationResult { Success = false, Type = ValueType.Error, Error = "#ERROR" };
-                        
-                        double result = expr[i] == '*' ? left.NumberValue * right.NumberValue : left.NumberValue / right.NumberValue;
-                        return new EvaluationResult { Success = true, Type = ValueType.Number, NumberValue = result };
-                    }
-                    
-                    if (i >= 3 && expr.Substring(i - 3, 4) == " mod")
-                    {
-                        var left = EvaluateArithmetic(expr.Substring(0, i - 3).Trim(), cellValues);
-                        var right = EvaluateArithmetic(expr.Substring(i + 1).Trim(), cellValues);
-                        
-                        if (!left.Success) return left;
-                        if (!right.Success) return right;
-                        
-                        if (left.Type != ValueType.Number || right.Type != ValueType.Number)
-                            return new EvaluationResult { Success = false, Type = ValueType.Error, Error = "#ERROR" };
-                        
-                        return new EvaluationResult { Success = true, Type = ValueType.Number, NumberValue = (int)left.NumberValue % (int)right.NumberValue };
-                    }
-                    
-                    if (i >= 3 && expr.Substring(i - 3, 4) == " div")
-                    {
-                        var left = EvaluateArithmetic(expr.Substring(0, i - 3).Trim(), cellValues);
-                        var right = EvaluateArithmetic(expr.Substring(i + 1).Trim(), cellValues);
-                        
-                        if (!left.Success) return left;
-                        if (!right.Success) return right;
-                        
-                        if (left.Type != ValueType.Number || right.Type != ValueType.Number)
-                            return new EvaluationResult { Success = false, Type = ValueType.Error, Error = "#ERROR" };
-                        
-                        if (Math.Abs(right.NumberValue) < 0.0001)
-                            return new EvaluationResult { Success = false, Type = ValueType.Error, Error = "#ERROR" };
-                        
-                        return new EvaluationResult { Success = true, Type = ValueType.Number, NumberValue = (int)left.NumberValue / (int)right.NumberValue };
-                    }
-                }
-            }
-
-            // Дужки
-            if (expr.StartsWith("(") && expr.EndsWith(")"))
-            {
-                return EvaluateArithmetic(expr.Substring(1, expr.Length - 2).Trim(), cellValues);
-            }
-
-            if (Regex.IsMatch(expr, @"^[A-Z]+\d+$"))
-            {
-                if (!cellValues.ContainsKey(expr))
-                    return new EvaluationResult { Success = false, Type = ValueType.Error, Error = "#REF" };
-                
-                string cellValue = cellValues[expr];
-                
-                if (string.IsNullOrWhiteSpace(cellValue))
-                    return new EvaluationResult { Success = true, Type = ValueType.Number, NumberValue = 0 };
-                
-                if (cellValue.StartsWith("="))
-                    return Evaluate(cellValue, cellValues);
-                
-                if (double.TryParse(cellValue, out double num))
-                    return new EvaluationResult { Success = true, Type = ValueType.Number, NumberValue = num };
-                
+            var formula = FormulaCompiler.GetOrCompile(expression);
+            if (formula == null)
                 return new EvaluationResult { Success = false, Type = ValueType.Error, Error = "#ERROR" };
-            }
-
-            if (double.TryParse(expr, out double value))
-            {
-                return new EvaluationResult { Success = true, Type = ValueType.Number, NumberValue = value };
-            }
 
-            return new EvaluationResult { Success = false, Type = ValueType.Error, Error = "#ERROR" };
+            long started = FormulaMetrics.Start();
+            var value = formula.Evaluate(cells);
+            FormulaMetrics.Stop(MetricPhase.Evaluate, started);
+            return value.ToResult();
         }
 
         public static bool DetectCycle(string cellName, Dictionary<string, string> allCells)
@@ -377,4 +100,53 @@ namespace TableManager.App.Controllers
             return false;
         }
     }
+
+    public class DictionaryCellSource : ICellValueSource
+    {
+        private readonly Func<string, string?> _getCellText;
+        private HashSet<string>? _evaluating;
+
+        public DictionaryCellSource(Dictionary<string, string> cellValues)
+            : this(name => cellValues.TryGetValue(name, out var value) ? value : null)
+        {
+        }
+
+        // Читає тексти напряму з джерела без копіювання у словник; null — клітинки немає
+        public DictionaryCellSource(Func<string, string?> getCellText)
+        {
+            _getCellText = getCellText;
+        }
+
+        public FormulaValue GetCellValue(CellAddress address)
+        {
+            string name = address.ToString();
+
+            var cellValue = _getCellText(name);
+            if (cellValue == null)
+                return FormulaValue.RefError;
+
+            if (string.IsNullOrWhiteSpace(cellValue))
+                return FormulaValue.Zero;
+
+            if (cellValue.StartsWith("="))
+            {
+                var formula = FormulaCompiler.GetOrCompile(cellValue, address);
+                if (formula == null)
+                    return FormulaValue.GeneralError;
+
+                _evaluating ??= new HashSet<string>();
+                if (!_evaluating.Add(name))
+                    return FormulaValue.CycleError;
+
+                var value = formula.Evaluate(this, address);
+                _evaluating.Remove(name);
+                return value;
+            }
+
+            if (FormulaValue.TryParseNumber(cellValue, out double number))
+                return FormulaValue.FromNumber(number);
+
+            return FormulaValue.GeneralError;
+        }
+    }
 }
\ No newline at end of file
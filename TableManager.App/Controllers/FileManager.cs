@@ -11,13 +11,7 @@ namespace TableManager.App.Controllers
     {
         public void SaveTableToFile(string path, ObservableCollection<RowViewModel> rows)
         {
-            using var writer = new StreamWriter(path);
-
-            foreach (var row in rows)
-            {
-                var values = row.Cells.Select(c => c.Value ?? "");
-                writer.WriteLine(string.Join(",", values));
-            }
+            CsvSheetWriter.Save(path, rows.Select(row => row.Cells.Select(c => (string?)c.Value)));
         }
 
         public (List<string> headers,
@@ -68,6 +62,20 @@ namespace TableManager.App.Controllers
             return (columnHeaders, tableRows, cellMap);
         }
 
+        // Для дуже великих файлів: значення одразу в некеровану пам'ять, без CellViewModel
+        public NativeSheetStore? LoadSheetFromFile(string path)
+        {
+            if (!File.Exists(path))
+                return null;
+
+            return CsvSheetLoader.Load(path);
+        }
+
+        public void SaveSheetToFile(string path, NativeSheetStore store)
+        {
+            CsvSheetWriter.Save(path, store);
+        }
+
         public void DeleteFileIfExists(string? path)
         {
             if (string.IsNullOrEmpty(path))
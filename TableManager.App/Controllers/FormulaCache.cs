@@ -0,0 +1,319 @@
+using System;
+using System.Collections.Concurrent;
+using System.Collections.Generic;
+using System.Threading;
+
+namespace TableManager.App.Controllers
+{
+    // Обмежений кеш "текст формули -> скомпільована формула" з витісненням W-TinyLFU:
+    // нові записи потрапляють у невелике LRU-вікно, а до основної SLRU-частини
+    // (probation + protected) допускаються лише тоді, коли за оцінкою частоти
+    // вони популярніші за кандидата на витіснення. Так одноразові формули не
+    // вимивають з кешу ті, що повторюються по всьому стовпцю.
+    public sealed class FormulaCache
+    {
+        private enum Region : byte
+        {
+            Window,
+            Probation,
+            Protected
+        }
+
+        private sealed class Entry
+        {
+            public Entry(string key, CompiledFormula? value, long weight)
+            {
+                Key = key;
+                Value = value;
+                Weight = weight;
+                Node = new LinkedListNode<Entry>(this);
+            }
+
+            public string Key { get; }
+            public CompiledFormula? Value { get; }
+            public long Weight { get; }
+            public LinkedListNode<Entry> Node { get; }
+            public Region Region { get; set; }
+        }
+
+        private readonly ConcurrentDictionary<string, Entry> _entries = new();
+        private readonly object _lock = new();
+        private readonly LinkedList<Entry> _window = new();
+        private readonly LinkedList<Entry> _probation = new();
+        private readonly LinkedList<Entry> _protected = new();
+        private readonly FrequencySketch _sketch;
+
+        private readonly int _windowCapacity;
+        private readonly int _protectedCapacity;
+        private long _weight;
+
+        // Попадання рахуються з усіх потоків перерахунку, тож лічильники рознесені
+        private readonly StripedCounter _hits = new StripedCounter();
+        private readonly StripedCounter _misses = new StripedCounter();
+        private readonly StripedCounter _evictions = new StripedCounter();
+
+        public FormulaCache(int maxEntries = 100_000, long maxWeight = 64L * 1024 * 1024)
+        {
+            if (maxEntries < 1)
+                throw new ArgumentOutOfRangeException(nameof(maxEntries));
+            if (maxWeight < 1)
+                throw new ArgumentOutOfRangeException(nameof(maxWeight));
+
+            MaxEntries = maxEntries;
+            MaxWeight = maxWeight;
+
+            // Пропорції з W-TinyLFU: 1% вікно, 80% основної частини — protected
+            _windowCapacity = Math.Max(1, maxEntries / 100);
+            _protectedCapacity = (int)((maxEntries - _windowCapacity) * 0.8);
+            _sketch = new FrequencySketch(maxEntries);
+        }
+
+        public int MaxEntries { get; }
+        // Приблизний обсяг пам'яті в байтах, оцінений через EstimateWeight
+        public long MaxWeight { get; }
+
+        public int Count => _entries.Count;
+        public long Weight => Interlocked.Read(ref _weight);
+        public long Hits => _hits.Sum;
+        public long Misses => _misses.Sum;
+        public long Evictions => _evictions.Sum;
+
+        public CompiledFormula? GetOrAdd(string key, Func<string, CompiledFormula?> factory)
+        {
+            return GetOrAdd(key, static (k, f) => f(k), factory);
+        }
+
+        // Варіант зі станом, щоб на шляху попадання не створювати замикання
+        public CompiledFormula? GetOrAdd<TState>(string key, Func<string, TState, CompiledFormula?> factory, TState state)
+        {
+            if (_entries.TryGetValue(key, out var entry))
+            {
+                _hits.Increment();
+
+                // Оновлення порядку можна пропустити під конкуренцією: кеш залишиться коректним,
+                // лише трохи менш точним, а читачі не чекатимуть один на одного
+                if (Monitor.TryEnter(_lock))
+                {
+                    try
+                    {
+                        OnHit(entry);
+                    }
+                    finally
+                    {
+                        Monitor.Exit(_lock);
+                    }
+                }
+                return entry.Value;
+            }
+
+            _misses.Increment();
+            var value = factory(key, state);
+            var created = new Entry(key, value, EstimateWeight(key));
+
+            lock (_lock)
+            {
+                _sketch.Increment(key);
+
+                if (_entries.TryGetValue(key, out var existing))
+                    return existing.Value;
+
+                _entries[key] = created;
+                created.Region = Region.Window;
+                _window.AddLast(created.Node);
+                Interlocked.Add(ref _weight, created.Weight);
+
+                EvictIfNeeded();
+            }
+
+            return value;
+        }
+
+        public bool TryGet(string key, out CompiledFormula? value)
+        {
+            if (_entries.TryGetValue(key, out var entry))
+            {
+                value = entry.Value;
+                return true;
+            }
+
+            value = null;
+            return false;
+        }
+
+        public void Clear()
+        {
+            lock (_lock)
+            {
+                _entries.Clear();
+                _window.Clear();
+                _probation.Clear();
+                _protected.Clear();
+                _sketch.Clear();
+                Interlocked.Exchange(ref _weight, 0);
+            }
+        }
+
+        // Текст формули плюс дерево вузлів, яке зазвичай не більше за кількість символів
+        public static long EstimateWeight(string key) => 96 + key.Length * 24L;
+
+        private void OnHit(Entry entry)
+        {
+            _sketch.Increment(entry.Key);
+
+            // Запис могли витіснити між пошуком і захопленням блокування
+            if (entry.Node.List == null)
+                return;
+
+            switch (entry.Region)
+            {
+                case Region.Window:
+                    _window.Remove(entry.Node);
+                    _window.AddLast(entry.Node);
+                    break;
+                case Region.Probation:
+                    _probation.Remove(entry.Node);
+                    entry.Region = Region.Protected;
+                    _protected.AddLast(entry.Node);
+                    DemoteProtected();
+                    break;
+                case Region.Protected:
+                    _protected.Remove(entry.Node);
+                    _protected.AddLast(entry.Node);
+                    break;
+            }
+        }
+
+        private void DemoteProtected()
+        {
+            while (_protected.Count > _protectedCapacity && _protected.First != null)
+            {
+                var demoted = _protected.First.Value;
+                _protected.RemoveFirst();
+                demoted.Region = Region.Probation;
+                _probation.AddLast(demoted.Node);
+            }
+        }
+
+        private void EvictIfNeeded()
+        {
+            // Надлишок вікна переходить до основної частини, якщо виграє за частотою
+            while (_window.Count > _windowCapacity && _window.First != null)
+            {
+                var candidate = _window.First.Value;
+                _window.RemoveFirst();
+
+                if (_entries.Count <= MaxEntries)
+                {
+                    candidate.Region = Region.Probation;
+                    _probation.AddLast(candidate.Node);
+                    continue;
+                }
+
+                var victim = _probation.First?.Value ?? _protected.First?.Value;
+                if (victim == null || _sketch.Estimate(candidate.Key) > _sketch.Estimate(victim.Key))
+                {
+                    candidate.Region = Region.Probation;
+                    _probation.AddLast(candidate.Node);
+                    if (victim != null)
+                        Evict(victim);
+                }
+                else
+                {
+                    Evict(candidate);
+                }
+            }
+
+            while ((_entries.Count > MaxEntries || Weight > MaxWeight) && _entries.Count > 0)
+            {
+                var victim = _probation.First?.Value ?? _protected.First?.Value ?? _window.First?.Value;
+                if (victim == null)
+                    break;
+                Evict(victim);
+            }
+        }
+
+        private void Evict(Entry entry)
+        {
+            entry.Node.List?.Remove(entry.Node);
+            _entries.TryRemove(entry.Key, out _);
+            Interlocked.Add(ref _weight, -entry.Weight);
+            _evictions.Increment();
+        }
+
+        // Count-min sketch: лічильник займає цілий байт, але обмежений 15, тобто діапазоном
+        // 4 бітів (пакування по два в байт не варте зайвих зсувів для такого розміру).
+        // Після 10 * ширина додавань усі лічильники діляться навпіл, щоб давня популярність
+        // поступово старіла.
+        //
+        // Сам скетч не синхронізований: усі виклики йдуть під _lock кешу, а з OnHit — лише
+        // коли Monitor.TryEnter вдався, тож _additions і лічильники не змінюються з кількох потоків.
+        private sealed class FrequencySketch
+        {
+            private const int Depth = 4;
+            private static readonly uint[] Seeds = { 0x9E3779B1u, 0x85EBCA77u, 0xC2B2AE3Du, 0x27D4EB2Fu };
+
+            private readonly byte[] _counters;
+            private readonly int _mask;
+            private readonly int _sampleSize;
+            private int _additions;
+
+            public FrequencySketch(int maxEntries)
+            {
+                int width = 16;
+                while (width < maxEntries && width < (1 << 24))
+                    width <<= 1;
+
+                _counters = new byte[width * Depth];
+                _mask = width - 1;
+                _sampleSize = width * 10;
+            }
+
+            public void Increment(string key)
+            {
+                int hash = key.GetHashCode();
+                bool added = false;
+                for (int i = 0; i < Depth; i++)
+                {
+                    int index = IndexOf(hash, i);
+                    if (_counters[index] < 15)
+                    {
+                        _counters[index]++;
+                        added = true;
+                    }
+                }
+
+                if (added && ++_additions >= _sampleSize)
+                    Halve();
+            }
+
+            public int Estimate(string key)
+            {
+                int hash = key.GetHashCode();
+                int min = 15;
+                for (int i = 0; i < Depth; i++)
+                    min = Math.Min(min, _counters[IndexOf(hash, i)]);
+                return min;
+            }
+
+            public void Clear()
+            {
+                Array.Clear(_counters);
+                _additions = 0;
+            }
+
+            private int IndexOf(int hash, int row)
+            {
+                uint h = unchecked((uint)hash * Seeds[row]);
+                h ^= h >> 16;
+                return row * (_mask + 1) + (int)(h & (uint)_mask);
+            }
+
+            private void Halve()
+            {
+                for (int i = 0; i < _counters.Length; i++)
+                    _counters[i] >>= 1;
+                _additions /= 2;
+            }
+        }
+    }
+}
@@ -0,0 +1,141 @@
+using System;
+using System.Collections.Generic;
+using System.Linq.Expressions;
+using System.Reflection;
+
+namespace TableManager.App.Controllers
+{
+    // Лічильники багаторівневого виконання формул: спочатку інтерпретатор,
+    // після CompileThreshold обчислень — згенерований делегат, який компілюється у фоновій задачі.
+    public static class FormulaTiering
+    {
+        // Кожне обчислення формули проходить через один із цих лічильників, тож вони рознесені
+        private static readonly StripedCounter _interpretedEvaluations = new StripedCounter();
+        private static readonly StripedCounter _nativeEvaluations = new StripedCounter();
+        private static readonly StripedCounter _nativeFallbacks = new StripedCounter();
+        private static readonly StripedCounter _compilations = new StripedCounter();
+
+        public static bool Enabled { get; set; } = true;
+        public static int CompileThreshold { get; set; } = 32;
+
+        public static long InterpretedEvaluations => _interpretedEvaluations.Sum;
+        public static long NativeEvaluations => _nativeEvaluations.Sum;
+        // Скільки разів згенерований код повернув NaN і довелося перейти в інтерпретатор
+        public static long NativeFallbacks => _nativeFallbacks.Sum;
+        public static long Compilations => _compilations.Sum;
+
+        internal static void RecordInterpreted() => _interpretedEvaluations.Increment();
+        internal static void RecordNative() => _nativeEvaluations.Increment();
+        internal static void RecordFallback() => _nativeFallbacks.Increment();
+        internal static void RecordCompilation() => _compilations.Increment();
+
+        public static void Reset()
+        {
+            _interpretedEvaluations.Reset();
+            _nativeEvaluations.Reset();
+            _nativeFallbacks.Reset();
+            _compilations.Reset();
+        }
+    }
+
+    // Перетворює дерево вузлів на делегат double eval(double[] cells), де кожне посилання
+    // на клітинку — константний індекс у масиві CompiledFormula.References.
+    // Помилки (ділення на нуль тощо) кодуються як NaN; тоді результат перераховує інтерпретатор.
+    public static class FormulaCodeGenerator
+    {
+        private static readonly MethodInfo DivideMethod = GetHelper(nameof(Divide));
+        private static readonly MethodInfo ModMethod = GetHelper(nameof(Mod));
+        private static readonly MethodInfo IntegerDivideMethod = GetHelper(nameof(IntegerDivide));
+        private static readonly MethodInfo CompareMethod = GetHelper(nameof(Compare));
+
+        public static Func<double[], double> Generate(CompiledFormula formula)
+        {
+            var cells = Expression.Parameter(typeof(double[]), "cells");
+            var body = Emit(formula.Root, cells, formula.References);
+            return Expression.Lambda<Func<double[], double>>(body, cells).Compile();
+        }
+
+        private static Expression Emit(FormulaNode node, ParameterExpression cells, IReadOnlyList<CellAddress> references)
+        {
+            switch (node)
+            {
+                case NumberNode number:
+                    return Expression.Constant(number.Value);
+
+                case CellReferenceNode reference:
+                    int index = IndexOf(references, reference.Address);
+                    if (index < 0)
+                        return Expression.Constant(double.NaN);
+                    return Expression.ArrayIndex(cells, Expression.Constant(index));
+
+                case IncDecNode incDec:
+                    return Expression.Add(Emit(incDec.Operand, cells, references), Expression.Constant(incDec.Delta));
+
+                case BinaryNode binary:
+                    var left = Emit(binary.Left, cells, references);
+                    var right = Emit(binary.Right, cells, references);
+                    return binary.Operator switch
+                    {
+                        FormulaOperator.Add => Expression.Add(left, right),
+                        FormulaOperator.Subtract => Expression.Subtract(left, right),
+                        FormulaOperator.Multiply => Expression.Multiply(left, right),
+                        FormulaOperator.Divide => Expression.Call(DivideMethod, left, right),
+                        FormulaOperator.Mod => Expression.Call(ModMethod, left, right),
+                        FormulaOperator.Div => Expression.Call(IntegerDivideMethod, left, right),
+                        _ => throw new NotSupportedException(binary.Operator.ToString())
+                    };
+
+                case ComparisonNode comparison:
+                    return Expression.Call(
+                        CompareMethod,
+                        Expression.Constant(comparison.Operator),
+                        Emit(comparison.Left, cells, references),
+                        Emit(comparison.Right, cells, references));
+
+                default:
+                    throw new NotSupportedException(node.GetType().Name);
+            }
+        }
+
+        private static int IndexOf(IReadOnlyList<CellAddress> references, CellAddress address)
+        {
+            for (int i = 0; i < references.Count; i++)
+            {
+                if (references[i] == address)
+                    return i;
+            }
+            return -1;
+        }
+
+        private static MethodInfo GetHelper(string name)
+            => typeof(FormulaCodeGenerator).GetMethod(name, BindingFlags.Public | BindingFlags.Static)!;
+
+        public static double Divide(double left, double right)
+            => BinaryNode.Apply(FormulaOperator.Divide, left, right, out double result) ? result : double.NaN;
+
+        // (int)NaN не дає NaN, тому помилку з операндів треба передати явно
+        public static double Mod(double left, double right)
+        {
+            if (double.IsNaN(left) || double.IsNaN(right))
+                return double.NaN;
+
+            return BinaryNode.Apply(FormulaOperator.Mod, left, right, out double result) ? result : double.NaN;
+        }
+
+        public static double IntegerDivide(double left, double right)
+        {
+            if (double.IsNaN(left) || double.IsNaN(right))
+                return double.NaN;
+
+            return BinaryNode.Apply(FormulaOperator.Div, left, right, out double result) ? result : double.NaN;
+        }
+
+        public static double Compare(ComparisonOperator op, double left, double right)
+        {
+            if (double.IsNaN(left) || double.IsNaN(right))
+                return double.NaN;
+
+            return ComparisonNode.Compare(op, left, right) ? 1.0 : 0.0;
+        }
+    }
+}
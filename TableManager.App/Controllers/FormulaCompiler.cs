@@ -0,0 +1,413 @@
+using System;
+using System.Collections.Generic;
+using System.Globalization;
+using System.Text;
+using System.Threading;
+using System.Threading.Tasks;
+using Antlr4.Runtime;
+using Antlr4.Runtime.Tree;
+
+namespace TableManager.App.Controllers
+{
+    public sealed class CompiledFormula
+    {
+        [ThreadStatic] private static double[][]? _inputBuffers;
+        [ThreadStatic] private static int _inputDepth;
+
+        private Func<double[], double>? _native;
+        private Task? _promotion;
+        private int _evaluations;
+
+        public CompiledFormula(string text, FormulaNode root, IReadOnlyList<CellAddress> references, bool isRelative = false)
+        {
+            Text = text;
+            Root = root;
+            References = references;
+            IsRelative = isRelative;
+        }
+
+        public string Text { get; }
+        public FormulaNode Root { get; }
+        // Унікальні посилання у порядку появи у формулі; у шаблоні — зсуви від клітинки-господаря
+        public IReadOnlyList<CellAddress> References { get; }
+        // Шаблон спільний для всіх клітинок зі структурно однаковою формулою (R1C1)
+        public bool IsRelative { get; }
+
+        public bool IsNative => _native != null;
+        public int EvaluationCount => Volatile.Read(ref _evaluations);
+        // Фонова компіляція, запущена після CompileThreshold обчислень; null — ще не запускалася
+        public Task? Promotion => Volatile.Read(ref _promotion);
+
+        // Посилання в абсолютних адресах клітинки host; створює новий масив для шаблону,
+        // тож у гарячих шляхах краще брати GetReference по індексу
+        public IReadOnlyList<CellAddress> GetReferences(CellAddress host)
+        {
+            if (!IsRelative)
+                return References;
+
+            var resolved = new CellAddress[References.Count];
+            for (int i = 0; i < resolved.Length; i++)
+                resolved[i] = References[i].Offset(host.Row, host.Column);
+            return resolved;
+        }
+
+        public CellAddress GetReference(int index, CellAddress host)
+        {
+            return IsRelative ? References[index].Offset(host.Row, host.Column) : References[index];
+        }
+
+        public FormulaValue Evaluate(ICellValueSource cells)
+        {
+            return Evaluate(cells, default);
+        }
+
+        public FormulaValue Evaluate(ICellValueSource cells, CellAddress host)
+        {
+            var native = _native;
+            if (native != null)
+                return EvaluateNative(native, cells, host);
+
+            // Expression.Compile займає мілісекунди, а Evaluate часто викликається з UI-потоку,
+            // тож делегат будується у фоні; до його готовності формула лишається в інтерпретаторі
+            if (FormulaTiering.Enabled && Interlocked.Increment(ref _evaluations) == FormulaTiering.CompileThreshold)
+                Volatile.Write(ref _promotion, Task.Run(PromoteToNative));
+
+            FormulaTiering.RecordInterpreted();
+            return Root.Evaluate(cells, host);
+        }
+
+        public void PromoteToNative()
+        {
+            if (_native != null)
+                return;
+
+            var native = FormulaCodeGenerator.Generate(this);
+            if (Interlocked.CompareExchange(ref _native, native, null) == null)
+                FormulaTiering.RecordCompilation();
+        }
+
+        private FormulaValue EvaluateNative(Func<double[], double> native, ICellValueSource cells, CellAddress host)
+        {
+            // GetCellValue може рекурсивно обчислювати інші формули, тому кожен рівень
+            // вкладеності бере свій буфер
+            var buffers = _inputBuffers ??= new double[16][];
+            int depth = _inputDepth;
+            if (depth >= buffers.Length)
+            {
+                Array.Resize(ref buffers, buffers.Length * 2);
+                _inputBuffers = buffers;
+            }
+
+            var inputs = buffers[depth];
+            if (inputs == null || inputs.Length < References.Count)
+                inputs = buffers[depth] = new double[Math.Max(References.Count, 8)];
+
+            double result;
+            _inputDepth = depth + 1;
+            try
+            {
+                for (int i = 0; i < References.Count; i++)
+                {
+                    var address = GetReference(i, host);
+                    var value = address.IsValid ? cells.GetCellValue(address) : FormulaValue.RefError;
+                    if (!value.IsNumber)
+                        return EvaluateFallback(cells, host);
+                    inputs[i] = value.Number;
+                }
+
+                result = native(inputs);
+            }
+            finally
+            {
+                _inputDepth = depth;
+            }
+
+            if (double.IsNaN(result))
+                return EvaluateFallback(cells, host);
+
+            FormulaTiering.RecordNative();
+            return Root is ComparisonNode ? FormulaValue.FromBool(result != 0) : FormulaValue.FromNumber(result);
+        }
+
+        private FormulaValue EvaluateFallback(ICellValueSource cells, CellAddress host)
+        {
+            FormulaTiering.RecordFallback();
+            return Root.Evaluate(cells, host);
+        }
+    }
+
+    // Обходить дерево TableExpressionParser один раз і будує з нього дерево типізованих вузлів.
+    public class FormulaCompiler : TableExpressionBaseVisitor<FormulaNode>
+    {
+        private static FormulaCache _cache = new FormulaCache();
+        private static FormulaCache _templates = new FormulaCache();
+
+        [ThreadStatic] private static FormulaLexer? _canonicalLexer;
+        [ThreadStatic] private static StringBuilder? _canonicalBuilder;
+
+        private readonly List<CellAddress> _references = new();
+        private readonly CellAddress _host;
+        private readonly bool _relative;
+
+        public FormulaCompiler()
+        {
+        }
+
+        private FormulaCompiler(CellAddress host)
+        {
+            _host = host;
+            _relative = true;
+        }
+
+        // Спільний кеш скомпільованих формул; невдалий розбір теж кешується (як null)
+        public static FormulaCache Cache => _cache;
+        // Шаблони за R1C1-ключем: =(A1+B1) у C1 і =(A2+B2) у C2 мають один шаблон
+        public static FormulaCache Templates => _templates;
+
+        public static void ConfigureCache(int maxEntries, long maxWeight)
+        {
+            _cache = new FormulaCache(maxEntries, maxWeight);
+            _templates = new FormulaCache(maxEntries, maxWeight);
+        }
+
+        public static CompiledFormula? GetOrCompile(string expression)
+        {
+            if (string.IsNullOrWhiteSpace(expression) || !expression.StartsWith("="))
+                return null;
+
+            return _cache.GetOrAdd(expression, Compile);
+        }
+
+        // Формула клітинки host. Якщо текст вдається звести до R1C1-ключа, повертається
+        // спільний шаблон; обчислювати його треба через Evaluate(cells, host).
+        public static CompiledFormula? GetOrCompile(string expression, CellAddress host)
+        {
+            if (string.IsNullOrWhiteSpace(expression) || !expression.StartsWith("="))
+                return null;
+
+            if (!TryCanonicalize(expression, host, out var key))
+                return GetOrCompile(expression);
+
+            return _templates.GetOrAdd(key, static (k, source) => CompileTemplate(source.expression, source.host, k), (expression, host));
+        }
+
+        // Замінює кожне посилання на R[dr]C[dc] відносно host, решту тексту лишає як є.
+        // Формули з помилками лексера чи невалідними адресами не канонізуються.
+        public static bool TryCanonicalize(string expression, CellAddress host, out string key)
+        {
+            long started = FormulaMetrics.Start();
+            bool canonical = TryCanonicalizeCore(expression, host, out key);
+            FormulaMetrics.Stop(MetricPhase.Lex, started);
+            return canonical;
+        }
+
+        private static bool TryCanonicalizeCore(string expression, CellAddress host, out string key)
+        {
+            key = expression;
+
+            var lexer = _canonicalLexer ??= new FormulaLexer();
+            var builder = _canonicalBuilder ??= new StringBuilder();
+            lexer.Reset(expression);
+            builder.Clear();
+
+            int copied = 0;
+            while (true)
+            {
+                int type = lexer.NextTokenType(out int start, out int length);
+                if (type == TokenConstants.EOF)
+                    break;
+                if (type != TableExpressionLexer.CELL_REF)
+                    continue;
+
+                if (!CellAddress.TryParse(expression.AsSpan(start, length), out var address) || !address.IsValid)
+                    return false;
+
+                builder.Append(expression, copied, start - copied)
+                    .Append("R[").Append(address.Row - host.Row)
+                    .Append("]C[").Append(address.Column - host.Column).Append(']');
+                copied = start + length;
+            }
+
+            if (lexer.HasErrors)
+                return false;
+
+            builder.Append(expression, copied, expression.Length - copied);
+            key = builder.ToString();
+            return true;
+        }
+
+        private static CompiledFormula? CompileTemplate(string expression, CellAddress host, string key)
+        {
+            if (!Parser.TryParseFormula(expression, out var tree) || tree == null)
+                return null;
+
+            long started = FormulaMetrics.Start();
+            var compiler = new FormulaCompiler(host);
+            var root = FormulaSimplifier.Simplify(compiler.Visit(tree));
+            FormulaMetrics.Stop(MetricPhase.Compile, started);
+            return new CompiledFormula(key, root, compiler._references.ToArray(), isRelative: true);
+        }
+
+        public static CompiledFormula? Compile(string expression)
+        {
+            if (string.IsNullOrWhiteSpace(expression) || !expression.StartsWith("="))
+                return null;
+
+            if (!Parser.TryParseFormula(expression, out var tree) || tree == null)
+                return null;
+
+            return Compile(expression, tree);
+        }
+
+        public static CompiledFormula Compile(string expression, TableExpressionParser.FormulaContext tree)
+        {
+            long started = FormulaMetrics.Start();
+            var compiler = new FormulaCompiler();
+            var root = FormulaSimplifier.Simplify(compiler.Visit(tree));
+            FormulaMetrics.Stop(MetricPhase.Compile, started);
+            return new CompiledFormula(expression, root, compiler._references.ToArray());
+        }
+
+        public override FormulaNode VisitFormula(TableExpressionParser.FormulaContext context)
+            => Visit(context.expression());
+
+        public override FormulaNode VisitArithmeticExpression(TableExpressionParser.ArithmeticExpressionContext context)
+            => Visit(context.arithmeticExpr());
+
+        public override FormulaNode VisitComparisonExpression(TableExpressionParser.ComparisonExpressionContext context)
+            => Visit(context.comparisonExpr());
+
+        public override FormulaNode VisitAddSub(TableExpressionParser.AddSubContext context)
+            => CompileOperatorChain(context);
+
+        public override FormulaNode VisitMulDiv(TableExpressionParser.MulDivContext context)
+            => CompileOperatorChain(context);
+
+        public override FormulaNode VisitModDiv(TableExpressionParser.ModDivContext context)
+            => CompileOperatorChain(context);
+
+        public override FormulaNode VisitInc(TableExpressionParser.IncContext context)
+            => new IncDecNode(Visit(context.arithmeticExpr()), 1);
+
+        public override FormulaNode VisitDec(TableExpressionParser.DecContext context)
+            => new IncDecNode(Visit(context.arithmeticExpr()), -1);
+
+        public override FormulaNode VisitParenArithmetic(TableExpressionParser.ParenArithmeticContext context)
+            => Visit(context.arithmeticExpr());
+
+        public override FormulaNode VisitNumber(TableExpressionParser.NumberContext context)
+            => new NumberNode(double.Parse(context.NUMBER().GetText(), CultureInfo.InvariantCulture));
+
+        public override FormulaNode VisitCellReference(TableExpressionParser.CellReferenceContext context)
+        {
+            // Невалідна адреса (наприклад, A0) дасть #REF під час обчислення
+            if (!CellAddress.TryParse(context.CELL_REF().GetText(), out var address))
+                address = new CellAddress(-1, -1);
+
+            if (_relative && address.IsValid)
+                address = new CellAddress(address.Row - _host.Row, address.Column - _host.Column);
+            else if (!address.IsValid)
+                return new CellReferenceNode(address);
+
+            if (!_references.Contains(address))
+                _references.Add(address);
+
+            return new CellReferenceNode(address, _relative);
+        }
+
+        public override FormulaNode VisitLessThan(TableExpressionParser.LessThanContext context)
+            => new ComparisonNode(ComparisonOperator.LessThan, Visit(context.arithmeticExpr(0)), Visit(context.arithmeticExpr(1)));
+
+        public override FormulaNode VisitLessOrEqual(TableExpressionParser.LessOrEqualContext context)
+            => new ComparisonNode(ComparisonOperator.LessOrEqual, Visit(context.arithmeticExpr(0)), Visit(context.arithmeticExpr(1)));
+
+        public override FormulaNode VisitGreaterThan(TableExpressionParser.GreaterThanContext context)
+            => new ComparisonNode(ComparisonOperator.GreaterThan, Visit(context.arithmeticExpr(0)), Visit(context.arithmeticExpr(1)));
+
+        public override FormulaNode VisitGreaterOrEqual(TableExpressionParser.GreaterOrEqualContext context)
+            => new ComparisonNode(ComparisonOperator.GreaterOrEqual, Visit(context.arithmeticExpr(0)), Visit(context.arithmeticExpr(1)));
+
+        public override FormulaNode VisitEqual(TableExpressionParser.EqualContext context)
+            => new ComparisonNode(ComparisonOperator.Equal, Visit(context.arithmeticExpr(0)), Visit(context.arithmeticExpr(1)));
+
+        public override FormulaNode VisitNotEqual(TableExpressionParser.NotEqualContext context)
+            => new ComparisonNode(ComparisonOperator.NotEqual, Visit(context.arithmeticExpr(0)), Visit(context.arithmeticExpr(1)));
+
+        // У граматиці AddSub стоїть першим, тож ANTLR дає йому найвищий пріоритет.
+        // Тому ланцюжок операторів розгортаємо і збираємо заново: * / mod div зв'язують
+        // сильніше за + -, усі ліво-асоціативні.
+        private FormulaNode CompileOperatorChain(TableExpressionParser.ArithmeticExprContext context)
+        {
+            var operands = new List<FormulaNode>();
+            var operators = new List<FormulaOperator>();
+            Flatten(context, operands, operators);
+
+            var terms = new List<FormulaNode>();
+            var termOperators = new List<FormulaOperator>();
+            var current = operands[0];
+
+            for (int i = 0; i < operators.Count; i++)
+            {
+                if (IsAdditive(operators[i]))
+                {
+                    terms.Add(current);
+                    termOperators.Add(operators[i]);
+                    current = operands[i + 1];
+                }
+                else
+                {
+                    current = new BinaryNode(operators[i], current, operands[i + 1]);
+                }
+            }
+            terms.Add(current);
+
+            var result = terms[0];
+            for (int i = 0; i < termOperators.Count; i++)
+                result = new BinaryNode(termOperators[i], result, terms[i + 1]);
+
+            return result;
+        }
+
+        private void Flatten(TableExpressionParser.ArithmeticExprContext context, List<FormulaNode> operands, List<FormulaOperator> operators)
+        {
+            switch (context)
+            {
+                case TableExpressionParser.AddSubContext addSub:
+                    Flatten(addSub.arithmeticExpr(0), operands, operators);
+                    operators.Add(ToOperator(addSub.GetChild(1)));
+                    Flatten(addSub.arithmeticExpr(1), operands, operators);
+                    break;
+                case TableExpressionParser.MulDivContext mulDiv:
+                    Flatten(mulDiv.arithmeticExpr(0), operands, operators);
+                    operators.Add(ToOperator(mulDiv.GetChild(1)));
+                    Flatten(mulDiv.arithmeticExpr(1), operands, operators);
+                    break;
+                case TableExpressionParser.ModDivContext modDiv:
+                    Flatten(modDiv.arithmeticExpr(0), operands, operators);
+                    operators.Add(ToOperator(modDiv.GetChild(1)));
+                    Flatten(modDiv.arithmeticExpr(1), operands, operators);
+                    break;
+                default:
+                    operands.Add(Visit(context));
+                    break;
+            }
+        }
+
+        private static FormulaOperator ToOperator(IParseTree operatorNode)
+        {
+            return operatorNode.GetText() switch
+            {
+                "+" => FormulaOperator.Add,
+                "-" => FormulaOperator.Subtract,
+                "*" => FormulaOperator.Multiply,
+                "/" => FormulaOperator.Divide,
+                " mod " => FormulaOperator.Mod,
+                " div " => FormulaOperator.Div,
+                var text => throw new InvalidOperationException($"Невідомий оператор '{text}'")
+            };
+        }
+
+        private static bool IsAdditive(FormulaOperator op)
+            => op == FormulaOperator.Add || op == FormulaOperator.Subtract;
+    }
+}
@@ -0,0 +1,256 @@
+using System;
+using Antlr4.Runtime;
+
+namespace TableManager.App.Controllers
+{
+    // Ручний лексер для словника TableExpression. Дає ті самі типи токенів, позиції, рядки
+    // й помилки, що й згенерований TableExpressionLexer, але без ATN-симулятора: один прохід
+    // по рядку без проміжних алокацій, нові об'єкти — лише самі токени. AntlrInputStream
+    // створюється лише тоді, коли його просять токени або парсер: NextTokenType його не читає.
+    //
+    // Правила ANTLR, які тут відтворено:
+    // - найдовший збіг, а при однаковій довжині — правило, оголошене раніше;
+    // - якщо довший варіант обірвався, лексер повертається до останнього прийнятого токена
+    //   (" mo" -> WS, "1." -> NUMBER);
+    // - якщо не прийнято нічого, пропускаються прочитані символи плюс символ, на якому
+    //   сталася помилка (якщо це не кінець рядка).
+    public sealed class FormulaLexer : ITokenSource
+    {
+        private string _text = "";
+        private ICharStream? _input;
+        private Tuple<ITokenSource, ICharStream>? _source;
+        private int _position;
+        private int _line = 1;
+        private int _column;
+
+        public FormulaLexer()
+        {
+        }
+
+        public FormulaLexer(string text)
+        {
+            Reset(text);
+        }
+
+        public int ErrorCount { get; private set; }
+        public bool HasErrors => ErrorCount > 0;
+        // Індекс першого символу, який лексер не зміг розпізнати, або -1
+        public int FirstErrorIndex { get; private set; } = -1;
+
+        public int Line => _line;
+        public int Column => _column;
+        public ICharStream InputStream => _input ??= new AntlrInputStream(_text);
+        public string SourceName => InputStream.SourceName;
+        public ITokenFactory TokenFactory { get; set; } = CommonTokenFactory.Default;
+
+        public void Reset(string text)
+        {
+            _text = text;
+            _input = null;
+            _source = null;
+            _position = 0;
+            _line = 1;
+            _column = 0;
+            ErrorCount = 0;
+            FirstErrorIndex = -1;
+        }
+
+        // Продовжує лексування з position — початку токена з попереднього проходу. Лексер
+        // не має станів, тож з межі токена він дає ті самі токени, що й з початку рядка.
+        public void Reset(string text, int position)
+        {
+            Reset(text);
+            Advance(position);
+        }
+
+        public IToken NextToken()
+        {
+            int type = NextTokenType(out int start, out int length);
+            _source ??= Tuple.Create<ITokenSource, ICharStream>(this, InputStream);
+
+            // Токени не містять переносів рядка, тож початок токена — у тому самому рядку
+            return TokenFactory.Create(_source, type, null, TokenConstants.DefaultChannel, start, start + length - 1, _line, _column - length);
+        }
+
+        // Те саме, що NextToken, але без створення об'єкта токена: повертає тип і межі.
+        // Пробіли пропускаються, помилки рахуються в ErrorCount.
+        public int NextTokenType(out int start, out int length)
+        {
+            while (true)
+            {
+                int type = NextRawTokenType(out start, out length);
+                if (type != TokenConstants.InvalidType && type != TableExpressionLexer.WS)
+                    return type;
+            }
+        }
+
+        // Наступний фрагмент рядка як є: пробіли — WS, нерозпізнані символи — InvalidType
+        public int NextRawTokenType(out int start, out int length)
+        {
+            start = _position;
+
+            if (start >= _text.Length)
+            {
+                length = 0;
+                return TokenConstants.EOF;
+            }
+
+            int type = Match(start, out length);
+            Advance(start + length);
+
+            if (type == TokenConstants.InvalidType && ErrorCount++ == 0)
+                FirstErrorIndex = start;
+
+            return type;
+        }
+
+        // Повертає тип токена і його довжину, або InvalidType і кількість символів, які треба пропустити
+        private int Match(int start, out int length)
+        {
+            char c = _text[start];
+            length = 1;
+
+            switch (c)
+            {
+                case '=': return TableExpressionLexer.T__0;
+                case '(': return TableExpressionLexer.T__1;
+                case ')': return TableExpressionLexer.T__2;
+                case '+': return TableExpressionLexer.T__3;
+                case '-': return TableExpressionLexer.T__4;
+                case '*': return TableExpressionLexer.T__5;
+                case '/': return TableExpressionLexer.T__6;
+
+                case '<':
+                    if (At(start + 1) == '=') { length = 2; return TableExpressionLexer.T__11; }
+                    if (At(start + 1) == '>') { length = 2; return TableExpressionLexer.T__13; }
+                    return TableExpressionLexer.T__14;
+
+                case '>':
+                    if (At(start + 1) == '=') { length = 2; return TableExpressionLexer.T__12; }
+                    return TableExpressionLexer.T__15;
+
+                case 'i': return MatchLiteral(start, "inc", TableExpressionLexer.T__9, out length);
+                case 'd': return MatchLiteral(start, "dec", TableExpressionLexer.T__10, out length);
+
+                case ' ':
+                    if (string.CompareOrdinal(_text, start, " mod ", 0, 5) == 0) { length = 5; return TableExpressionLexer.T__7; }
+                    if (string.CompareOrdinal(_text, start, " div ", 0, 5) == 0) { length = 5; return TableExpressionLexer.T__8; }
+                    return MatchWhitespace(start, out length);
+
+                case '\t':
+                case '\r':
+                case '\n':
+                    return MatchWhitespace(start, out length);
+            }
+
+            if (IsDigit(c))
+                return MatchNumber(start, out length);
+
+            if (c >= 'A' && c <= 'Z')
+                return MatchCellReference(start, out length);
+
+            return TokenConstants.InvalidType;
+        }
+
+        private int MatchLiteral(int start, string literal, int type, out int length)
+        {
+            int matched = 0;
+            while (matched < literal.Length && At(start + matched) == literal[matched])
+                matched++;
+
+            if (matched == literal.Length)
+            {
+                length = matched;
+                return type;
+            }
+
+            length = FailedLength(start, matched);
+            return TokenConstants.InvalidType;
+        }
+
+        private int MatchWhitespace(int start, out int length)
+        {
+            int i = start + 1;
+            while (i < _text.Length && IsWhitespace(_text[i]))
+                i++;
+
+            length = i - start;
+            return TableExpressionLexer.WS;
+        }
+
+        private int MatchNumber(int start, out int length)
+        {
+            int i = start + 1;
+            while (IsDigit(At(i)))
+                i++;
+
+            // Дробова частина лише з цифрою після крапки, інакше повернення до цілої частини
+            if (At(i) == '.' && IsDigit(At(i + 1)))
+            {
+                i += 2;
+                while (IsDigit(At(i)))
+                    i++;
+            }
+
+            length = i - start;
+            return TableExpressionLexer.NUMBER;
+        }
+
+        private int MatchCellReference(int start, out int length)
+        {
+            int i = start + 1;
+            while (At(i) >= 'A' && At(i) <= 'Z')
+                i++;
+
+            if (!IsDigit(At(i)))
+            {
+                length = FailedLength(start, i - start);
+                return TokenConstants.InvalidType;
+            }
+
+            while (IsDigit(At(i)))
+                i++;
+
+            length = i - start;
+            return TableExpressionLexer.CELL_REF;
+        }
+
+        // Прочитані символи плюс символ, на якому зупинився автомат
+        private int FailedLength(int start, int consumed)
+        {
+            return start + consumed < _text.Length ? consumed + 1 : consumed;
+        }
+
+        private char At(int index)
+        {
+            return index < _text.Length ? _text[index] : '\0';
+        }
+
+        private void Advance(int end)
+        {
+            for (int i = _position; i < end; i++)
+            {
+                if (_text[i] == '\n')
+                {
+                    _line++;
+                    _column = 0;
+                }
+                else
+                {
+                    _column++;
+                }
+            }
+            _position = end;
+        }
+
+        private static bool IsDigit(char c) => c >= '0' && c <= '9';
+
+        private static bool IsWhitespace(char c) => c == ' ' || c == '\t' || c == '\r' || c == '\n';
+    }
+
+    // Сирий токен FormulaLexer: тип (зокрема WS і InvalidType) і межі в тексті
+    public readonly record struct FormulaToken(int Type, int Start, int Length)
+    {
+        public int End => Start + Length;
+    }
+}
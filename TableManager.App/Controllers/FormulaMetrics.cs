@@ -0,0 +1,323 @@
+using System;
+using System.Collections.Generic;
+using System.Diagnostics;
+using System.Diagnostics.Metrics;
+using System.Globalization;
+using System.IO;
+using System.Numerics;
+using System.Text;
+using System.Threading;
+
+namespace TableManager.App.Controllers
+{
+    public enum MetricPhase
+    {
+        Lex,
+        Parse,
+        Compile,
+        Evaluate,
+        CycleDetection,
+        Recalc
+    }
+
+    // Лічильник, рознесений по кількох комірках у різних кеш-лініях: потоки додають кожен
+    // у свою комірку й не б'ються за одну, а сума збирається лише під час читання.
+    public sealed class StripedCounter
+    {
+        // 8 long = 64 байти, окрема кеш-лінія на смугу
+        private const int Padding = 8;
+
+        private readonly long[] _cells;
+        private readonly int _mask;
+
+        public StripedCounter()
+        {
+            int stripes = (int)Math.Min(64, BitOperations.RoundUpToPowerOf2((uint)Environment.ProcessorCount));
+            _mask = stripes - 1;
+            _cells = new long[stripes * Padding];
+        }
+
+        public long Sum
+        {
+            get
+            {
+                long sum = 0;
+                for (int i = 0; i < _cells.Length; i += Padding)
+                    sum += Volatile.Read(ref _cells[i]);
+                return sum;
+            }
+        }
+
+        public void Add(long value)
+        {
+            Interlocked.Add(ref _cells[(Environment.CurrentManagedThreadId & _mask) * Padding], value);
+        }
+
+        public void Increment() => Add(1);
+
+        public void Reset()
+        {
+            for (int i = 0; i < _cells.Length; i += Padding)
+                Volatile.Write(ref _cells[i], 0);
+        }
+    }
+
+    // Гістограма затримок у стилі HDR: кошики логарифмічні за степенем двійки, і кожен
+    // степінь поділено на 16 лінійних підкошиків, тож похибка значення — не більше ~6%
+    // на всьому діапазоні від наносекунд до хвилин.
+    public sealed class LatencyHistogram
+    {
+        private const int SubBucketBits = 4;
+        private const int SubBuckets = 1 << SubBucketBits;
+        private const int BucketCount = SubBuckets + (63 - SubBucketBits) * SubBuckets;
+
+        private readonly long[] _counts = new long[BucketCount];
+        private readonly StripedCounter _count = new StripedCounter();
+        private readonly StripedCounter _total = new StripedCounter();
+        private long _max;
+
+        public long Count => _count.Sum;
+        public long Total => _total.Sum;
+        public long Max => Volatile.Read(ref _max);
+
+        public void Record(long value)
+        {
+            if (value < 0)
+                value = 0;
+
+            Interlocked.Increment(ref _counts[IndexOf(value)]);
+            _count.Increment();
+            _total.Add(value);
+
+            long max = Volatile.Read(ref _max);
+            while (value > max)
+            {
+                long seen = Interlocked.CompareExchange(ref _max, value, max);
+                if (seen == max)
+                    break;
+                max = seen;
+            }
+        }
+
+        // Верхня межа кошика, у який потрапляє заданий відсоток значень
+        public long GetPercentile(double percentile)
+        {
+            long count = 0;
+            var counts = new long[BucketCount];
+            for (int i = 0; i < counts.Length; i++)
+            {
+                counts[i] = Volatile.Read(ref _counts[i]);
+                count += counts[i];
+            }
+
+            if (count == 0)
+                return 0;
+
+            long rank = Math.Max(1, (long)Math.Ceiling(count * Math.Clamp(percentile, 0, 100) / 100.0));
+            long seen = 0;
+            for (int i = 0; i < counts.Length; i++)
+            {
+                seen += counts[i];
+                if (seen >= rank)
+                    return Math.Min(UpperBound(i), Max);
+            }
+            return Max;
+        }
+
+        public void Reset()
+        {
+            Array.Clear(_counts);
+            _count.Reset();
+            _total.Reset();
+            Volatile.Write(ref _max, 0);
+        }
+
+        private static int IndexOf(long value)
+        {
+            if (value < SubBuckets)
+                return (int)value;
+
+            int shift = 63 - BitOperations.LeadingZeroCount((ulong)value) - SubBucketBits;
+            int sub = (int)(value >> shift) - SubBuckets;
+            return SubBuckets + shift * SubBuckets + sub;
+        }
+
+        private static long UpperBound(int index)
+        {
+            if (index < SubBuckets)
+                return index;
+
+            int shift = (index - SubBuckets) / SubBuckets;
+            long sub = SubBuckets + (index - SubBuckets) % SubBuckets;
+            return ((sub + 1) << shift) - 1;
+        }
+    }
+
+    // Метрики гарячого шляху. Вимкнені за замовчуванням: тоді Start повертає 0 і жодного
+    // виклику Stopwatch чи запису в лічильники немає — лише перевірка одного прапорця.
+    // Назовні: Meter "TableManager.Formulas" (dotnet-counters, OpenTelemetry) і текстовий звіт.
+    public static class FormulaMetrics
+    {
+        public const string MeterName = "TableManager.Formulas";
+
+        private static readonly LatencyHistogram[] _phases = CreatePhases();
+        private static readonly StripedCounter _cellsEvaluated = new StripedCounter();
+        private static readonly StripedCounter _recalcs = new StripedCounter();
+        private static readonly Meter _meter = CreateMeter();
+        private static volatile bool _enabled;
+
+        public static bool Enabled
+        {
+            get => _enabled;
+            set => _enabled = value;
+        }
+
+        public static long CellsEvaluated => _cellsEvaluated.Sum;
+        public static long Recalculations => _recalcs.Sum;
+
+        public static LatencyHistogram GetHistogram(MetricPhase phase) => _phases[(int)phase];
+
+        // long start = FormulaMetrics.Start(); ... FormulaMetrics.Stop(MetricPhase.Parse, start);
+        public static long Start()
+        {
+            return _enabled ? Stopwatch.GetTimestamp() : 0;
+        }
+
+        public static void Stop(MetricPhase phase, long start)
+        {
+            if (start == 0)
+                return;
+
+            long elapsed = Stopwatch.GetTimestamp() - start;
+            _phases[(int)phase].Record((long)(elapsed * (1_000_000_000.0 / Stopwatch.Frequency)));
+        }
+
+        public static void RecordRecalc(int cellsEvaluated)
+        {
+            if (!_enabled)
+                return;
+
+            _recalcs.Increment();
+            _cellsEvaluated.Add(cellsEvaluated);
+        }
+
+        public static void Reset()
+        {
+            foreach (var histogram in _phases)
+                histogram.Reset();
+            _cellsEvaluated.Reset();
+            _recalcs.Reset();
+        }
+
+        public static string Dump()
+        {
+            var text = new StringBuilder();
+            text.AppendLine(string.Format(CultureInfo.InvariantCulture, "{0,-15}{1,12}{2,14}{3,12}{4,12}{5,12}",
+                "phase", "count", "total ms", "p50 us", "p99 us", "max us"));
+
+            foreach (MetricPhase phase in Enum.GetValues<MetricPhase>())
+            {
+                var histogram = GetHistogram(phase);
+                text.AppendLine(string.Format(CultureInfo.InvariantCulture, "{0,-15}{1,12}{2,14:F2}{3,12:F1}{4,12:F1}{5,12:F1}",
+                    phase, histogram.Count, histogram.Total / 1e6,
+                    histogram.GetPercentile(50) / 1e3, histogram.GetPercentile(99) / 1e3, histogram.Max / 1e3));
+            }
+
+            text.AppendLine(FormattableString.Invariant($"recalcs: {Recalculations}, cells evaluated: {CellsEvaluated}"));
+            AppendCache(text, "formula cache", FormulaCompiler.Cache);
+            AppendCache(text, "template cache", FormulaCompiler.Templates);
+            AppendParser(text);
+            text.AppendLine(FormattableString.Invariant(
+                $"tiering: interpreted {FormulaTiering.InterpretedEvaluations}, native {FormulaTiering.NativeEvaluations}, fallbacks {FormulaTiering.NativeFallbacks}"));
+            return text.ToString();
+        }
+
+        // Друкує Dump кожні period, доки результат не звільнено
+        public static IDisposable StartPeriodicDump(TextWriter writer, TimeSpan period)
+        {
+            return new Timer(_ =>
+            {
+                string dump = Dump();
+                lock (writer)
+                {
+                    writer.Write(dump);
+                    writer.Flush();
+                }
+            }, null, period, period);
+        }
+
+        // SLL-розбір без відкату означає, що передбачення обійшлося кешем DFA; з увімкненим
+        // Parser.ProfilingEnabled — ще й переходи DFA проти ATN-моделювання за ParseInfo
+        private static void AppendParser(StringBuilder text)
+        {
+            long sll = Parser.SllParses;
+            long fallbacks = Parser.LlFallbacks;
+            text.AppendLine(FormattableString.Invariant(
+                $"parser: SLL {sll}, LL fallbacks {fallbacks}, SLL ratio {Ratio(sll, fallbacks):P1}"));
+
+            if (!Parser.ProfilingEnabled)
+                return;
+
+            var totals = Parser.GetPredictionTotals();
+            text.AppendLine(FormattableString.Invariant(
+                $"parser prediction: decisions {totals.Invocations}, DFA {totals.DfaTransitions}, ATN {totals.AtnTransitions}, DFA hit ratio {totals.DfaHitRatio:P1}, LL fallbacks {totals.LlFallbacks}, ambiguities {totals.Ambiguities}"));
+        }
+
+        private static double Ratio(long part, long rest) => part + rest == 0 ? 0 : (double)part / (part + rest);
+
+        private static void AppendCache(StringBuilder text, string name, FormulaCache cache)
+        {
+            long hits = cache.Hits;
+            long misses = cache.Misses;
+            text.AppendLine(FormattableString.Invariant(
+                $"{name}: {cache.Count} entries, hits {hits}, misses {misses}, hit ratio {Ratio(hits, misses):P1}, evictions {cache.Evictions}"));
+        }
+
+        private static LatencyHistogram[] CreatePhases()
+        {
+            var phases = new LatencyHistogram[Enum.GetValues<MetricPhase>().Length];
+            for (int i = 0; i < phases.Length; i++)
+                phases[i] = new LatencyHistogram();
+            return phases;
+        }
+
+        // Спостережувані інструменти опитуються лише тоді, коли хтось слухає Meter
+        private static Meter CreateMeter()
+        {
+            var meter = new Meter(MeterName);
+
+            meter.CreateObservableCounter("formula.phase.count", () => PerPhase(h => h.Count));
+            meter.CreateObservableCounter("formula.phase.time", () => PerPhase(h => h.Total / 1e6), "ms");
+            meter.CreateObservableGauge("formula.phase.p99", () => PerPhase(h => h.GetPercentile(99) / 1e3), "us");
+            meter.CreateObservableCounter("formula.cells.evaluated", () => CellsEvaluated);
+            meter.CreateObservableCounter("formula.recalcs", () => Recalculations);
+            meter.CreateObservableCounter("formula.cache.hits", () => FormulaCompiler.Cache.Hits + FormulaCompiler.Templates.Hits);
+            meter.CreateObservableCounter("formula.cache.misses", () => FormulaCompiler.Cache.Misses + FormulaCompiler.Templates.Misses);
+            meter.CreateObservableCounter("formula.parser.sll", () => Parser.SllParses);
+            meter.CreateObservableCounter("formula.parser.ll_fallbacks", () => Parser.LlFallbacks);
+            meter.CreateObservableGauge("formula.parser.sll_ratio", () => Ratio(Parser.SllParses, Parser.LlFallbacks));
+            // Дані ParseInfo є лише з увімкненим Parser.ProfilingEnabled
+            meter.CreateObservableCounter("formula.parser.decisions", () => PredictionTotals(t => t.Invocations));
+            meter.CreateObservableCounter("formula.parser.dfa_transitions", () => PredictionTotals(t => t.DfaTransitions));
+            meter.CreateObservableCounter("formula.parser.atn_transitions", () => PredictionTotals(t => t.AtnTransitions));
+            meter.CreateObservableCounter("formula.parser.prediction_ll_fallbacks", () => PredictionTotals(t => t.LlFallbacks));
+            meter.CreateObservableGauge("formula.parser.dfa_hit_ratio", () => PredictionTotals(t => t.DfaHitRatio));
+            meter.CreateObservableCounter("formula.tiering.interpreted", () => FormulaTiering.InterpretedEvaluations);
+            meter.CreateObservableCounter("formula.tiering.native", () => FormulaTiering.NativeEvaluations);
+            meter.CreateObservableCounter("formula.tiering.fallbacks", () => FormulaTiering.NativeFallbacks);
+            return meter;
+        }
+
+        private static IEnumerable<Measurement<T>> PredictionTotals<T>(Func<ParserPredictionTotals, T> read) where T : struct
+        {
+            if (Parser.ProfilingEnabled)
+                yield return new Measurement<T>(read(Parser.GetPredictionTotals()));
+        }
+
+        private static IEnumerable<Measurement<T>> PerPhase<T>(Func<LatencyHistogram, T> read) where T : struct
+        {
+            foreach (MetricPhase phase in Enum.GetValues<MetricPhase>())
+                yield return new Measurement<T>(read(GetHistogram(phase)), new KeyValuePair<string, object?>("phase", phase.ToString()));
+        }
+    }
+}
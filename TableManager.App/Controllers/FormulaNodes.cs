@@ -0,0 +1,274 @@
+using System;
+using System.Globalization;
+
+namespace TableManager.App.Controllers
+{
+    public readonly struct FormulaValue
+    {
+        public const string GeneralErrorCode = "#ERROR";
+        public const string RefErrorCode = "#REF";
+        public const string CycleErrorCode = "#CYCLE";
+
+        public static readonly FormulaValue Zero = FromNumber(0);
+        public static readonly FormulaValue GeneralError = FromError(GeneralErrorCode);
+        public static readonly FormulaValue RefError = FromError(RefErrorCode);
+        public static readonly FormulaValue CycleError = FromError(CycleErrorCode);
+
+        private readonly string? _error;
+
+        private FormulaValue(ValueType type, double number, string error)
+        {
+            Type = type;
+            Number = number;
+            _error = error;
+        }
+
+        public ValueType Type { get; }
+        // Для булевих значень тут 1 або 0
+        public double Number { get; }
+        public string Error => _error ?? "";
+
+        public bool IsError => Type == ValueType.Error;
+        public bool IsNumber => Type == ValueType.Number;
+        public bool IsBoolean => Type == ValueType.Boolean;
+        public bool Bool => Number != 0;
+
+        public static FormulaValue FromNumber(double value) => new FormulaValue(ValueType.Number, value, "");
+
+        public static FormulaValue FromBool(bool value) => new FormulaValue(ValueType.Boolean, value ? 1.0 : 0.0, "");
+
+        public static FormulaValue FromError(string error) => new FormulaValue(ValueType.Error, 0, error);
+
+        // Число в тексті клітинки завжди читається в InvariantCulture, як числа у формулах і в CSV:
+        // інакше той самий текст за різних культур системи давав би різні значення.
+        // Роздільників тисяч немає — "1,5" не стає 15.
+        public static bool TryParseNumber(ReadOnlySpan<char> text, out double number)
+        {
+            return double.TryParse(text, NumberStyles.Float, NumberFormatInfo.InvariantInfo, out number);
+        }
+
+        public static bool TryParseNumber(ReadOnlySpan<byte> utf8, out double number)
+        {
+            return double.TryParse(utf8, NumberStyles.Float, NumberFormatInfo.InvariantInfo, out number);
+        }
+
+        public EvaluationResult ToResult()
+        {
+            return Type switch
+            {
+                ValueType.Number => new EvaluationResult { Success = true, Type = ValueType.Number, NumberValue = Number },
+                ValueType.Boolean => new EvaluationResult { Success = true, Type = ValueType.Boolean, BoolValue = Bool },
+                _ => new EvaluationResult { Success = false, Type = ValueType.Error, Error = Error }
+            };
+        }
+    }
+
+    public interface ICellValueSource
+    {
+        FormulaValue GetCellValue(CellAddress address);
+    }
+
+    public enum FormulaOperator
+    {
+        Add,
+        Subtract,
+        Multiply,
+        Divide,
+        Mod,
+        Div
+    }
+
+    public enum ComparisonOperator
+    {
+        LessThan,
+        LessOrEqual,
+        GreaterThan,
+        GreaterOrEqual,
+        Equal,
+        NotEqual
+    }
+
+    public abstract class FormulaNode
+    {
+        public FormulaValue Evaluate(ICellValueSource cells) => Evaluate(cells, default);
+
+        // host — клітинка-господар: відносні посилання шаблону зсуваються на неї
+        public abstract FormulaValue Evaluate(ICellValueSource cells, CellAddress host);
+    }
+
+    public sealed class NumberNode : FormulaNode
+    {
+        private readonly FormulaValue _value;
+
+        public NumberNode(double value)
+        {
+            Value = value;
+            _value = FormulaValue.FromNumber(value);
+        }
+
+        public double Value { get; }
+
+        public override FormulaValue Evaluate(ICellValueSource cells, CellAddress host) => _value;
+    }
+
+    public sealed class CellReferenceNode : FormulaNode
+    {
+        public CellReferenceNode(CellAddress address, bool isRelative = false)
+        {
+            Address = address;
+            IsRelative = isRelative;
+        }
+
+        public CellAddress Address { get; }
+        // Address — зсув від клітинки-господаря
+        public bool IsRelative { get; }
+
+        public override FormulaValue Evaluate(ICellValueSource cells, CellAddress host)
+        {
+            var address = IsRelative ? Address.Offset(host.Row, host.Column) : Address;
+            return address.IsValid ? cells.GetCellValue(address) : FormulaValue.RefError;
+        }
+    }
+
+    public sealed class IncDecNode : FormulaNode
+    {
+        public IncDecNode(FormulaNode operand, double delta)
+        {
+            Operand = operand;
+            Delta = delta;
+        }
+
+        public FormulaNode Operand { get; }
+        // +1 для inc, -1 для dec
+        public double Delta { get; }
+
+        public override FormulaValue Evaluate(ICellValueSource cells, CellAddress host)
+        {
+            var value = Operand.Evaluate(cells, host);
+            if (value.IsError) return value;
+            if (!value.IsNumber) return FormulaValue.GeneralError;
+
+            return FormulaValue.FromNumber(value.Number + Delta);
+        }
+    }
+
+    public sealed class BinaryNode : FormulaNode
+    {
+        public BinaryNode(FormulaOperator op, FormulaNode left, FormulaNode right)
+        {
+            Operator = op;
+            Left = left;
+            Right = right;
+        }
+
+        public FormulaOperator Operator { get; }
+        public FormulaNode Left { get; }
+        public FormulaNode Right { get; }
+
+        public override FormulaValue Evaluate(ICellValueSource cells, CellAddress host)
+        {
+            var left = Left.Evaluate(cells, host);
+            var right = Right.Evaluate(cells, host);
+
+            if (left.IsError) return left;
+            if (right.IsError) return right;
+
+            if (!left.IsNumber || !right.IsNumber)
+                return FormulaValue.GeneralError;
+
+            return Apply(Operator, left.Number, right.Number, out double result)
+                ? FormulaValue.FromNumber(result)
+                : FormulaValue.GeneralError;
+        }
+
+        public static bool Apply(FormulaOperator op, double left, double right, out double result)
+        {
+            switch (op)
+            {
+                case FormulaOperator.Add:
+                    result = left + right;
+                    return true;
+                case FormulaOperator.Subtract:
+                    result = left - right;
+                    return true;
+                case FormulaOperator.Multiply:
+                    result = left * right;
+                    return true;
+                case FormulaOperator.Divide:
+                    result = left / right;
+                    return Math.Abs(right) >= 0.0001;
+                case FormulaOperator.Mod:
+                    return TryIntegerOperation(left, right, isMod: true, out result);
+                case FormulaOperator.Div:
+                    if (Math.Abs(right) < 0.0001)
+                    {
+                        result = 0;
+                        return false;
+                    }
+                    return TryIntegerOperation(left, right, isMod: false, out result);
+                default:
+                    result = 0;
+                    return false;
+            }
+        }
+
+        // mod і div працюють над цілими частинами: (int)a % (int)b, (int)a / (int)b
+        private static bool TryIntegerOperation(double left, double right, bool isMod, out double result)
+        {
+            int a = (int)left;
+            int b = (int)right;
+
+            if (b == 0 || (a == int.MinValue && b == -1))
+            {
+                result = 0;
+                return false;
+            }
+
+            result = isMod ? a % b : a / b;
+            return true;
+        }
+    }
+
+    public sealed class ComparisonNode : FormulaNode
+    {
+        public ComparisonNode(ComparisonOperator op, FormulaNode left, FormulaNode right)
+        {
+            Operator = op;
+            Left = left;
+            Right = right;
+        }
+
+        public ComparisonOperator Operator { get; }
+        public FormulaNode Left { get; }
+        public FormulaNode Right { get; }
+
+        public override FormulaValue Evaluate(ICellValueSource cells, CellAddress host)
+        {
+            var left = Left.Evaluate(cells, host);
+            var right = Right.Evaluate(cells, host);
+
+            if (left.IsError) return left;
+            if (right.IsError) return right;
+
+            // Порівнювати можна або два числа, або два булеві значення
+            if (left.IsBoolean != right.IsBoolean)
+                return FormulaValue.GeneralError;
+
+            return FormulaValue.FromBool(Compare(Operator, left.Number, right.Number));
+        }
+
+        public static bool Compare(ComparisonOperator op, double left, double right)
+        {
+            return op switch
+            {
+                ComparisonOperator.LessThan => left < right,
+                ComparisonOperator.LessOrEqual => left <= right,
+                ComparisonOperator.GreaterThan => left > right,
+                ComparisonOperator.GreaterOrEqual => left >= right,
+                ComparisonOperator.Equal => Math.Abs(left - right) < 0.0001,
+                ComparisonOperator.NotEqual => Math.Abs(left - right) > 0.0001,
+                _ => false
+            };
+        }
+    }
+}
@@ -0,0 +1,218 @@
+using System;
+using Antlr4.Runtime;
+
+namespace TableManager.App.Controllers
+{
+    // Ручний LL(1)-розпізнавач мови TableExpression: рекурсивний спуск по токенах FormulaLexer,
+    // кожне рішення — за одним поточним токеном, без дерева розбору й без алокацій.
+    // Пріоритети задано рівнями замість лівої рекурсії, а порівняння — необов'язковий суфікс:
+    //   formula        : '=' '(' expression ')' EOF
+    //   expression     : additive (comparison additive)?
+    //   additive       : multiplicative (('+' | '-') multiplicative)*
+    //   multiplicative : primary (('*' | '/' | ' mod ' | ' div ') primary)*
+    //   primary        : ('inc' | 'dec') '(' additive ')' | '(' additive ')' | NUMBER | CELL_REF
+    // Приймає ту саму мову, що й TableExpressionParser.formula() (це звіряє FormulaRecognizerTests);
+    // подвійні пробіли, які окремо відхиляє Parser.TryParseFormula, тут не перевіряються.
+    public static class FormulaRecognizer
+    {
+        private const int Equal = TableExpressionLexer.T__0;
+        private const int OpenParen = TableExpressionLexer.T__1;
+        private const int CloseParen = TableExpressionLexer.T__2;
+        private const int Inc = TableExpressionLexer.T__9;
+        private const int Dec = TableExpressionLexer.T__10;
+
+        [ThreadStatic] private static FormulaLexer? _lexer;
+
+        public static bool IsValid(string expression) => Validate(expression, out _);
+
+        // errorPosition — індекс символу, на якому розбір зупинився, або -1 для коректної формули
+        public static bool Validate(string expression, out int errorPosition)
+        {
+            var lexer = _lexer ??= new FormulaLexer();
+            lexer.Reset(expression);
+
+            var cursor = new Cursor(lexer);
+            cursor.Advance();
+
+            bool valid = Formula(ref cursor);
+            int grammarError = valid ? -1 : cursor.Start;
+
+            // Помилка лексера до місця зупинки парсера — справжня причина; після успішного
+            // розбору курсор уже на EOF, тож лексер пройшов увесь рядок
+            if (lexer.HasErrors && (valid || lexer.FirstErrorIndex <= grammarError))
+            {
+                errorPosition = lexer.FirstErrorIndex;
+                return false;
+            }
+
+            errorPosition = grammarError;
+            return valid;
+        }
+
+        // Те саме над уже готовими сирими токенами (див. IncrementalFormulaValidator); textLength — позиція EOF
+        public static bool Validate(ReadOnlySpan<FormulaToken> tokens, int textLength, out int errorPosition)
+        {
+            var cursor = new Cursor(tokens, textLength);
+            cursor.Advance();
+
+            bool valid = Formula(ref cursor);
+            int grammarError = valid ? -1 : cursor.Start;
+
+            int lexerError = -1;
+            foreach (var token in tokens)
+            {
+                if (token.Type == TokenConstants.InvalidType)
+                {
+                    lexerError = token.Start;
+                    break;
+                }
+            }
+
+            if (lexerError >= 0 && (valid || lexerError <= grammarError))
+            {
+                errorPosition = lexerError;
+                return false;
+            }
+
+            errorPosition = grammarError;
+            return valid;
+        }
+
+        internal static bool IsComparison(int type)
+        {
+            return type == Equal || (type >= TableExpressionLexer.T__11 && type <= TableExpressionLexer.T__15);
+        }
+
+        // + - * / mod div; пріоритети на розпізнавання не впливають
+        internal static bool IsBinaryOperator(int type)
+        {
+            return type >= TableExpressionLexer.T__3 && type <= TableExpressionLexer.T__8;
+        }
+
+        // formula: '=' '(' expression ')' EOF
+        private static bool Formula(ref Cursor cursor)
+        {
+            return cursor.Accept(Equal)
+                && cursor.Accept(OpenParen)
+                && Expression(ref cursor)
+                && cursor.Accept(CloseParen)
+                && cursor.Type == TokenConstants.EOF;
+        }
+
+        // expression: additive (comparisonOperator additive)?
+        private static bool Expression(ref Cursor cursor)
+        {
+            if (!Arithmetic(ref cursor))
+                return false;
+
+            if (!IsComparison(cursor.Type))
+                return true;
+
+            cursor.Advance();
+            return Arithmetic(ref cursor);
+        }
+
+        // additive і multiplicative разом: primary (operator primary)*
+        private static bool Arithmetic(ref Cursor cursor)
+        {
+            if (!Primary(ref cursor))
+                return false;
+
+            while (IsBinaryOperator(cursor.Type))
+            {
+                cursor.Advance();
+                if (!Primary(ref cursor))
+                    return false;
+            }
+            return true;
+        }
+
+        private static bool Primary(ref Cursor cursor)
+        {
+            switch (cursor.Type)
+            {
+                case TableExpressionLexer.NUMBER:
+                case TableExpressionLexer.CELL_REF:
+                    cursor.Advance();
+                    return true;
+
+                case Inc:
+                case Dec:
+                    cursor.Advance();
+                    return cursor.Accept(OpenParen) && Arithmetic(ref cursor) && cursor.Accept(CloseParen);
+
+                case OpenParen:
+                    cursor.Advance();
+                    return Arithmetic(ref cursor) && cursor.Accept(CloseParen);
+
+                default:
+                    return false;
+            }
+        }
+
+        // Токени або з лексера, або з масиву сирих токенів (WS і помилки пропускаються)
+        private ref struct Cursor
+        {
+            private readonly FormulaLexer? _lexer;
+            private readonly ReadOnlySpan<FormulaToken> _tokens;
+            private readonly int _textLength;
+            private int _index;
+
+            public Cursor(FormulaLexer lexer)
+            {
+                _lexer = lexer;
+                _tokens = default;
+                _textLength = 0;
+                _index = 0;
+                Type = TokenConstants.InvalidType;
+                Start = 0;
+            }
+
+            public Cursor(ReadOnlySpan<FormulaToken> tokens, int textLength)
+            {
+                _lexer = null;
+                _tokens = tokens;
+                _textLength = textLength;
+                _index = 0;
+                Type = TokenConstants.InvalidType;
+                Start = 0;
+            }
+
+            public int Type { get; private set; }
+            public int Start { get; private set; }
+
+            public void Advance()
+            {
+                if (_lexer != null)
+                {
+                    Type = _lexer.NextTokenType(out int start, out _);
+                    Start = start;
+                    return;
+                }
+
+                while (_index < _tokens.Length)
+                {
+                    var token = _tokens[_index++];
+                    if (token.Type != TokenConstants.InvalidType && token.Type != TableExpressionLexer.WS)
+                    {
+                        Type = token.Type;
+                        Start = token.Start;
+                        return;
+                    }
+                }
+
+                Type = TokenConstants.EOF;
+                Start = _textLength;
+            }
+
+            public bool Accept(int type)
+            {
+                if (Type != type)
+                    return false;
+
+                Advance();
+                return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+namespace TableManager.App.Controllers
+{
+    // Спрощення дерева після компіляції, до першого обчислення:
+    //  - піддерева лише з чисел згортаються в одне NumberNode: =((2+3)*A1) → =(5*A1);
+    //  - вкладені inc/dec зливаються в один IncDecNode: inc(inc(dec(A1))) → A1 + 1.
+    // Дужки окремих вузлів не мають, їх прибирає вже FormulaCompiler.
+    //
+    // Семантика помилок незмінна: операція, що дала б #ERROR (ділення на нуль, mod на 0),
+    // не згортається й повертає помилку під час обчислення, як і раніше. inc/dec із сумарним
+    // зсувом 0 лишається вузлом, бо для булевого операнда він дає #ERROR.
+    // Злиття inc/dec — це одне додавання замість кількох; для |x| ≥ 2^53 результат може
+    // відрізнятися від послідовних +1 на одиницю округлення.
+    public static class FormulaSimplifier
+    {
+        public static FormulaNode Simplify(FormulaNode node)
+        {
+            switch (node)
+            {
+                case IncDecNode incDec:
+                {
+                    var operand = Simplify(incDec.Operand);
+                    double delta = incDec.Delta;
+                    while (operand is IncDecNode inner)
+                    {
+                        delta += inner.Delta;
+                        operand = inner.Operand;
+                    }
+
+                    if (operand is NumberNode number)
+                        return new NumberNode(number.Value + delta);
+
+                    return ReferenceEquals(operand, incDec.Operand) && delta == incDec.Delta
+                        ? incDec
+                        : new IncDecNode(operand, delta);
+                }
+
+                case BinaryNode binary:
+                {
+                    var left = Simplify(binary.Left);
+                    var right = Simplify(binary.Right);
+
+                    if (left is NumberNode l && right is NumberNode r
+                        && BinaryNode.Apply(binary.Operator, l.Value, r.Value, out double result))
+                        return new NumberNode(result);
+
+                    return ReferenceEquals(left, binary.Left) && ReferenceEquals(right, binary.Right)
+                        ? binary
+                        : new BinaryNode(binary.Operator, left, right);
+                }
+
+                case ComparisonNode comparison:
+                {
+                    // Булевого літерала немає, тож саме порівняння лишається; спрощуються операнди
+                    var left = Simplify(comparison.Left);
+                    var right = Simplify(comparison.Right);
+
+                    return ReferenceEquals(left, comparison.Left) && ReferenceEquals(right, comparison.Right)
+                        ? comparison
+                        : new ComparisonNode(comparison.Operator, left, right);
+                }
+
+                default:
+                    return node;
+            }
+        }
+    }
+}
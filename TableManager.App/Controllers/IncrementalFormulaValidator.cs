@@ -0,0 +1,164 @@
+using System;
+using Antlr4.Runtime;
+
+namespace TableManager.App.Controllers
+{
+    public readonly struct FormulaSyntaxResult
+    {
+        public FormulaSyntaxResult(bool isValid, int errorPosition)
+        {
+            IsValid = isValid;
+            ErrorPosition = errorPosition;
+        }
+
+        public bool IsValid { get; }
+        public string Error => IsValid ? "" : FormulaValue.GeneralErrorCode;
+        // Індекс символу, на якому розбір зупинився; -1 для коректного тексту
+        public int ErrorPosition { get; }
+    }
+
+    // Перевірка синтаксису клітинки, що редагується. Зберігає сирі токени попереднього тексту;
+    // після правки лексується заново лише пошкоджене вікно від останнього токена, якого правка
+    // могла торкнутися, доки межа нового токена не збіжеться з межею старого в незміненому
+    // хвості, — далі старі токени переносяться зі зсувом. Граматику перевіряє FormulaRecognizer
+    // над готовими токенами: один лінійний прохід без дерева, тож перебудовувати піддерева
+    // TableExpressionParser не доводиться зовсім.
+    //
+    // Результат той самий, що в Parser.CheckSyntax. Екземпляр не потокобезпечний.
+    public sealed class IncrementalFormulaValidator
+    {
+        // Лексер читає не далі ніж 5-й символ від початку токена (" mod ") і два символи за
+        // його кінцем ("12" дивиться, чи далі йде '.' з цифрою)
+        private const int Lookahead = 4;
+
+        private readonly FormulaLexer _lexer = new FormulaLexer();
+        private FormulaToken[] _tokens = Array.Empty<FormulaToken>();
+        private FormulaToken[] _next = Array.Empty<FormulaToken>();
+        private int _count;
+        private string? _text;
+        private FormulaSyntaxResult _result;
+
+        public string? Text => _text;
+        public ReadOnlySpan<FormulaToken> Tokens => _tokens.AsSpan(0, _count);
+
+        // Скільки токенів останнього Update лексовано заново і скільки перенесено без змін
+        public int RelexedTokens { get; private set; }
+        public int ReusedTokens { get; private set; }
+
+        public void Reset()
+        {
+            _count = 0;
+            _text = null;
+        }
+
+        public (bool isValid, string error) CheckSyntax(string expression)
+        {
+            var result = Update(expression);
+            return (result.IsValid, result.Error);
+        }
+
+        public FormulaSyntaxResult Update(string text)
+        {
+            if (_text != null && string.Equals(_text, text, StringComparison.Ordinal))
+            {
+                RelexedTokens = 0;
+                ReusedTokens = _count;
+                return _result;
+            }
+
+            Relex(text);
+            _text = text;
+            _result = Validate(text);
+            return _result;
+        }
+
+        private FormulaSyntaxResult Validate(string text)
+        {
+            if (string.IsNullOrWhiteSpace(text))
+                return new FormulaSyntaxResult(false, 0);
+
+            if (!text.StartsWith("="))
+                return new FormulaSyntaxResult(true, -1);
+
+            bool valid = FormulaRecognizer.Validate(Tokens, text.Length, out int position);
+
+            // Parser.TryParseFormula окремо відхиляє подвійні пробіли
+            int doubleSpace = text.IndexOf("  ", StringComparison.Ordinal);
+            if (doubleSpace >= 0 && (valid || doubleSpace < position))
+                return new FormulaSyntaxResult(false, doubleSpace);
+
+            return new FormulaSyntaxResult(valid, position);
+        }
+
+        private void Relex(string text)
+        {
+            string old = _text ?? "";
+            int prefix = old.AsSpan().CommonPrefixLength(text);
+            int suffix = 0;
+            int maxSuffix = Math.Min(old.Length, text.Length) - prefix;
+            while (suffix < maxSuffix && old[old.Length - 1 - suffix] == text[text.Length - 1 - suffix])
+                suffix++;
+
+            // Перший старий токен, на який правка могла вплинути
+            int restart = 0;
+            while (restart < _count && Math.Max(_tokens[restart].Start + Lookahead, _tokens[restart].End + 1) < prefix)
+                restart++;
+
+            // Останній токен читає символ за кінцем рядка, тож restart < _count, якщо токени є
+            int resumeAt = restart < _count ? _tokens[restart].Start : 0;
+
+            EnsureCapacity(ref _next, restart + 16);
+            Array.Copy(_tokens, _next, restart);
+            int count = restart;
+
+            int delta = text.Length - old.Length;
+            int changedEnd = text.Length - suffix;
+            int oldIndex = restart;
+            int relexed = 0;
+            int reused = restart;
+
+            _lexer.Reset(text, resumeAt);
+            while (true)
+            {
+                int type = _lexer.NextRawTokenType(out int start, out int length);
+                if (type == TokenConstants.EOF)
+                    break;
+
+                // За межею правки: якщо тут же починався старий токен, далі текст і токени ті самі
+                if (start >= changedEnd)
+                {
+                    while (oldIndex < _count && _tokens[oldIndex].Start + delta < start)
+                        oldIndex++;
+
+                    if (oldIndex < _count && _tokens[oldIndex].Start + delta == start)
+                    {
+                        int tail = _count - oldIndex;
+                        EnsureCapacity(ref _next, count + tail);
+                        for (int i = oldIndex; i < _count; i++)
+                        {
+                            var token = _tokens[i];
+                            _next[count++] = token with { Start = token.Start + delta };
+                        }
+                        reused += tail;
+                        break;
+                    }
+                }
+
+                EnsureCapacity(ref _next, count + 1);
+                _next[count++] = new FormulaToken(type, start, length);
+                relexed++;
+            }
+
+            (_tokens, _next) = (_next, _tokens);
+            _count = count;
+            RelexedTokens = relexed;
+            ReusedTokens = reused;
+        }
+
+        private static void EnsureCapacity(ref FormulaToken[] tokens, int size)
+        {
+            if (size > tokens.Length)
+                Array.Resize(ref tokens, Math.Max(size, Math.Max(16, tokens.Length * 2)));
+        }
+    }
+}
@@ -0,0 +1,327 @@
+using System;
+using System.Collections.Generic;
+using System.Runtime.InteropServices;
+
+namespace TableManager.App.Controllers
+{
+    // Необов'язкове сховище для дуже великих таблиць: значення, типи й номери шаблонів формул
+    // лежать у некерованій пам'яті з фіксованим row-major розташуванням. Збирач сміття бачить
+    // лише сам об'єкт і список шаблонів, тому паузи не ростуть разом із розміром таблиці.
+    //
+    // Константи розбираються одразу, формули зводяться до спільного R1C1-шаблону з
+    // FormulaCompiler. Текст, що не є числом, і вихідний текст формули з синтаксичною помилкою
+    // лежать в окремому словнику (у формулах читаються як #ERROR); нестандартні тексти помилок
+    // у SetValue зводяться до #ERROR.
+    public sealed unsafe class NativeSheetStore : ICellValueSource, IDisposable
+    {
+        private const byte Empty = 0;
+        private const byte Number = 1;
+        private const byte Boolean = 2;
+        private const byte GeneralError = 3;
+        private const byte RefError = 4;
+        private const byte CycleError = 5;
+        private const byte Pending = 6;
+        private const byte InProgress = 7;
+        private const byte Text = 8;
+
+        private double* _values;
+        private byte* _kinds;
+        private int* _formulas;
+
+        // Номер шаблону в клітинці — індекс у цьому списку + 1, 0 — формули немає
+        private readonly List<CompiledFormula> _templates = new();
+        private readonly Dictionary<CompiledFormula, int> _templateIds = new();
+        private Dictionary<long, string>? _texts;
+        // Явний стек обчислення формул на вимогу
+        private Frame[] _work = new Frame[64];
+
+        public NativeSheetStore(int rows, int columns)
+        {
+            if (rows <= 0 || rows > CellAddress.MaxRows)
+                throw new ArgumentOutOfRangeException(nameof(rows));
+            if (columns <= 0 || columns > CellAddress.MaxColumns)
+                throw new ArgumentOutOfRangeException(nameof(columns));
+
+            Rows = rows;
+            Columns = columns;
+
+            nuint count = (nuint)rows * (nuint)columns;
+            _values = (double*)NativeMemory.AllocZeroed(count, sizeof(double));
+            _kinds = (byte*)NativeMemory.AllocZeroed(count, sizeof(byte));
+            _formulas = (int*)NativeMemory.AllocZeroed(count, sizeof(int));
+        }
+
+        ~NativeSheetStore()
+        {
+            Free();
+        }
+
+        public int Rows { get; }
+        public int Columns { get; }
+        public long CellCount => (long)Rows * Columns;
+        public long NativeBytes => CellCount * (sizeof(double) + sizeof(byte) + sizeof(int));
+        public int TemplateCount => _templates.Count;
+
+        public bool Contains(CellAddress address)
+        {
+            return (uint)address.Row < (uint)Rows && (uint)address.Column < (uint)Columns;
+        }
+
+        public void SetText(CellAddress address, string? text)
+        {
+            long index = IndexOf(address);
+            text ??= "";
+
+            if (text.StartsWith("="))
+            {
+                var formula = FormulaCompiler.GetOrCompile(text, address);
+                if (formula != null)
+                    SetFormula(address, formula);
+                else
+                    SetLiteralText(address, text);
+                return;
+            }
+
+            var value = RecalcScheduler.ParseConstant(text);
+            if (value.Error == FormulaValue.GeneralErrorCode)
+            {
+                SetLiteralText(address, text);
+                return;
+            }
+
+            _formulas[index] = 0;
+            Write(index, value);
+        }
+
+        // Текст без розбору: у формулах читається як #ERROR, у файл пишеться як є.
+        // Словник текстів не потокобезпечний, тому виклики мають іти з одного потоку.
+        public void SetLiteralText(CellAddress address, string text)
+        {
+            long index = IndexOf(address);
+            RemoveText(index);
+            _formulas[index] = 0;
+            _values[index] = 0;
+            _kinds[index] = Text;
+            (_texts ??= new Dictionary<long, string>())[index] = text;
+        }
+
+        // Формулу, скомпільовану заздалегідь для цієї адреси; null — синтаксична помилка без
+        // вихідного тексту (щоб його зберегти, формулу з помилкою треба класти через SetLiteralText).
+        // Список шаблонів не потокобезпечний, тому виклики мають іти з одного потоку.
+        public void SetFormula(CellAddress address, CompiledFormula? formula)
+        {
+            long index = IndexOf(address);
+            if (formula == null)
+            {
+                _formulas[index] = 0;
+                Write(index, FormulaValue.GeneralError);
+                return;
+            }
+
+            RemoveText(index);
+            _formulas[index] = GetTemplateId(formula);
+            _kinds[index] = Pending;
+        }
+
+        public void SetValue(CellAddress address, FormulaValue value)
+        {
+            long index = IndexOf(address);
+            _formulas[index] = 0;
+            Write(index, value);
+        }
+
+        // Клітинка без тексту; читається як 0, але зберігається у файл порожньою
+        public bool IsEmpty(CellAddress address)
+        {
+            return _kinds[IndexOf(address)] == Empty;
+        }
+
+        // Текст клітинки, якщо вона містить не число й не формулу (або формулу з синтаксичною
+        // помилкою — тоді це її вихідний текст), інакше null
+        public string? GetText(CellAddress address)
+        {
+            long index = IndexOf(address);
+            return _kinds[index] == Text ? _texts![index] : null;
+        }
+
+        public CompiledFormula? GetFormula(CellAddress address)
+        {
+            int id = _formulas[IndexOf(address)];
+            return id == 0 ? null : _templates[id - 1];
+        }
+
+        // Значення за межами таблиці — #REF; формула, ще не обчислена, рахується на вимогу
+        public FormulaValue GetCellValue(CellAddress address)
+        {
+            if (_kinds == null)
+                throw new ObjectDisposedException(nameof(NativeSheetStore));
+            if (!Contains(address))
+                return FormulaValue.RefError;
+
+            long index = (long)address.Row * Columns + address.Column;
+            switch (_kinds[index])
+            {
+                case Empty:
+                    return FormulaValue.Zero;
+                case Number:
+                    return FormulaValue.FromNumber(_values[index]);
+                case Boolean:
+                    return FormulaValue.FromBool(_values[index] != 0);
+                case RefError:
+                    return FormulaValue.RefError;
+                case CycleError:
+                case InProgress:
+                    return FormulaValue.CycleError;
+                case Pending:
+                    return Compute(index, address);
+                default:
+                    return FormulaValue.GeneralError;
+            }
+        }
+
+        // Перераховує всі формули в порядку рядків; формула, що посилається на ще не обчислену,
+        // спершу обчислює її через Compute. Повертає кількість обчислених формул.
+        public long Recalculate()
+        {
+            long count = CellCount;
+            long formulas = 0;
+            for (long i = 0; i < count; i++)
+            {
+                if (_formulas[i] != 0)
+                {
+                    _kinds[i] = Pending;
+                    formulas++;
+                }
+            }
+
+            for (long i = 0; i < count; i++)
+            {
+                if (_kinds[i] == Pending)
+                    Compute(i, new CellAddress((int)(i / Columns), (int)(i % Columns)));
+            }
+            return formulas;
+        }
+
+        public void Dispose()
+        {
+            Free();
+            GC.SuppressFinalize(this);
+        }
+
+        // Обчислює формулу разом з усіма ще не обчисленими формулами, від яких вона залежить.
+        // Замість рекурсії — явний стек: ланцюжок A1=(A2+1), A2=(A3+1), ... на сотні тисяч рядків
+        // не переповнює стек потоку. Формула обчислюється, коли всі її посилання вже готові;
+        // клітинки на стеку позначені InProgress, тож посилання на них дає #CYCLE.
+        private FormulaValue Compute(long index, CellAddress address)
+        {
+            var value = FormulaValue.Zero;
+            int depth = 0;
+            Push(ref depth, index, address);
+
+            while (depth > 0)
+            {
+                ref var frame = ref _work[depth - 1];
+                var template = _templates[_formulas[frame.Index] - 1];
+                var host = new CellAddress(frame.Row, frame.Column);
+
+                bool descended = false;
+                while (frame.Next < template.References.Count)
+                {
+                    var reference = template.GetReference(frame.Next++, host);
+                    if (!Contains(reference))
+                        continue;
+
+                    long referenceIndex = (long)reference.Row * Columns + reference.Column;
+                    if (_kinds[referenceIndex] == Pending)
+                    {
+                        // Push може перевиділити _work, тож frame далі не використовується
+                        Push(ref depth, referenceIndex, reference);
+                        descended = true;
+                        break;
+                    }
+                }
+
+                if (descended)
+                    continue;
+
+                value = template.Evaluate(this, host);
+                Write(frame.Index, value);
+                depth--;
+            }
+
+            return value;
+        }
+
+        private void Push(ref int depth, long index, CellAddress address)
+        {
+            if (depth == _work.Length)
+                Array.Resize(ref _work, _work.Length * 2);
+
+            _kinds[index] = InProgress;
+            _work[depth++] = new Frame { Index = index, Row = address.Row, Column = address.Column };
+        }
+
+        private void Write(long index, FormulaValue value)
+        {
+            RemoveText(index);
+            _values[index] = value.Number;
+            _kinds[index] = value.Type switch
+            {
+                ValueType.Number => Number,
+                ValueType.Boolean => Boolean,
+                _ => value.Error switch
+                {
+                    FormulaValue.RefErrorCode => RefError,
+                    FormulaValue.CycleErrorCode => CycleError,
+                    _ => GeneralError
+                }
+            };
+        }
+
+        private void RemoveText(long index)
+        {
+            if (_kinds[index] == Text)
+                _texts!.Remove(index);
+        }
+
+        private int GetTemplateId(CompiledFormula formula)
+        {
+            if (!_templateIds.TryGetValue(formula, out int id))
+            {
+                _templates.Add(formula);
+                id = _templates.Count;
+                _templateIds[formula] = id;
+            }
+            return id;
+        }
+
+        private long IndexOf(CellAddress address)
+        {
+            if (_kinds == null)
+                throw new ObjectDisposedException(nameof(NativeSheetStore));
+            if (!Contains(address))
+                throw new ArgumentOutOfRangeException(nameof(address));
+
+            return (long)address.Row * Columns + address.Column;
+        }
+
+        private void Free()
+        {
+            NativeMemory.Free(_values);
+            NativeMemory.Free(_kinds);
+            NativeMemory.Free(_formulas);
+            _values = null;
+            _kinds = null;
+            _formulas = null;
+        }
+
+        private struct Frame
+        {
+            public long Index;
+            public int Row;
+            public int Column;
+            // Наступне посилання шаблону, яке треба перевірити
+            public int Next;
+        }
+    }
+}
@@ -1,8 +1,10 @@
 using System;
+using System.Collections.Concurrent;
 using System.Collections.Generic;
 using System.Linq;
-using System.Text.RegularExpressions;
 using Antlr4.Runtime;
+using Antlr4.Runtime.Atn;
+using Antlr4.Runtime.Misc;
 using System.IO;
 
 namespace TableManager.App.Controllers
@@ -17,83 +19,197 @@ namespace TableManager.App.Controllers
             if (!expression.StartsWith("="))
                 return (true, "");
 
+            // Однакові формули по стовпцю розбираються один раз і далі беруться з кешу
+            return FormulaCompiler.GetOrCompile(expression) != null ? (true, "") : (false, "#ERROR");
+        }
+
+        // Імена клітинок, на які посилається формула, без повторів і в порядку появи.
+        // Береться з уже скомпільованої формули; для формули з помилкою список порожній
+        public static List<string> GetDependencies(string expression)
+        {
+            var dependencies = new List<string>();
+            if (string.IsNullOrWhiteSpace(expression) || !expression.StartsWith("="))
+                return dependencies;
+
+            var formula = FormulaCompiler.GetOrCompile(expression);
+            if (formula == null)
+                return dependencies;
+
+            foreach (var reference in formula.References)
+                dependencies.Add(reference.ToString());
+            return dependencies;
+        }
+
+        // Типові формули для прогріву спільного DFA: усі оператори, вкладеність і порівняння
+        private static readonly string[] WarmUpCorpus =
+        {
+            "=(1)", "=(A1)", "=(1.5)", "=((A1))",
+            "=(A1+B1)", "=(A1-B1)", "=(A1*B1)", "=(A1/B1)", "=(A1 mod B1)", "=(A1 div B1)",
+            "=(A1+B1*C1)", "=(A1*B1+C1)", "=(A1-B1/C1+D1)", "=(A1 mod B1+C1 div D1)",
+            "=((A1+B1)*(C1-D1))", "=(((A1+1)*2)/3)", "=(A1*2+B1*3+C1*4+D1*5)",
+            "=(inc(A1))", "=(dec(A1))", "=(inc(A1)+dec(B1))", "=(inc(dec(A1*2)))",
+            "=(A1<B1)", "=(A1<=B1)", "=(A1>B1)", "=(A1>=B1)", "=(A1=B1)", "=(A1<>B1)",
+            "=(A1+1>B1*2)", "=((A1+B1)<=(C1 mod 3))", "=(inc(A1)<>dec(B1))",
+            "=(A1+)", "=(+A1)", "=((A1+A2)", "=(A1++A2)"
+        };
+
+        public static IReadOnlyList<string> WarmUpFormulas => WarmUpCorpus;
+
+        [ThreadStatic] private static PooledParser? _pooledParser;
+
+        private static readonly StripedCounter _sllParses = new StripedCounter();
+        private static readonly StripedCounter _llFallbacks = new StripedCounter();
+        private static readonly ConcurrentBag<ProfilingATNSimulator> _profilers = new();
+        private static volatile bool _profilingEnabled;
+
+        // Скільки формул розібрано швидким SLL-проходом і скільки довелося повторити повним LL
+        public static long SllParses => _sllParses.Sum;
+        public static long LlFallbacks => _llFallbacks.Sum;
+
+        // Парсери пулу переходять на ProfilingATNSimulator, і GetPredictionTotals підсумовує
+        // їхню статистику рішень (ParseInfo). Помітно сповільнює розбір, тож вимкнено за замовчуванням.
+        public static bool ProfilingEnabled
+        {
+            get => _profilingEnabled;
+            set => _profilingEnabled = value;
+        }
+
+        // Статистика накопичується з моменту першого ввімкнення профілювання; читається без
+        // блокувань, тож поки інші потоки розбирають формули, суми наближені
+        public static ParserPredictionTotals GetPredictionTotals()
+        {
+            return ParserPredictionTotals.Sum(_profilers);
+        }
+
+        public static bool TryParseFormula(string expression, out TableExpressionParser.FormulaContext? tree)
+        {
+            tree = null;
+
             if (expression.Contains("  "))
-                return (false, "#ERROR");
+                return false;
 
+            // Екземпляр забирається на час розбору, тож вкладений виклик у тому ж потоці створить свій
+            var pooled = _pooledParser ?? new PooledParser();
+            _pooledParser = null;
+
+            long started = FormulaMetrics.Start();
             try
             {
-                var inputStream = new AntlrInputStream(expression);
-                var lexer = new TableExpressionLexer(inputStream);
-                
-                lexer.RemoveErrorListeners();
-                var lexerErrorListener = new SyntaxErrorListener();
-                lexer.AddErrorListener(lexerErrorListener);
-                
-                var tokenStream = new CommonTokenStream(lexer);
-                var parser = new TableExpressionParser(tokenStream);
-                
-                parser.RemoveErrorListeners();
-                var parserErrorListener = new SyntaxErrorListener();
-                parser.AddErrorListener(parserErrorListener);
-                
-                var tree = parser.formula();
-                
-                if (lexerErrorListener.HasErrors || parserErrorListener.HasErrors)
-                {
-                    return (false, "#ERROR");
-                }
-                
-                return (true, "");
+                tree = pooled.Parse(expression);
+                _pooledParser = pooled;
+                return tree != null;
             }
             catch (Exception)
             {
-                return (false, "#ERROR");
+                return false;
+            }
+            finally
+            {
+                FormulaMetrics.Stop(MetricPhase.Parse, started);
             }
         }
 
-        public static List<string> Parse(string expression)
+        // Таблиці DFA у згенерованих лексері й парсері статичні, тому прогрів з будь-якого потоку
+        // прибирає повільне ATN-моделювання для перших формул у всіх потоках
+        public static void WarmUp()
         {
-            var tokens = new List<string>();
+            WarmUp(WarmUpCorpus);
+        }
 
-            if (string.IsNullOrWhiteSpace(expression))
-                return tokens;
+        public static void WarmUp(IEnumerable<string> corpus)
+        {
+            foreach (var formula in corpus)
+                TryParseFormula(formula, out _);
+        }
 
-            if (!expression.StartsWith("="))
+        // Лексер, потік токенів і парсер перевикористовуються в межах потоку замість
+        // створення трьох нових об'єктів на кожну формулу. Токени дає ручний FormulaLexer.
+        private sealed class PooledParser
+        {
+            private readonly FormulaLexer _lexer;
+            private readonly CommonTokenStream _tokens;
+            private readonly TableExpressionParser _parser;
+            private readonly SyntaxErrorListener _parserErrors = new SyntaxErrorListener();
+            private readonly BailErrorStrategy _bailStrategy = new BailErrorStrategy();
+            private readonly DefaultErrorStrategy _defaultStrategy = new DefaultErrorStrategy();
+            private readonly ParserATNSimulator _simulator;
+            private ProfilingATNSimulator? _profiler;
+
+            public PooledParser()
             {
-                tokens.Add(expression);
-                return tokens;
+                _lexer = new FormulaLexer();
+                _tokens = new CommonTokenStream(_lexer);
+
+                _parser = new TableExpressionParser(_tokens);
+                _parser.RemoveErrorListeners();
+                _parser.AddErrorListener(_parserErrors);
+                _simulator = _parser.Interpreter;
             }
 
-            string expr = expression.Substring(1).Trim();
+            private void SelectSimulator()
+            {
+                if (!_profilingEnabled)
+                {
+                    _parser.Interpreter = _simulator;
+                    return;
+                }
 
-            var regex = new Regex(@"(\d+\.?\d*|[A-Z]+\d+|inc|dec|mod|div|[+\-*/()=<>]|<=|>=|<>)");
-            var matches = regex.Matches(expr);
+                if (_profiler == null)
+                {
+                    _profiler = _parser.EnableProfiling();
+                    _profilers.Add(_profiler);
+                }
+                _parser.Interpreter = _profiler;
+            }
 
-            foreach (Match match in matches)
+            // Спершу SLL з BailErrorStrategy: для коректних формул цього досить. Якщо SLL не впорався,
+            // той самий потік токенів розбирається повним LL зі звичайною обробкою помилок,
+            // тож прийняті й відхилені формули ті самі, що й у formula() без SLL.
+            public TableExpressionParser.FormulaContext? Parse(string expression)
             {
-                tokens.Add(match.Value);
-            }
+                _parserErrors.Reset();
 
-            return tokens;
-        }
+                _lexer.Reset(expression);
+                _tokens.SetTokenSource(_lexer);
 
-        public static List<string> GetDependencies(string expression)
-        {
-            var dependencies = new List<string>();
+                SelectSimulator();
 
-            if (!expression.StartsWith("="))
-                return dependencies;
+                // Скидання парсера скидає і поточну стратегію помилок, тому вона задається першою
+                _parser.ErrorHandler = _bailStrategy;
+                _parser.Interpreter.PredictionMode = PredictionMode.SLL;
+                _parser.TokenStream = _tokens;
 
-            var regex = new Regex(@"[A-Z]+\d+");
-            var matches = regex.Matches(expression);
+                try
+                {
+                    var formula = _parser.formula();
+                    if (_lexer.HasErrors)
+                        return null;
 
-            foreach (Match match in matches)
-            {
-                if (!dependencies.Contains(match.Value))
-                    dependencies.Add(match.Value);
-            }
+                    _sllParses.Increment();
+                    return formula;
+                }
+                catch (ParseCanceledException)
+                {
+                    // Помилки лексера не залежать від режиму передбачення
+                    if (_lexer.HasErrors)
+                        return null;
+                }
 
-            return dependencies;
+                _llFallbacks.Increment();
+
+                _tokens.Seek(0);
+                _parser.ErrorHandler = _defaultStrategy;
+                _parser.Interpreter.PredictionMode = PredictionMode.LL;
+                _parser.TokenStream = _tokens;
+                _parserErrors.Reset();
+
+                var fallback = _parser.formula();
+
+                if (_lexer.HasErrors || _parserErrors.HasErrors)
+                    return null;
+
+                return fallback;
+            }
         }
     }
 
@@ -101,6 +217,11 @@ namespace TableManager.App.Controllers
     {
         public bool HasErrors { get; private set; } = false;
 
+        public void Reset()
+        {
+            HasErrors = false;
+        }
+
         public void SyntaxError(TextWriter output, IRecognizer recognizer, IToken offendingSymbol, int line, int charPositionInLine, string msg, RecognitionException e)
         {
             HasErrors = true;
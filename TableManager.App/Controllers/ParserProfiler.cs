@@ -0,0 +1,194 @@
+using System;
+using System.Collections.Generic;
+using System.Globalization;
+using System.Linq;
+using System.Text;
+using Antlr4.Runtime;
+using Antlr4.Runtime.Atn;
+
+namespace TableManager.App.Controllers
+{
+    public class ParserDecisionProfile
+    {
+        public int Decision { get; init; }
+        public string Rule { get; init; } = "";
+        // Тип ATN-стану рішення: StarLoopEntryState — цикл лівої рекурсії arithmeticExpr,
+        // BasicBlockStartState — вибір альтернативи
+        public string StateKind { get; init; } = "";
+        public long Invocations { get; init; }
+        public long SllTotalLookahead { get; init; }
+        public long SllMaxLookahead { get; init; }
+        public long LlFallbacks { get; init; }
+        public long LlTotalLookahead { get; init; }
+        public long LlMaxLookahead { get; init; }
+        public int Ambiguities { get; init; }
+        public int ContextSensitivities { get; init; }
+        public int Errors { get; init; }
+        // Частка переходів, узятих із кешу DFA, а не з ATN-моделювання
+        public double DfaHitRatio { get; init; }
+        // В одиницях ProfilingATNSimulator поточного рантайму
+        public long PredictionTime { get; init; }
+
+        public double AverageSllLookahead => Invocations == 0 ? 0 : (double)SllTotalLookahead / Invocations;
+    }
+
+    public class ParserProfileReport
+    {
+        public int Formulas { get; init; }
+        public int Rejected { get; init; }
+        public IReadOnlyList<ParserDecisionProfile> Decisions { get; init; } = Array.Empty<ParserDecisionProfile>();
+
+        public override string ToString()
+        {
+            long totalTime = Math.Max(1, Decisions.Sum(d => d.PredictionTime));
+            var text = new StringBuilder();
+            text.AppendLine(FormattableString.Invariant($"formulas: {Formulas}, rejected: {Rejected}"));
+            text.AppendLine(string.Format(CultureInfo.InvariantCulture,
+                "{0,4} {1,-16} {2,-22}{3,10}{4,9}{5,9}{6,8}{7,9}{8,7}{9,7}{10,9}{11,8}",
+                "dec", "rule", "state", "calls", "sll avg", "sll max", "ll", "ll max", "ambig", "ctx", "dfa hit", "time %"));
+
+            foreach (var d in Decisions)
+            {
+                text.AppendLine(string.Format(CultureInfo.InvariantCulture,
+                    "{0,4} {1,-16} {2,-22}{3,10}{4,9:F2}{5,9}{6,8}{7,9}{8,7}{9,7}{10,9:P1}{11,8:F1}",
+                    d.Decision, d.Rule, d.StateKind, d.Invocations, d.AverageSllLookahead, d.SllMaxLookahead,
+                    d.LlFallbacks, d.LlMaxLookahead, d.Ambiguities, d.ContextSensitivities, d.DfaHitRatio,
+                    100.0 * d.PredictionTime / totalTime));
+            }
+            return text.ToString();
+        }
+    }
+
+    // Сума ParseInfo за всіма рішеннями одного чи кількох профілюючих симуляторів
+    public class ParserPredictionTotals
+    {
+        public long Invocations { get; init; }
+        public long SllDfaTransitions { get; init; }
+        public long SllAtnTransitions { get; init; }
+        public long LlDfaTransitions { get; init; }
+        public long LlAtnTransitions { get; init; }
+        // Рішення, для яких SLL не вистачило й передбачення перейшло на повний LL
+        public long LlFallbacks { get; init; }
+        public long Ambiguities { get; init; }
+        public long Errors { get; init; }
+
+        public long DfaTransitions => SllDfaTransitions + LlDfaTransitions;
+        public long AtnTransitions => SllAtnTransitions + LlAtnTransitions;
+        public double DfaHitRatio => DfaTransitions + AtnTransitions == 0 ? 0 : (double)DfaTransitions / (DfaTransitions + AtnTransitions);
+
+        public static ParserPredictionTotals Sum(IEnumerable<ProfilingATNSimulator> profilers)
+        {
+            long invocations = 0, sllDfa = 0, sllAtn = 0, llDfa = 0, llAtn = 0, fallbacks = 0, ambiguities = 0, errors = 0;
+            foreach (var profiler in profilers)
+            {
+                foreach (var info in profiler.getDecisionInfo())
+                {
+                    invocations += info.invocations;
+                    sllDfa += info.SLL_DFATransitions;
+                    sllAtn += info.SLL_ATNTransitions;
+                    llDfa += info.LL_DFATransitions;
+                    llAtn += info.LL_ATNTransitions;
+                    fallbacks += info.LL_Fallback;
+                    ambiguities += info.ambiguities.Count;
+                    errors += info.errors.Count;
+                }
+            }
+
+            return new ParserPredictionTotals
+            {
+                Invocations = invocations,
+                SllDfaTransitions = sllDfa,
+                SllAtnTransitions = sllAtn,
+                LlDfaTransitions = llDfa,
+                LlAtnTransitions = llAtn,
+                LlFallbacks = fallbacks,
+                Ambiguities = ambiguities,
+                Errors = errors
+            };
+        }
+    }
+
+    // Проганяє корпус формул через TableExpressionParser із ProfilingATNSimulator і збирає
+    // статистику по кожному ATN-рішенню: скільки разів викликалося, як далеко дивилося вперед,
+    // коли SLL не вистачило й довелося переходити на повний LL, неоднозначності та час.
+    public static class ParserProfiler
+    {
+        // clearDfa: почати з порожнього кешу DFA, щоб побачити й вартість прогріву.
+        // Кеш спільний для всіх парсерів процесу, тож очищення сповільнить і їх.
+        public static ParserProfileReport Run(IEnumerable<string> corpus, bool clearDfa = false)
+        {
+            var lexer = new FormulaLexer();
+            var tokens = new CommonTokenStream(lexer);
+            var parser = new TableExpressionParser(tokens);
+            var errors = new SyntaxErrorListener();
+            parser.RemoveErrorListeners();
+            parser.AddErrorListener(errors);
+
+            if (clearDfa)
+                parser.Interpreter.ClearDFA();
+
+            var profiler = parser.EnableProfiling();
+
+            int formulas = 0;
+            int rejected = 0;
+            foreach (var formula in corpus)
+            {
+                errors.Reset();
+                lexer.Reset(formula);
+                tokens.SetTokenSource(lexer);
+                parser.TokenStream = tokens;
+
+                parser.formula();
+                formulas++;
+                if (lexer.HasErrors || errors.HasErrors)
+                    rejected++;
+            }
+
+            var decisions = new List<ParserDecisionProfile>();
+            foreach (var info in new ParseInfo(profiler).getDecisionInfo())
+            {
+                var state = parser.Atn.GetDecisionState(info.decision);
+                long dfa = info.SLL_DFATransitions + info.LL_DFATransitions;
+                long atn = info.SLL_ATNTransitions + info.LL_ATNTransitions;
+
+                decisions.Add(new ParserDecisionProfile
+                {
+                    Decision = info.decision,
+                    Rule = parser.RuleNames[state.ruleIndex],
+                    StateKind = state.GetType().Name,
+                    Invocations = info.invocations,
+                    SllTotalLookahead = info.SLL_TotalLook,
+                    SllMaxLookahead = info.SLL_MaxLook,
+                    LlFallbacks = info.LL_Fallback,
+                    LlTotalLookahead = info.LL_TotalLook,
+                    LlMaxLookahead = info.LL_MaxLook,
+                    Ambiguities = info.ambiguities.Count,
+                    ContextSensitivities = info.contextSensitivities.Count,
+                    Errors = info.errors.Count,
+                    DfaHitRatio = dfa + atn == 0 ? 0 : (double)dfa / (dfa + atn),
+                    PredictionTime = info.timeInPrediction
+                });
+            }
+
+            return new ParserProfileReport { Formulas = formulas, Rejected = rejected, Decisions = decisions };
+        }
+
+        // Суміш службового корпусу прогріву й синтетичної таблиці з усіма операторами граматики
+        public static IEnumerable<string> DefaultCorpus(int rows = 500, ulong seed = 1)
+        {
+            var generator = new SheetGenerator(new SheetGeneratorOptions
+            {
+                Rows = rows,
+                Columns = 8,
+                FormulaDensity = 1,
+                MaxOperands = 6,
+                ComparisonShare = 0.3,
+                IncDecShare = 0.3,
+                Seed = seed
+            });
+
+            return Parser.WarmUpFormulas.Concat(
+                generator.GenerateRows().SelectMany(row => row).Where(cell => cell.StartsWith("=")));
+        }
+    }
+}
@@ -0,0 +1,512 @@
+using System;
+using System.Collections.Concurrent;
+using System.Collections.Generic;
+using System.Threading;
+using System.Threading.Tasks;
+
+namespace TableManager.App.Controllers
+{
+    public class RecalcStatistics
+    {
+        private int _evaluated;
+        private int _skipped;
+        private int _cycles;
+
+        // Скільки формул реально обчислено за прохід
+        public int Evaluated => _evaluated;
+        // Скільки повторних обчислень формул вдалося уникнути завдяки збереженим значенням
+        public int Skipped => _skipped;
+        public int Cycles => _cycles;
+        public int Levels { get; internal set; }
+        // Скільки рівнів оброблено паралельно
+        public int ParallelLevels { get; internal set; }
+        // Скільки формул обчислено пакетно через BatchFormulaEvaluator
+        public int Batched { get; internal set; }
+
+        internal void AddEvaluated() => Interlocked.Increment(ref _evaluated);
+        internal void AddSkipped() => Interlocked.Increment(ref _skipped);
+        internal void AddCycle() => _cycles++;
+    }
+
+    // Перераховує змінені клітинки та їхніх залежних у топологічному порядку: кожна клітинка
+    // обчислюється рівно один раз, значення зберігаються між проходами.
+    public class RecalcScheduler : ICellValueSource
+    {
+        private const byte Unknown = 0;
+        private const byte InProgress = 1;
+        private const byte Computed = 2;
+
+        private readonly DependencyGraph _graph;
+        private Func<CellAddress, string?> _getCellText = _ => null;
+        private RecalcStatistics _stats = new();
+
+        private readonly CellStore _values = new CellStore();
+        private readonly SubexpressionDag _subexpressions = new SubexpressionDag();
+        private byte[] _states = new byte[16];
+        private bool[] _isFormula = new bool[16];
+        private int[] _inDegree = new int[16];
+        private int[] _levels = new int[16];
+        private int[] _dirtyMarks = new int[16];
+        private int _stamp;
+        // Явний стек обчислення на вимогу; окремий для кожного потоку паралельного рівня
+        [ThreadStatic] private static WorkStack? _work;
+
+        public RecalcScheduler(DependencyGraph graph)
+        {
+            _graph = graph;
+        }
+
+        public RecalcStatistics LastPass => _stats;
+
+        // Паралельний режим вмикається явно; рівні, менші за поріг, рахуються у викликаючому потоці
+        public bool ParallelEnabled { get; set; }
+        public int ParallelThreshold { get; set; } = 512;
+
+        // Обчислені значення по стовпцях; читання за адресою — без пошуку вузла
+        public CellStore Values => _values;
+
+        // Спільні підвирази формул обчислюються раз за прохід; статистика — у Subexpressions
+        public bool ShareSubexpressions { get; set; }
+        public SubexpressionDag Subexpressions => _subexpressions;
+
+        // Формули одного рівня з однаковим R1C1-шаблоном у щонайменше BatchThreshold сусідніх
+        // рядках стовпця рахуються BatchFormulaEvaluator за один виклик
+        public bool BatchTemplates { get; set; } = true;
+        public int BatchThreshold { get; set; } = 64;
+
+        public FormulaValue GetValue(int node) => _values.GetCellValue(_graph.GetAddress(node));
+
+        public void Reset()
+        {
+            Array.Clear(_states);
+            _values.Clear();
+            _subexpressions.Clear();
+        }
+
+        public void Invalidate(int node)
+        {
+            if (node < _states.Length)
+                _states[node] = Unknown;
+            _values.Remove(_graph.GetAddress(node));
+            _subexpressions.BeginPass();
+        }
+
+        // Повертає всі зачеплені вузли в порядку обчислення; вузли з циклів — у кінці
+        public List<int> Recalculate(IReadOnlyCollection<int> changed, Func<CellAddress, string?> getCellText)
+        {
+            long started = FormulaMetrics.Start();
+            _getCellText = getCellText;
+            _stats = new RecalcStatistics();
+            EnsureCapacity(_graph.NodeCount);
+            _subexpressions.BeginPass();
+
+            int stamp = NextStamp();
+            var dirty = new List<int>(changed.Count);
+            foreach (int node in changed)
+                MarkDirty(node, stamp, dirty);
+            foreach (int node in _graph.CollectDependents(changed))
+                MarkDirty(node, stamp, dirty);
+
+            // Масиви сховища не розширюються під час паралельного обчислення
+            foreach (int node in dirty)
+                _values.Reserve(_graph.GetAddress(node));
+
+            var order = TopologicalOrder(dirty, stamp);
+
+            if ((ParallelEnabled && order.Count >= ParallelThreshold) ||
+                (BatchTemplates && BatchFormulaEvaluator.VectorEnabled && order.Count >= BatchThreshold))
+                ComputeByLevels(order, stamp);
+            else
+            {
+                foreach (int node in order)
+                    Compute(node);
+            }
+
+            if (order.Count < dirty.Count)
+            {
+                foreach (int node in dirty)
+                {
+                    if (_states[node] == Computed)
+                        continue;
+
+                    _values.Set(_graph.GetAddress(node), FormulaValue.CycleError);
+                    _states[node] = Computed;
+                    _stats.AddCycle();
+                    order.Add(node);
+                }
+            }
+
+            FormulaMetrics.Stop(MetricPhase.Recalc, started);
+            FormulaMetrics.RecordRecalc(_stats.Evaluated);
+            return order;
+        }
+
+        public FormulaValue GetCellValue(CellAddress address)
+        {
+            if (!_graph.TryGetNode(address, out int node) || node >= _states.Length)
+                return ParseConstant(_getCellText(address));
+
+            switch (_states[node])
+            {
+                case Computed:
+                    if (_isFormula[node])
+                        _stats.AddSkipped();
+                    return _values.GetCellValue(address);
+                case InProgress:
+                    return FormulaValue.CycleError;
+                default:
+                    Compute(node);
+                    return _values.GetCellValue(address);
+            }
+        }
+
+        private void MarkDirty(int node, int stamp, List<int> dirty)
+        {
+            if (_dirtyMarks[node] == stamp)
+                return;
+
+            _dirtyMarks[node] = stamp;
+            _states[node] = Unknown;
+            dirty.Add(node);
+        }
+
+        // Алгоритм Кана лише по підграфу змінених клітинок
+        private List<int> TopologicalOrder(List<int> dirty, int stamp)
+        {
+            var order = new List<int>(dirty.Count);
+            var ready = new Queue<int>();
+
+            foreach (int node in dirty)
+            {
+                int degree = 0;
+                foreach (int precedent in _graph.GetPrecedents(node))
+                {
+                    if (_dirtyMarks[precedent] == stamp)
+                        degree++;
+                }
+
+                _inDegree[node] = degree;
+                _levels[node] = 0;
+                if (degree == 0)
+                    ready.Enqueue(node);
+            }
+
+            while (ready.Count > 0)
+            {
+                int node = ready.Dequeue();
+                order.Add(node);
+
+                foreach (int dependent in _graph.GetDependents(node))
+                {
+                    if (_dirtyMarks[dependent] != stamp)
+                        continue;
+
+                    _levels[dependent] = Math.Max(_levels[dependent], _levels[node] + 1);
+                    if (--_inDegree[dependent] == 0)
+                        ready.Enqueue(dependent);
+                }
+            }
+
+            return order;
+        }
+
+        // Клітинки одного рівня не залежать одна від одної, тому рівень можна рахувати паралельно.
+        // Кожна клітинка пише лише у свій слот, тож результат збігається з послідовним.
+        private void ComputeByLevels(List<int> order, int stamp)
+        {
+            // Чисті (не змінені) попередники обчислюються заздалегідь у цьому потоці,
+            // щоб паралельні задачі лише читали готові значення
+            foreach (int node in order)
+            {
+                foreach (int precedent in _graph.GetPrecedents(node))
+                {
+                    if (_dirtyMarks[precedent] != stamp && _states[precedent] == Unknown)
+                        Compute(precedent);
+                }
+            }
+
+            int levelCount = 0;
+            foreach (int node in order)
+                levelCount = Math.Max(levelCount, _levels[node] + 1);
+
+            var levelStarts = new int[levelCount + 1];
+            foreach (int node in order)
+                levelStarts[_levels[node] + 1]++;
+            for (int i = 1; i <= levelCount; i++)
+                levelStarts[i] += levelStarts[i - 1];
+
+            var byLevel = new int[order.Count];
+            var next = (int[])levelStarts.Clone();
+            foreach (int node in order)
+                byLevel[next[_levels[node]]++] = node;
+
+            _stats.Levels = levelCount;
+            int chunkSize = Math.Max(64, order.Count / (Environment.ProcessorCount * 4));
+
+            for (int level = 0; level < levelCount; level++)
+            {
+                int start = levelStarts[level];
+                int end = levelStarts[level + 1];
+
+                // Пакети рахуються в цьому потоці; вже обчислені ними клітинки далі пропускаються
+                if (BatchTemplates && BatchFormulaEvaluator.VectorEnabled && end - start >= BatchThreshold)
+                    ComputeBatches(byLevel, start, end);
+
+                if (!ParallelEnabled || end - start < ParallelThreshold)
+                {
+                    for (int i = start; i < end; i++)
+                    {
+                        if (_states[byLevel[i]] != Computed)
+                            Compute(byLevel[i]);
+                    }
+                    continue;
+                }
+
+                _stats.ParallelLevels++;
+                Parallel.ForEach(Partitioner.Create(start, end, chunkSize), range =>
+                {
+                    for (int i = range.Item1; i < range.Item2; i++)
+                    {
+                        if (_states[byLevel[i]] != Computed)
+                            Compute(byLevel[i]);
+                    }
+                });
+            }
+
+            // Порядок повернення — за рівнями, як і обчислювали
+            order.Clear();
+            order.AddRange(byLevel);
+        }
+
+        // Шукає в рівні відрізки сусідніх рядків одного стовпця з тим самим шаблоном і рахує кожен
+        // BatchFormulaEvaluator просто в CellStore. Береться лише формула, всі посилання якої —
+        // уже обчислені вузли: тоді пакет читає з CellStore те саме, що прочитав би GetCellValue.
+        private void ComputeBatches(int[] byLevel, int start, int end)
+        {
+            var candidates = new List<BatchCandidate>();
+            for (int i = start; i < end; i++)
+            {
+                int node = byLevel[i];
+                var address = _graph.GetAddress(node);
+                string? text = _getCellText(address);
+                if (text == null || !text.StartsWith("="))
+                    continue;
+
+                var formula = FormulaCompiler.GetOrCompile(text, address);
+                if (formula != null && formula.IsRelative && ReferencesComputed(formula, address))
+                    candidates.Add(new BatchCandidate(node, address, formula));
+            }
+
+            if (candidates.Count < BatchThreshold)
+                return;
+
+            candidates.Sort(BatchCandidate.Compare);
+
+            int runStart = 0;
+            for (int i = 1; i <= candidates.Count; i++)
+            {
+                if (i < candidates.Count && candidates[i].Follows(candidates[i - 1]))
+                    continue;
+
+                if (i - runStart >= BatchThreshold)
+                    ComputeBatch(candidates, runStart, i);
+                runStart = i;
+            }
+        }
+
+        private void ComputeBatch(List<BatchCandidate> candidates, int start, int end)
+        {
+            var first = candidates[start];
+            var evaluator = new BatchFormulaEvaluator(first.Formula);
+            if (!evaluator.CanVectorize)
+                return;
+
+            long started = FormulaMetrics.Start();
+            evaluator.Evaluate(_values, first.Address.Column, first.Address.Row, first.Address.Row + (end - start));
+            FormulaMetrics.Stop(MetricPhase.Evaluate, started);
+
+            for (int i = start; i < end; i++)
+            {
+                int node = candidates[i].Node;
+                _isFormula[node] = true;
+                _states[node] = Computed;
+                _stats.AddEvaluated();
+            }
+            _stats.Batched += end - start;
+        }
+
+        private bool ReferencesComputed(CompiledFormula formula, CellAddress host)
+        {
+            for (int i = 0; i < formula.References.Count; i++)
+            {
+                if (!_graph.TryGetNode(formula.GetReference(i, host), out int precedent) ||
+                    precedent >= _states.Length || _states[precedent] != Computed)
+                    return false;
+            }
+            return true;
+        }
+
+        // Обчислює вузол разом з усіма ще не обчисленими вузлами, від яких він залежить.
+        // Замість рекурсії через GetCellValue — явний стек, як у NativeSheetStore: ланцюжок
+        // A2=(A1+1), A3=(A2+1), ... на сотні тисяч рядків не переповнює стек потоку. Формула
+        // обчислюється, коли всі її посилання вже готові; вузли на стеку позначені InProgress,
+        // тож посилання на них дає #CYCLE. Стек свій у кожного потоку паралельного рівня.
+        private void Compute(int node)
+        {
+            var work = _work ??= new WorkStack();
+            int bottom = work.Count;
+            Push(work, node);
+
+            while (work.Count > bottom)
+            {
+                ref var frame = ref work.Items[work.Count - 1];
+
+                bool descended = false;
+                if (frame.Formula != null)
+                {
+                    var address = _graph.GetAddress(frame.Node);
+                    while (frame.Next < frame.Formula.References.Count)
+                    {
+                        var reference = frame.Formula.GetReference(frame.Next++, address);
+                        if (_graph.TryGetNode(reference, out int precedent) && precedent < _states.Length &&
+                            _states[precedent] == Unknown)
+                        {
+                            // Push може перевиділити стек, тож frame далі не використовується
+                            Push(work, precedent);
+                            descended = true;
+                            break;
+                        }
+                    }
+                }
+
+                if (descended)
+                    continue;
+
+                // Кадр знімається до обчислення: вкладений виклик Compute з GetCellValue
+                // кладе свої кадри поверх і може перевиділити масив
+                var current = frame;
+                work.Count--;
+                Finish(current);
+            }
+        }
+
+        private void Push(WorkStack work, int node)
+        {
+            _states[node] = InProgress;
+
+            var address = _graph.GetAddress(node);
+            string? text = _getCellText(address);
+            bool isFormula = text != null && text.StartsWith("=");
+
+            if (work.Count == work.Items.Length)
+                Array.Resize(ref work.Items, work.Items.Length * 2);
+
+            work.Items[work.Count++] = new Frame
+            {
+                Node = node,
+                Text = text,
+                IsFormula = isFormula,
+                Formula = isFormula ? FormulaCompiler.GetOrCompile(text!, address) : null
+            };
+        }
+
+        private void Finish(Frame frame)
+        {
+            var address = _graph.GetAddress(frame.Node);
+            FormulaValue value;
+
+            if (frame.IsFormula)
+            {
+                long started = FormulaMetrics.Start();
+                if (frame.Formula == null)
+                    value = FormulaValue.GeneralError;
+                else if (ShareSubexpressions)
+                    value = _subexpressions.Evaluate(address, frame.Formula, this);
+                else
+                    value = frame.Formula.Evaluate(this, address);
+                FormulaMetrics.Stop(MetricPhase.Evaluate, started);
+                _isFormula[frame.Node] = true;
+                _stats.AddEvaluated();
+            }
+            else
+            {
+                value = ParseConstant(frame.Text);
+                _isFormula[frame.Node] = false;
+            }
+
+            _values.Set(address, value);
+            _states[frame.Node] = Computed;
+        }
+
+        public static FormulaValue ParseConstant(string? text)
+        {
+            if (text == null)
+                return FormulaValue.RefError;
+
+            if (string.IsNullOrWhiteSpace(text))
+                return FormulaValue.Zero;
+
+            if (FormulaValue.TryParseNumber(text, out double number))
+                return FormulaValue.FromNumber(number);
+
+            return FormulaValue.GeneralError;
+        }
+
+        private readonly record struct BatchCandidate(int Node, CellAddress Address, CompiledFormula Formula)
+        {
+            // Наступний рядок того самого стовпця з тим самим шаблоном
+            public bool Follows(BatchCandidate previous)
+            {
+                return Address.Column == previous.Address.Column && Address.Row == previous.Address.Row + 1 &&
+                       ReferenceEquals(Formula, previous.Formula);
+            }
+
+            public static int Compare(BatchCandidate left, BatchCandidate right)
+            {
+                int order = left.Address.Column.CompareTo(right.Address.Column);
+                if (order == 0)
+                    order = string.CompareOrdinal(left.Formula.Text, right.Formula.Text);
+                return order != 0 ? order : left.Address.Row.CompareTo(right.Address.Row);
+            }
+        }
+
+        private struct Frame
+        {
+            public int Node;
+            public string? Text;
+            public bool IsFormula;
+            public CompiledFormula? Formula;
+            // Наступне посилання формули, яке треба перевірити
+            public int Next;
+        }
+
+        private sealed class WorkStack
+        {
+            public Frame[] Items = new Frame[64];
+            public int Count;
+        }
+
+        private int NextStamp()
+        {
+            if (++_stamp == int.MaxValue)
+            {
+                Array.Clear(_dirtyMarks);
+                _stamp = 1;
+            }
+            return _stamp;
+        }
+
+        private void EnsureCapacity(int size)
+        {
+            if (size <= _states.Length)
+                return;
+
+            int capacity = Math.Max(size, _states.Length * 2);
+            Array.Resize(ref _states, capacity);
+            Array.Resize(ref _isFormula, capacity);
+            Array.Resize(ref _inDegree, capacity);
+            Array.Resize(ref _levels, capacity);
+            Array.Resize(ref _dirtyMarks, capacity);
+        }
+    }
+}
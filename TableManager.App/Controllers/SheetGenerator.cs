@@ -0,0 +1,200 @@
+using System;
+using System.Collections.Generic;
+using System.Text;
+
+namespace TableManager.App.Controllers
+{
+    public class SheetGeneratorOptions
+    {
+        public int Rows { get; set; } = 100;
+        public int Columns { get; set; } = 10;
+        // Частка клітинок із формулами серед звичайних (не ланцюжок і не цикл)
+        public double FormulaDensity { get; set; } = 0.5;
+        // Довжина ланцюжків =(A1 + 1), =(A2 + 1), ... у стовпці A; 0 або 1 — без ланцюжків
+        public int ChainDepth { get; set; }
+        // Скільки формул додатково читають одну клітинку A1
+        public int FanOut { get; set; }
+        // Скільки пар клітинок, що посилаються одна на одну
+        public int Cycles { get; set; }
+        public int MaxOperands { get; set; } = 3;
+        // Формула читає клітинки не далі ніж стільки рядків угору
+        public int ReferenceWindow { get; set; } = 10;
+        public double ComparisonShare { get; set; } = 0.1;
+        public double IncDecShare { get; set; } = 0.15;
+        public ulong Seed { get; set; } = 1;
+    }
+
+    // Синтетичні таблиці у форматі FileManager. Результат повністю визначається Seed.
+    // Звичайні формули посилаються лише на клітинки, що стоять раніше в порядку рядків,
+    // тож циклів, крім явно доданих через Cycles, немає.
+    public sealed class SheetGenerator
+    {
+        private static readonly string[] ArithmeticOperators = { " + ", " - ", " * ", " / ", " mod ", " div " };
+        private static readonly string[] ComparisonOperators = { " < ", " <= ", " > ", " >= ", " = ", " <> " };
+
+        private readonly SheetGeneratorOptions _options;
+
+        public SheetGenerator(SheetGeneratorOptions options)
+        {
+            if (options.Rows <= 0 || options.Columns <= 0)
+                throw new ArgumentOutOfRangeException(nameof(options), "Таблиця має містити хоча б одну клітинку");
+            if (options.Cycles > 0 && (options.Columns < 2 || options.Rows < 2 * options.Cycles + 1))
+                throw new ArgumentOutOfRangeException(nameof(options), "Замало рядків для циклів");
+
+            _options = options;
+        }
+
+        public SheetGeneratorOptions Options => _options;
+
+        public void WriteCsv(string path)
+        {
+            CsvSheetWriter.Save(path, GenerateRows());
+        }
+
+        public IEnumerable<string[]> GenerateRows()
+        {
+            var random = new SplitMix64(_options.Seed);
+            var cycleRows = GetCycleRows();
+            var formula = new StringBuilder();
+            int hotReaders = 0;
+            int lastColumn = _options.Columns - 1;
+            bool chains = _options.ChainDepth > 1;
+
+            for (int row = 0; row < _options.Rows; row++)
+            {
+                var cells = new string[_options.Columns];
+                for (int column = 0; column < _options.Columns; column++)
+                {
+                    if (column == lastColumn && cycleRows.TryGetValue(row, out int partner))
+                    {
+                        cells[column] = $"=({CellName(partner, lastColumn)} + 1)";
+                        continue;
+                    }
+
+                    if (chains && column == 0)
+                    {
+                        cells[column] = row % _options.ChainDepth == 0
+                            ? random.Next(1, 100).ToString()
+                            : $"=({CellName(row - 1, 0)} + 1)";
+                        continue;
+                    }
+
+                    // A1 завжди число: на неї посилаються формули з FanOut
+                    if ((row == 0 && column == 0) || random.NextDouble() >= _options.FormulaDensity)
+                    {
+                        cells[column] = random.Next(0, 1000).ToString();
+                        continue;
+                    }
+
+                    formula.Clear().Append("=(");
+                    AppendArithmetic(formula, random, row, column);
+                    if (hotReaders < _options.FanOut)
+                    {
+                        formula.Append(" + A1");
+                        hotReaders++;
+                    }
+                    if (random.NextDouble() < _options.ComparisonShare)
+                    {
+                        formula.Append(ComparisonOperators[random.Next(0, ComparisonOperators.Length)]);
+                        AppendArithmetic(formula, random, row, column);
+                    }
+                    cells[column] = formula.Append(')').ToString();
+                }
+                yield return cells;
+            }
+        }
+
+        // Рядки з циклами й рядок-партнер для кожного: (r, r + 1) посилаються один на одного
+        private Dictionary<int, int> GetCycleRows()
+        {
+            var rows = new Dictionary<int, int>();
+            for (int i = 0; i < _options.Cycles; i++)
+            {
+                int row = (int)((long)(i + 1) * (_options.Rows - 1) / (_options.Cycles + 1));
+                while (rows.ContainsKey(row) || rows.ContainsKey(row + 1))
+                    row++;
+                if (row + 1 >= _options.Rows)
+                    break;
+                rows[row] = row + 1;
+                rows[row + 1] = row;
+            }
+            return rows;
+        }
+
+        private void AppendArithmetic(StringBuilder formula, SplitMix64 random, int row, int column)
+        {
+            int operands = random.Next(1, _options.MaxOperands + 1);
+            for (int i = 0; i < operands; i++)
+            {
+                if (i > 0)
+                    formula.Append(ArithmeticOperators[random.Next(0, ArithmeticOperators.Length)]);
+
+                bool wrap = random.NextDouble() < _options.IncDecShare;
+                if (wrap)
+                    formula.Append(random.Next(0, 2) == 0 ? "inc(" : "dec(");
+
+                AppendOperand(formula, random, row, column);
+
+                if (wrap)
+                    formula.Append(')');
+            }
+        }
+
+        private void AppendOperand(StringBuilder formula, SplitMix64 random, int row, int column)
+        {
+            if (random.Next(0, 4) == 0 || (row == 0 && column == 0))
+            {
+                formula.Append(random.Next(1, 100));
+                return;
+            }
+
+            // Лише клітинки раніше за поточну: або вище, або лівіше в тому самому рядку
+            int targetRow = row - random.Next(0, Math.Min(row, _options.ReferenceWindow) + 1);
+            if (targetRow == row && column == 0)
+            {
+                formula.Append(random.Next(1, 100));
+                return;
+            }
+
+            int targetColumn = targetRow == row
+                ? random.Next(0, column)
+                : random.Next(0, _options.Columns);
+
+            formula.Append(CellName(targetRow, targetColumn));
+        }
+
+        private static string CellName(int row, int column)
+        {
+            return CellAddress.GetColumnName(column) + (row + 1);
+        }
+
+        // Детермінований генератор, що не залежить від реалізації System.Random у рантаймі
+        private sealed class SplitMix64
+        {
+            private ulong _state;
+
+            public SplitMix64(ulong seed)
+            {
+                _state = seed;
+            }
+
+            public ulong NextULong()
+            {
+                ulong z = _state += 0x9E3779B97F4A7C15UL;
+                z = (z ^ (z >> 30)) * 0xBF58476D1CE4E5B9UL;
+                z = (z ^ (z >> 27)) * 0x94D049BB133111EBUL;
+                return z ^ (z >> 31);
+            }
+
+            public double NextDouble() => (NextULong() >> 11) * (1.0 / (1UL << 53));
+
+            // [min, max)
+            public int Next(int min, int max)
+            {
+                if (max <= min)
+                    return min;
+                return min + (int)(NextULong() % (ulong)(max - min));
+            }
+        }
+    }
+}
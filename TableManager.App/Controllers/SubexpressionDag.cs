@@ -0,0 +1,249 @@
+using System;
+using System.Collections.Concurrent;
+using System.Collections.Generic;
+using System.Threading;
+
+namespace TableManager.App.Controllers
+{
+    public class SubexpressionStatistics
+    {
+        // Усього різних підвиразів (разом із листками) у графі
+        public int Nodes { get; init; }
+        // Внутрішні підвирази (не листки), на які посилається більше ніж одна формула чи вузол
+        public int SharedNodes { get; init; }
+        public int Cells { get; init; }
+        public long ApproximateBytes { get; init; }
+        // Обчислення підвиразу, взяті з кешу поточного проходу
+        public long Hits { get; init; }
+        public long Misses { get; init; }
+
+        public double HitRatio => Hits + Misses == 0 ? 0 : (double)Hits / (Hits + Misses);
+    }
+
+    // Спільний граф підвиразів для всіх формул таблиці (hash-consing). Шаблон кожної клітинки
+    // переводиться в абсолютні адреси, і структурно однакові піддерева на однакових клітинках
+    // стають одним вузлом: (A1+B1) у =((A1+B1)*2) та у =((A1+B1)+C1) — той самий об'єкт.
+    // Внутрішній вузол запам'ятовує значення до початку наступного проходу (BeginPass),
+    // тож кожен різний підвираз обчислюється раз за прохід перерахунку.
+    //
+    // Вузли старих формул не видаляються: після масових змін графа варто викликати Clear.
+    public sealed class SubexpressionDag
+    {
+        // Оцінка розміру вузла разом із записом у словнику інтернування
+        private const int BytesPerNode = 96;
+        private const int BytesPerCell = 48;
+
+        private readonly Dictionary<NodeKey, Entry> _interned = new();
+        private readonly ConcurrentDictionary<CellAddress, CellRoot> _roots = new();
+        private readonly object _sync = new();
+        private int _sharedNodes;
+        private int _pass = 1;
+        // Попадання рахуються з паралельних рівнів перерахунку, тож лічильники рознесені
+        private readonly StripedCounter _hits = new StripedCounter();
+        private readonly StripedCounter _misses = new StripedCounter();
+
+        public int NodeCount
+        {
+            get
+            {
+                lock (_sync)
+                    return _interned.Count;
+            }
+        }
+
+        // Усі значення, запам'ятовані до цього виклику, стають недійсними
+        public void BeginPass()
+        {
+            Interlocked.Increment(ref _pass);
+        }
+
+        public void Clear()
+        {
+            lock (_sync)
+            {
+                _interned.Clear();
+                _roots.Clear();
+                _sharedNodes = 0;
+                BeginPass();
+            }
+        }
+
+        // Корінь формули клітинки в спільному графі; перебудовується, якщо шаблон змінився
+        public FormulaNode GetRoot(CellAddress host, CompiledFormula formula)
+        {
+            if (_roots.TryGetValue(host, out var root) && ReferenceEquals(root.Formula, formula))
+                return root.Node;
+
+            lock (_sync)
+            {
+                var node = Intern(formula.Root, host).Node;
+                _roots[host] = new CellRoot(formula, node);
+                return node;
+            }
+        }
+
+        public FormulaValue Evaluate(CellAddress host, CompiledFormula formula, ICellValueSource cells)
+        {
+            return GetRoot(host, formula).Evaluate(cells);
+        }
+
+        public SubexpressionStatistics GetStatistics()
+        {
+            lock (_sync)
+            {
+                return new SubexpressionStatistics
+                {
+                    Nodes = _interned.Count,
+                    SharedNodes = _sharedNodes,
+                    Cells = _roots.Count,
+                    ApproximateBytes = (long)_interned.Count * BytesPerNode + (long)_roots.Count * BytesPerCell,
+                    Hits = _hits.Sum,
+                    Misses = _misses.Sum
+                };
+            }
+        }
+
+        private Entry Intern(FormulaNode node, CellAddress host)
+        {
+            NodeKey key;
+            FormulaNode? left = null;
+            FormulaNode? right = null;
+
+            switch (node)
+            {
+                case NumberNode number:
+                    key = new NodeKey(NodeKind.Number, BitConverter.DoubleToInt64Bits(number.Value), 0, 0);
+                    break;
+
+                case CellReferenceNode reference:
+                {
+                    var address = reference.IsRelative
+                        ? reference.Address.Offset(host.Row, host.Column)
+                        : reference.Address;
+                    // Усі невалідні адреси дають #REF, тож і вузол для них один
+                    if (!address.IsValid)
+                        address = new CellAddress(-1, -1);
+                    key = new NodeKey(NodeKind.Reference, address.Pack(), 0, 0);
+                    left = new CellReferenceNode(address);
+                    break;
+                }
+
+                case IncDecNode incDec:
+                {
+                    var operand = Intern(incDec.Operand, host);
+                    left = operand.Node;
+                    key = new NodeKey(NodeKind.IncDec, BitConverter.DoubleToInt64Bits(incDec.Delta), operand.Id, 0);
+                    break;
+                }
+
+                case BinaryNode binary:
+                {
+                    var l = Intern(binary.Left, host);
+                    var r = Intern(binary.Right, host);
+                    left = l.Node;
+                    right = r.Node;
+                    key = new NodeKey(NodeKind.Binary, (long)binary.Operator, l.Id, r.Id);
+                    break;
+                }
+
+                case ComparisonNode comparison:
+                {
+                    var l = Intern(comparison.Left, host);
+                    var r = Intern(comparison.Right, host);
+                    left = l.Node;
+                    right = r.Node;
+                    key = new NodeKey(NodeKind.Comparison, (long)comparison.Operator, l.Id, r.Id);
+                    break;
+                }
+
+                default:
+                    throw new InvalidOperationException($"Невідомий вузол {node.GetType().Name}");
+            }
+
+            if (_interned.TryGetValue(key, out var entry))
+            {
+                if (entry.Uses++ == 1 && entry.Node is SharedNode)
+                    _sharedNodes++;
+                return entry;
+            }
+
+            FormulaNode shared = key.Kind switch
+            {
+                NodeKind.Number => node,
+                NodeKind.Reference => left!,
+                NodeKind.IncDec => new SharedNode(this, new IncDecNode(left!, ((IncDecNode)node).Delta)),
+                NodeKind.Binary => new SharedNode(this, new BinaryNode(((BinaryNode)node).Operator, left!, right!)),
+                _ => new SharedNode(this, new ComparisonNode(((ComparisonNode)node).Operator, left!, right!))
+            };
+
+            entry = new Entry(_interned.Count, shared);
+            _interned.Add(key, entry);
+            return entry;
+        }
+
+        private enum NodeKind : byte
+        {
+            Number,
+            Reference,
+            IncDec,
+            Binary,
+            Comparison
+        }
+
+        private readonly record struct NodeKey(NodeKind Kind, long Value, int Left, int Right);
+
+        private sealed class Entry
+        {
+            public Entry(int id, FormulaNode node)
+            {
+                Id = id;
+                Node = node;
+            }
+
+            public int Id { get; }
+            public FormulaNode Node { get; }
+            public int Uses { get; set; } = 1;
+        }
+
+        private readonly record struct CellRoot(CompiledFormula Formula, FormulaNode Node);
+
+        // Вузол, що запам'ятовує значення внутрішнього вузла до наступного BeginPass.
+        // Паралельні потоки можуть обчислити його одночасно — значення в них однакові.
+        private sealed class SharedNode : FormulaNode
+        {
+            private readonly SubexpressionDag _owner;
+            private readonly FormulaNode _inner;
+            private FormulaValue _value;
+            private int _pass;
+
+            public SharedNode(SubexpressionDag owner, FormulaNode inner)
+            {
+                _owner = owner;
+                _inner = inner;
+            }
+
+            // Внутрішні вузли вже в абсолютних адресах, host їм не потрібен
+            public override FormulaValue Evaluate(ICellValueSource cells, CellAddress host)
+            {
+                int pass = Volatile.Read(ref _owner._pass);
+                if (Volatile.Read(ref _pass) == pass)
+                {
+                    _owner._hits.Increment();
+                    return _value;
+                }
+
+                _owner._misses.Increment();
+                var value = _inner.Evaluate(cells, host);
+
+                // #CYCLE виникає, коли клітинка ще обчислюється вище по стеку; таке значення
+                // залежить від порядку обходу, тож його не запам'ятовуємо
+                if (value.Error != FormulaValue.CycleErrorCode)
+                {
+                    _value = value;
+                    Volatile.Write(ref _pass, pass);
+                }
+                return value;
+            }
+        }
+    }
+}
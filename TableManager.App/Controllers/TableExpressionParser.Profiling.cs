@@ -0,0 +1,13 @@
+using Antlr4.Runtime.Atn;
+
+// Доповнення до згенерованого парсера; сам TableExpressionParser.cs не редагується
+public partial class TableExpressionParser
+{
+    // Замінює ATN-симулятор на профілюючий; кеш DFA лишається спільним з рештою парсерів
+    public ProfilingATNSimulator EnableProfiling()
+    {
+        var profiler = new ProfilingATNSimulator(this);
+        Interpreter = profiler;
+        return profiler;
+    }
+}
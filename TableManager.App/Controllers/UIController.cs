@@ -9,6 +9,24 @@ namespace TableManager.App.Controllers
 {
     public class UIController
     {
+        private readonly DependencyGraph _dependencies;
+        private readonly RecalcScheduler _scheduler;
+        private Dictionary<string, CellViewModel>? _indexedCells;
+
+        public UIController()
+        {
+            _dependencies = new DependencyGraph();
+            _scheduler = new RecalcScheduler(_dependencies);
+        }
+
+        public RecalcStatistics LastRecalcStatistics => _scheduler.LastPass;
+
+        public bool ParallelRecalculation
+        {
+            get => _scheduler.ParallelEnabled;
+            set => _scheduler.ParallelEnabled = value;
+        }
+
         public void CalculateCell(
             CellViewModel cell,
             Dictionary<string, CellViewModel> cellMap)
@@ -37,11 +55,10 @@ namespace TableManager.App.Controllers
                 return;
             }
 
-            var allCells = new Dictionary<string, string>();
-            foreach (var kvp in cellMap)
-                allCells[kvp.Key] = kvp.Value.Value;
-
-            if (Evaluator.DetectCycle(cell.CellName, allCells))
+            // Належність до циклу підтримується графом залежностей, тут лише O(1) перевірка.
+            // Клітинки нижче за циклом отримують #CYCLE під час обчислення.
+            EnsureDependencies(new[] { cell.CellName }, cellMap);
+            if (CellAddress.TryParse(cell.CellName, out var address) && _dependencies.IsInCycle(address))
             {
                 cell.DisplayValue = "#CYCLE";
                 cell.HasError = true;
@@ -49,18 +66,27 @@ namespace TableManager.App.Controllers
                 return;
             }
 
-            var cellValues = new Dictionary<string, string>();
-            foreach (var kvp in cellMap)
-                cellValues[kvp.Key] = kvp.Value.Value;
+            // Тексти читаються прямо з cellMap, без копіювання всієї таблиці в словник
+            var cells = new DictionaryCellSource(name => cellMap.TryGetValue(name, out var c) ? c.Value : null);
+            var result = Evaluator.Evaluate(cell.Value, cells);
 
-            var result = Evaluator.Evaluate(cell.Value, cellValues);
+            ApplyResult(cell, result);
+        }
 
+        private static void ApplyResult(CellViewModel cell, EvaluationResult result)
+        {
             if (result.Success)
             {
                 cell.DisplayValue = result.GetDisplayValue();
                 cell.HasError = false;
                 cell.ErrorMessage = "";
             }
+            else if (result.Error == FormulaValue.CycleErrorCode)
+            {
+                cell.DisplayValue = "#CYCLE";
+                cell.HasError = true;
+                cell.ErrorMessage = "Циклічне посилання";
+            }
             else
             {
                 cell.DisplayValue = result.Error.StartsWith("#") ? result.Error : "#ERROR";
@@ -69,13 +95,46 @@ namespace TableManager.App.Controllers
             }
         }
 
+        private static void ApplyValue(CellViewModel cell, FormulaValue value)
+        {
+            if (string.IsNullOrWhiteSpace(cell.Value))
+            {
+                cell.DisplayValue = "";
+                cell.HasError = false;
+                cell.ErrorMessage = "";
+                return;
+            }
+
+            if (!cell.Value.StartsWith("="))
+            {
+                cell.DisplayValue = cell.Value;
+                cell.HasError = false;
+                cell.ErrorMessage = "";
+                return;
+            }
+
+            ApplyResult(cell, value.ToResult());
+        }
+
         public void RecalculateAll(
             ObservableCollection<RowViewModel> rows,
             Dictionary<string, CellViewModel> cellMap)
         {
+            RebuildDependencies(cellMap);
+
+            var nodes = new List<int>();
             foreach (var row in rows)
+            {
                 foreach (var cell in row.Cells)
-                    CalculateCell(cell, cellMap);
+                {
+                    if (CellAddress.TryParse(cell.CellName, out var address) && _dependencies.TryGetNode(address, out int node))
+                        nodes.Add(node);
+                    else
+                        CalculateCell(cell, cellMap);
+                }
+            }
+
+            RecalculateNodes(nodes, cellMap);
         }
 
         public void RecalculateChanged(
@@ -85,56 +144,96 @@ namespace TableManager.App.Controllers
             if (changedCells.Count == 0)
                 return;
 
-            var allToRecalc = new HashSet<string>(changedCells);
-            var dependents = FindAllDependents(changedCells, cellMap);
-
-            foreach (var dep in dependents)
-                allToRecalc.Add(dep);
+            EnsureDependencies(changedCells, cellMap);
 
-            foreach (var cellName in allToRecalc)
+            var roots = new List<int>();
+            foreach (var cellName in changedCells)
             {
-                if (cellMap.ContainsKey(cellName))
-                {
-                    CalculateCell(cellMap[cellName], cellMap);
-                }
+                if (CellAddress.TryParse(cellName, out var address) && _dependencies.TryGetNode(address, out int node))
+                    roots.Add(node);
+                else if (cellMap.TryGetValue(cellName, out var cell))
+                    CalculateCell(cell, cellMap);
             }
 
+            RecalculateNodes(roots, cellMap);
+
             changedCells.Clear();
         }
+
+        // Кожна зачеплена клітинка обчислюється один раз у порядку залежностей
+        private void RecalculateNodes(List<int> roots, Dictionary<string, CellViewModel> cellMap)
+        {
+            var order = _scheduler.Recalculate(
+                roots,
+                address => cellMap.TryGetValue(address.ToString(), out var cell) ? cell.Value : null);
+
+            foreach (int node in order)
+            {
+                if (cellMap.TryGetValue(_dependencies.GetAddress(node).ToString(), out var cell))
+                    ApplyValue(cell, _scheduler.GetValue(node));
+            }
+        }
+
         public HashSet<string> FindAllDependents(
             HashSet<string> changedCells,
             Dictionary<string, CellViewModel> cellMap)
         {
-            var result = new HashSet<string>();
-            var queue = new Queue<string>(changedCells);
-            var visited = new HashSet<string>();
+            EnsureDependencies(changedCells, cellMap);
 
-            while (queue.Count > 0)
+            var roots = new List<int>();
+            foreach (var name in changedCells)
             {
-                var current = queue.Dequeue();
-                if (visited.Contains(current)) continue;
-                visited.Add(current);
+                if (CellAddress.TryParse(name, out var address) && _dependencies.TryGetNode(address, out int node))
+                    roots.Add(node);
+            }
 
-                foreach (var kvp in cellMap)
-                {
-                    var candidate = kvp.Value;
-                    if (candidate.Value.StartsWith("="))
-                    {
-                        var deps = Parser.GetDependencies(candidate.Value);
-                        if (deps.Contains(current))
-                        {
-                            if (!result.Contains(kvp.Key))
-                            {
-                                result.Add(kvp.Key);
-                                queue.Enqueue(kvp.Key);
-                            }
-                        }
-                    }
-                }
+            var result = new HashSet<string>();
+            foreach (int node in _dependencies.CollectDependents(roots))
+            {
+                string name = _dependencies.GetAddress(node).ToString();
+                if (cellMap.ContainsKey(name))
+                    result.Add(name);
             }
 
             return result;
         }
+
+        // Індекс будується один раз для таблиці, далі оновлюються лише змінені клітинки
+        private void EnsureDependencies(
+            IEnumerable<string> changedCells,
+            Dictionary<string, CellViewModel> cellMap)
+        {
+            if (!ReferenceEquals(_indexedCells, cellMap))
+            {
+                RebuildDependencies(cellMap);
+                return;
+            }
+
+            foreach (var name in changedCells)
+            {
+                if (!CellAddress.TryParse(name, out var address))
+                    continue;
+
+                if (cellMap.TryGetValue(name, out var cell))
+                    _dependencies.UpdateCell(address, cell.Value);
+                else
+                    _dependencies.RemoveCell(address);
+            }
+        }
+
+        private void RebuildDependencies(Dictionary<string, CellViewModel> cellMap)
+        {
+            _dependencies.Clear();
+            _scheduler.Reset();
+            _indexedCells = cellMap;
+
+            foreach (var kvp in cellMap)
+            {
+                if (CellAddress.TryParse(kvp.Key, out var address))
+                    _dependencies.UpdateCell(address, kvp.Value.Value);
+            }
+        }
+
         public void AddRow(
             ObservableCollection<RowViewModel> rows,
             ObservableCollection<string> headers,
@@ -147,6 +246,7 @@ namespace TableManager.App.Controllers
             int colCount = rows[0].Cells.Count;
 
             var newRow = new RowViewModel { RowNumber = $"{newRowIndex}" };
+            var added = new List<string>(colCount);
 
             for (int j = 0; j < colCount; j++)
             {
@@ -162,9 +262,11 @@ namespace TableManager.App.Controllers
 
                 newRow.Cells.Add(cellVM);
                 cellMap[cellName] = cellVM;
+                added.Add(cellName);
             }
 
             rows.Add(newRow);
+            RegisterAddedCells(added, cellMap);
         }
         public void DeleteLastRow(
             ObservableCollection<RowViewModel> rows,
@@ -176,6 +278,7 @@ namespace TableManager.App.Controllers
             foreach (var c in lastRow.Cells)
             {
                 cellMap.Remove(c.CellName);
+                RemoveFromDependencies(c.CellName, cellMap);
             }
 
             rows.RemoveAt(rows.Count - 1);
@@ -193,6 +296,7 @@ namespace TableManager.App.Controllers
             string newColName = getColumnName(newColIndex);
 
             headers.Add(newColName);
+            var added = new List<string>(rows.Count);
 
             for (int i = 0; i < rows.Count; i++)
             {
@@ -206,7 +310,10 @@ namespace TableManager.App.Controllers
 
                 rows[i].Cells.Add(cellVM);
                 cellMap[cellName] = cellVM;
+                added.Add(cellName);
             }
+
+            RegisterAddedCells(added, cellMap);
         }
         public void DeleteLastColumn(
             ObservableCollection<RowViewModel> rows,
@@ -220,6 +327,7 @@ namespace TableManager.App.Controllers
                 var row = rows[i];
                 var lastCell = row.Cells[row.Cells.Count - 1];
                 cellMap.Remove(lastCell.CellName);
+                RemoveFromDependencies(lastCell.CellName, cellMap);
                 row.Cells.RemoveAt(row.Cells.Count - 1);
             }
 
@@ -227,6 +335,40 @@ namespace TableManager.App.Controllers
         }
 
 
+        // Формули, що посилалися на ще не існуючі клітинки, мали #REF; тепер ці клітинки порожні,
+        // тож вони та всі їхні залежні перераховуються
+        private void RegisterAddedCells(List<string> cellNames, Dictionary<string, CellViewModel> cellMap)
+        {
+            if (!ReferenceEquals(_indexedCells, cellMap))
+                return;
+
+            var roots = new List<int>();
+            foreach (var name in cellNames)
+            {
+                if (!CellAddress.TryParse(name, out var address))
+                    continue;
+
+                _dependencies.UpdateCell(address, "");
+                if (_dependencies.TryGetNode(address, out int node) && _dependencies.GetDependents(node).Length > 0)
+                {
+                    _scheduler.Invalidate(node);
+                    roots.Add(node);
+                }
+            }
+
+            if (roots.Count > 0)
+                RecalculateNodes(roots, cellMap);
+        }
+
+        private void RemoveFromDependencies(string cellName, Dictionary<string, CellViewModel> cellMap)
+        {
+            if (!ReferenceEquals(_indexedCells, cellMap) || !CellAddress.TryParse(cellName, out var address))
+                return;
+
+            _dependencies.RemoveCell(address);
+            if (_dependencies.TryGetNode(address, out int node))
+                _scheduler.Invalidate(node);
+        }
 
         public void ForceShowExpressions(ObservableCollection<RowViewModel> rows)
         {
@@ -121,6 +121,8 @@ namespace TableManager.App.Views
 
         private readonly UIController _uiController;
         private readonly FileManager _fileManager;
+        // Синтаксис клітинки, яку редагують: після кожної правки перелексовується лише змінене місце
+        private readonly IncrementalFormulaValidator _editSyntax = new IncrementalFormulaValidator();
 
         public TableView()
         {
@@ -219,6 +221,9 @@ namespace TableManager.App.Views
 
                     TableRows.Add(rowVM);
                 }
+
+                _uiController.RecalculateAll(TableRows, _cellMap);
+
                 var createPanel = this.FindControl<StackPanel>("CreateTablePanel");
                 var editPanel = this.FindControl<StackPanel>("EditTablePanel");
                 var modePanel = this.FindControl<StackPanel>("ModePanel");
@@ -273,10 +278,21 @@ namespace TableManager.App.Views
         {
             if (sender is TextBox textBox && textBox.Tag is CellViewModel cell)
             {
+                _editSyntax.Reset();
                 cell.IsFocused = true;
             }
         }
 
+        private void Cell_TextChanged(object? sender, TextChangedEventArgs e)
+        {
+            if (sender is not TextBox textBox || textBox.Tag is not CellViewModel cell || !cell.IsFocused)
+                return;
+
+            string text = textBox.Text ?? "";
+            bool invalid = text.StartsWith("=") && !_editSyntax.Update(text).IsValid;
+            textBox.Classes.Set("syntax-error", invalid);
+        }
+
         private void Cell_LostFocus(object? sender, Avalonia.Interactivity.RoutedEventArgs e)
         {
             if (sender is TextBox textBox && textBox.Tag is CellViewModel cell)
@@ -290,6 +306,7 @@ namespace TableManager.App.Views
                     _changedCells.Add(cell.CellName);
                 }
                 
+                textBox.Classes.Set("syntax-error", false);
                 cell.IsFocused = false;
             }
         }
@@ -0,0 +1,51 @@
+using BenchmarkDotNet.Attributes;
+using TableManager.App.Controllers;
+
+namespace TableManager.Benchmarks
+{
+    // Одна заповнена вниз формула на стовпці з Rows рядків:
+    // покомірковий інтерпретатор проти пакетного BatchFormulaEvaluator (Vector<double>).
+    // dotnet run -c Release --project TableManager.Benchmarks -- --filter '*BatchEvaluation*'
+    [MemoryDiagnoser]
+    public class BatchEvaluationBenchmarks
+    {
+        private CellStore _cells = null!;
+        private CompiledFormula _template = null!;
+        private BatchFormulaEvaluator _batch = null!;
+
+        [Params(10_000, 1_000_000)]
+        public int Rows { get; set; }
+
+        [Params("=(A1 * 2 + B1 - inc(A1))", "=(A1 / B1 + 1)", "=(A1 + B1 > 10)")]
+        public string Formula { get; set; } = "";
+
+        [GlobalSetup]
+        public void Setup()
+        {
+            FormulaTiering.Enabled = false;
+            var random = new Random(2024);
+            _cells = new CellStore();
+            for (int row = 0; row < Rows; row++)
+            {
+                _cells.Set(new CellAddress(row, 0), FormulaValue.FromNumber(random.Next(-100, 100)));
+                _cells.Set(new CellAddress(row, 1), FormulaValue.FromNumber(random.Next(1, 50)));
+            }
+
+            _template = FormulaCompiler.GetOrCompile(Formula, new CellAddress(0, 2))!;
+            _batch = new BatchFormulaEvaluator(_template);
+        }
+
+        [Benchmark(Baseline = true)]
+        public void CellByCell()
+        {
+            for (int row = 0; row < Rows; row++)
+            {
+                var host = new CellAddress(row, 2);
+                _cells.Set(host, _template.Evaluate(_cells, host));
+            }
+        }
+
+        [Benchmark]
+        public void Batch() => _batch.Evaluate(_cells, 2, 0, Rows);
+    }
+}
@@ -0,0 +1,79 @@
+using System.Collections.ObjectModel;
+using BenchmarkDotNet.Attributes;
+using TableManager.App.Controllers;
+using TableManager.App.Views;
+
+namespace TableManager.Benchmarks
+{
+    // Збереження таблиці з SheetGenerator у CSV:
+    // попередній шлях FileManager (StreamWriter + string.Join на рядок) проти теперішнього
+    // SaveTableToFile через CsvSheetWriter і проти запису прямо з NativeSheetStore.
+    [MemoryDiagnoser]
+    public class CsvWriterBenchmarks
+    {
+        private const int Columns = 10;
+
+        private ObservableCollection<RowViewModel> _rows = null!;
+        private NativeSheetStore _store = null!;
+        private string _path = "";
+
+        [Params(1_000_000, 10_000_000)]
+        public int Cells { get; set; }
+
+        [GlobalSetup]
+        public void Setup()
+        {
+            int rows = Cells / Columns;
+            var generator = new SheetGenerator(new SheetGeneratorOptions
+            {
+                Rows = rows,
+                Columns = Columns,
+                FormulaDensity = 0.5,
+                Seed = 2024
+            });
+
+            _rows = new ObservableCollection<RowViewModel>();
+            _store = new NativeSheetStore(rows, Columns);
+            int row = 0;
+            foreach (var cells in generator.GenerateRows())
+            {
+                var rowVM = new RowViewModel { RowNumber = $"{row + 1}" };
+                for (int column = 0; column < cells.Length; column++)
+                {
+                    rowVM.Cells.Add(new CellViewModel { Value = cells[column] });
+                    _store.SetText(new CellAddress(row, column), cells[column]);
+                }
+                _rows.Add(rowVM);
+                row++;
+            }
+            _store.Recalculate();
+
+            _path = Path.Combine(Path.GetTempPath(), $"csv-writer-{Guid.NewGuid():N}.csv");
+        }
+
+        [GlobalCleanup]
+        public void Cleanup()
+        {
+            _store.Dispose();
+            File.Delete(_path);
+        }
+
+        // FileManager.SaveTableToFile до CsvSheetWriter
+        [Benchmark(Baseline = true)]
+        public void StringJoin()
+        {
+            using var writer = new StreamWriter(_path);
+            foreach (var row in _rows)
+            {
+                var values = row.Cells.Select(c => c.Value ?? "");
+                writer.WriteLine(string.Join(",", values));
+            }
+        }
+
+        [Benchmark]
+        public void SaveTableToFile() => new FileManager().SaveTableToFile(_path, _rows);
+
+        [Benchmark]
+        public void NativeStore() => CsvSheetWriter.Save(_path, _store);
+    }
+}
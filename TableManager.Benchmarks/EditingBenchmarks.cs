@@ -0,0 +1,56 @@
+using BenchmarkDotNet.Attributes;
+using TableManager.App.Controllers;
+
+namespace TableManager.Benchmarks
+{
+    // Набір формули посимвольно, як у клітинці під час редагування: кожне натискання —
+    // перевірка синтаксису. Повний розбір ANTLR проти IncrementalFormulaValidator.
+    // Кеш формул оминається (TryParseFormula), бо повторні ітерації інакше брали б усе з нього.
+    [MemoryDiagnoser]
+    public class EditingBenchmarks
+    {
+        private string[] _keystrokes = Array.Empty<string>();
+        private IncrementalFormulaValidator _validator = null!;
+
+        [ParamsSource(nameof(Shapes))]
+        public string Shape { get; set; } = "";
+
+        public IEnumerable<string> Shapes => FormulaShapes.Names;
+
+        [GlobalSetup]
+        public void Setup()
+        {
+            string formula = FormulaShapes.Get(Shape);
+            _keystrokes = new string[formula.Length];
+            for (int i = 0; i < formula.Length; i++)
+                _keystrokes[i] = formula.Substring(0, i + 1);
+
+            _validator = new IncrementalFormulaValidator();
+        }
+
+        [Benchmark(Baseline = true)]
+        public int FullParse()
+        {
+            int valid = 0;
+            foreach (var text in _keystrokes)
+            {
+                if (!text.StartsWith("=") || Parser.TryParseFormula(text, out _))
+                    valid++;
+            }
+            return valid;
+        }
+
+        [Benchmark]
+        public int Incremental()
+        {
+            _validator.Reset();
+            int valid = 0;
+            foreach (var text in _keystrokes)
+            {
+                if (_validator.Update(text).IsValid)
+                    valid++;
+            }
+            return valid;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+using BenchmarkDotNet.Attributes;
+using TableManager.App.Controllers;
+
+namespace TableManager.Benchmarks
+{
+    // Обчислення глибоких ланцюжків AddSub / MulDiv: інтерпретатор дерева проти
+    // згенерованого делегата
+    [MemoryDiagnoser]
+    public class EvaluationBenchmarks
+    {
+        private CompiledFormula _interpreted = null!;
+        private CompiledFormula _native = null!;
+        private CellStore _cells = null!;
+
+        [Params(8, 64, 256)]
+        public int Depth { get; set; }
+
+        [Params("AddSub", "MulDiv")]
+        public string Operators { get; set; } = "";
+
+        [GlobalSetup]
+        public void Setup()
+        {
+            FormulaTiering.Enabled = false;
+
+            string formula = Operators == "AddSub"
+                ? FormulaShapes.Chain(Depth, "+", "-")
+                : FormulaShapes.Chain(Depth, "*", "/");
+
+            _interpreted = FormulaCompiler.Compile(formula)!;
+            _native = FormulaCompiler.Compile(formula)!;
+            _native.PromoteToNative();
+
+            _cells = new CellStore();
+            for (int row = 0; row < Depth; row++)
+                _cells.Set(new CellAddress(row, 0), FormulaValue.FromNumber(1 + row % 3));
+        }
+
+        [GlobalCleanup]
+        public void Cleanup()
+        {
+            FormulaTiering.Enabled = true;
+        }
+
+        [Benchmark(Baseline = true)]
+        public double Interpreted() => _interpreted.Evaluate(_cells).Number;
+
+        [Benchmark]
+        public double Native() => _native.Evaluate(_cells).Number;
+    }
+}
@@ -0,0 +1,31 @@
+using System.Text;
+
+namespace TableManager.Benchmarks
+{
+    // Типові форми формул, спільні для бенчмарків лексера й парсера
+    public static class FormulaShapes
+    {
+        public static readonly string[] Names = { "Simple", "Chain", "Comparison", "Nested" };
+
+        public static string Get(string name)
+        {
+            return name switch
+            {
+                "Simple" => "=(A1+B2)",
+                "Chain" => Chain(32, "+", "*"),
+                "Comparison" => "=(A1 mod 7 + B2 div 3 <= inc(C3) * dec(D4))",
+                "Nested" => "=(" + new StringBuilder().Insert(0, "inc(", 16) + "A1" + new string(')', 16) + ")",
+                _ => throw new ArgumentOutOfRangeException(nameof(name))
+            };
+        }
+
+        // =(A1 + A2 * A3 + ...) з чергуванням операторів, length операндів
+        public static string Chain(int length, params string[] operators)
+        {
+            var builder = new StringBuilder("=(A1");
+            for (int i = 1; i < length; i++)
+                builder.Append(' ').Append(operators[i % operators.Length]).Append(" A").Append(i + 1);
+            return builder.Append(')').ToString();
+        }
+    }
+}
@@ -0,0 +1,48 @@
+using Antlr4.Runtime;
+using BenchmarkDotNet.Attributes;
+using TableManager.App.Controllers;
+
+namespace TableManager.Benchmarks
+{
+    // Пропускна здатність лексерів на одній формі формули: згенерований ANTLR проти ручного
+    [MemoryDiagnoser]
+    public class LexerBenchmarks
+    {
+        private string _formula = "";
+        private readonly FormulaLexer _handWritten = new FormulaLexer();
+
+        [ParamsSource(nameof(Shapes))]
+        public string Shape { get; set; } = "";
+
+        public IEnumerable<string> Shapes => FormulaShapes.Names;
+
+        [GlobalSetup]
+        public void Setup()
+        {
+            _formula = FormulaShapes.Get(Shape);
+        }
+
+        [Benchmark(Baseline = true)]
+        public int GeneratedLexer()
+        {
+            var lexer = new TableExpressionLexer(new AntlrInputStream(_formula));
+            lexer.RemoveErrorListeners();
+
+            int count = 0;
+            while (lexer.NextToken().Type != TokenConstants.EOF)
+                count++;
+            return count;
+        }
+
+        [Benchmark]
+        public int HandWrittenLexer()
+        {
+            _handWritten.Reset(_formula);
+
+            int count = 0;
+            while (_handWritten.NextTokenType(out _, out _) != TokenConstants.EOF)
+                count++;
+            return count;
+        }
+    }
+}
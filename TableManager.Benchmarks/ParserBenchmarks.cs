@@ -0,0 +1,60 @@
+using Antlr4.Runtime;
+using BenchmarkDotNet.Attributes;
+using TableManager.App.Controllers;
+
+namespace TableManager.Benchmarks
+{
+    // Затримка formula(): холодний DFA (кеш передбачень очищено перед кожним розбором)
+    // проти прогрітого, шлях через пул Parser.TryParseFormula і ручний LL(1)-розпізнавач
+    // FormulaRecognizer, де передбачення — один токен
+    [MemoryDiagnoser]
+    public class ParserBenchmarks
+    {
+        private string _formula = "";
+        private TableExpressionParser _parser = null!;
+
+        [ParamsSource(nameof(Shapes))]
+        public string Shape { get; set; } = "";
+
+        public IEnumerable<string> Shapes => FormulaShapes.Names;
+
+        [GlobalSetup]
+        public void Setup()
+        {
+            _formula = FormulaShapes.Get(Shape);
+            _parser = new TableExpressionParser(new CommonTokenStream(new FormulaLexer(_formula)));
+            _parser.RemoveErrorListeners();
+        }
+
+        [Benchmark]
+        public object ColdDfa()
+        {
+            _parser.Interpreter.ClearDFA();
+            return Parse();
+        }
+
+        [Benchmark(Baseline = true)]
+        public object WarmDfa()
+        {
+            return Parse();
+        }
+
+        [Benchmark]
+        public bool Pooled()
+        {
+            return Parser.TryParseFormula(_formula, out _);
+        }
+
+        [Benchmark]
+        public bool FactoredRecognizer()
+        {
+            return FormulaRecognizer.IsValid(_formula);
+        }
+
+        private TableExpressionParser.FormulaContext Parse()
+        {
+            _parser.TokenStream = new CommonTokenStream(new FormulaLexer(_formula));
+            return _parser.formula();
+        }
+    }
+}
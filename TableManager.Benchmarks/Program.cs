@@ -0,0 +1,21 @@
+using BenchmarkDotNet.Running;
+using TableManager.App.Controllers;
+
+namespace TableManager.Benchmarks
+{
+    // dotnet run -c Release --project TableManager.Benchmarks -- --filter '*Parser*'
+    // dotnet run -c Release --project TableManager.Benchmarks -- profile-parser [--cold]
+    public static class Program
+    {
+        public static void Main(string[] args)
+        {
+            if (args.Length > 0 && args[0] == "profile-parser")
+            {
+                Console.Write(ParserProfiler.Run(ParserProfiler.DefaultCorpus(), clearDfa: args.Contains("--cold")));
+                return;
+            }
+
+            BenchmarkSwitcher.FromAssembly(typeof(Program).Assembly).Run(args);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+using BenchmarkDotNet.Attributes;
+using TableManager.App.Controllers;
+
+namespace TableManager.Benchmarks
+{
+    // Повний перерахунок синтетичної таблиці з SheetGenerator.
+    // FanIn — найбільша кількість операндів у формулі,
+    // FanOut — скільки формул додатково читають одну "гарячу" клітинку A1.
+    [MemoryDiagnoser]
+    public class RecalcBenchmarks
+    {
+        private const int Columns = 10;
+
+        private Dictionary<CellAddress, string> _texts = null!;
+        private DependencyGraph _graph = null!;
+        private RecalcScheduler _scheduler = null!;
+        private RecalcScheduler _sharedScheduler = null!;
+        private List<int> _allNodes = null!;
+        private NativeSheetStore _store = null!;
+
+        [Params(10_000, 100_000, 1_000_000)]
+        public int Cells { get; set; }
+
+        [Params(1, 4)]
+        public int FanIn { get; set; }
+
+        [Params(1, 1000)]
+        public int FanOut { get; set; }
+
+        [GlobalSetup]
+        public void Setup()
+        {
+            int rows = Cells / Columns;
+            var generator = new SheetGenerator(new SheetGeneratorOptions
+            {
+                Rows = rows,
+                Columns = Columns,
+                FormulaDensity = 0.8,
+                MaxOperands = FanIn,
+                FanOut = FanOut,
+                Seed = 2024
+            });
+
+            _texts = new Dictionary<CellAddress, string>(Cells);
+            int row = 0;
+            foreach (var cells in generator.GenerateRows())
+            {
+                for (int column = 0; column < cells.Length; column++)
+                    _texts[new CellAddress(row, column)] = cells[column];
+                row++;
+            }
+
+            _graph = new DependencyGraph();
+            foreach (var (address, text) in _texts)
+                _graph.UpdateCell(address, text);
+            _scheduler = new RecalcScheduler(_graph);
+            _sharedScheduler = new RecalcScheduler(_graph) { ShareSubexpressions = true };
+            _allNodes = _texts.Keys.Select(_graph.GetOrAddNode).ToList();
+
+            _store = new NativeSheetStore(rows, Columns);
+            foreach (var (address, text) in _texts)
+                _store.SetText(address, text);
+        }
+
+        [GlobalCleanup]
+        public void Cleanup()
+        {
+            _store.Dispose();
+        }
+
+        [Benchmark(Baseline = true)]
+        public int Scheduler()
+        {
+            _scheduler.Reset();
+            return _scheduler.Recalculate(_allNodes, address => _texts.TryGetValue(address, out var text) ? text : null).Count;
+        }
+
+        // Спільні підвирази між формулами; граф будується в першій ітерації й далі лише перевикористовується
+        [Benchmark]
+        public int SchedulerSharedSubexpressions()
+        {
+            return _sharedScheduler.Recalculate(_allNodes, address => _texts.TryGetValue(address, out var text) ? text : null).Count;
+        }
+
+        [Benchmark]
+        public long NativeStore() => _store.Recalculate();
+    }
+}
@@ -0,0 +1,107 @@
+using System;
+using Microsoft.VisualStudio.TestTools.UnitTesting;
+using TableManager.App.Controllers;
+
+namespace TableManager.Tests
+{
+    [TestClass]
+    public class BatchFormulaEvaluatorTests
+    {
+        [TestMethod]
+        [DataRow("=(A1 * 2 + B1 / C1 - inc(A1))")]
+        [DataRow("=(A1 mod 7 + B1 div 3)")]
+        [DataRow("=(A1 + B1 <= C1 * 2)")]
+        [DataRow("=(A1 = B1)")]
+        public void Evaluate_MixedInputs_MatchesCellByCell(string formula)
+        {
+            const int rows = 1000;
+            var cells = CreateInputs(rows, new Random(7));
+            var expected = CreateInputs(rows, new Random(7));
+            // Формула стоїть у D1 і заповнена вниз
+            var template = FormulaCompiler.GetOrCompile(formula, new CellAddress(0, 3))!;
+
+            var evaluator = new BatchFormulaEvaluator(template);
+            evaluator.Evaluate(cells, 3, 0, rows);
+
+            for (int row = 0; row < rows; row++)
+            {
+                var host = new CellAddress(row, 3);
+                var want = template.Evaluate(expected, host);
+                var got = cells.GetCellValue(host);
+                Assert.AreEqual(want.Type, got.Type, $"Рядок {row}");
+                Assert.AreEqual(want.Error, got.Error, $"Рядок {row}");
+                Assert.AreEqual(want.Number, got.Number, 1e-9, $"Рядок {row}");
+            }
+
+            Assert.IsTrue(evaluator.CanVectorize);
+            Assert.AreEqual((long)rows, evaluator.VectorizedRows + evaluator.FallbackRows);
+        }
+
+        [TestMethod]
+        public void Evaluate_ErrorInputs_FallBackOnlyForThoseRows()
+        {
+            var cells = new CellStore();
+            for (int row = 0; row < 100; row++)
+            {
+                cells.Set(new CellAddress(row, 0), FormulaValue.FromNumber(row));
+                cells.Set(new CellAddress(row, 1), FormulaValue.FromNumber(2));
+            }
+            cells.Set(new CellAddress(10, 0), FormulaValue.CycleError);
+            cells.Set(new CellAddress(20, 1), FormulaValue.Zero);
+            var template = FormulaCompiler.GetOrCompile("=(A1 / B1 + 0.5)", new CellAddress(0, 2))!;
+
+            var evaluator = new BatchFormulaEvaluator(template);
+            evaluator.Evaluate(cells, 2, 0, 100);
+
+            Assert.AreEqual("#CYCLE", cells.GetCellValue(new CellAddress(10, 2)).Error);
+            Assert.AreEqual("#ERROR", cells.GetCellValue(new CellAddress(20, 2)).Error, "Ділення на нуль");
+            Assert.AreEqual(50.0, cells.GetCellValue(new CellAddress(99, 2)).Number);
+            if (BatchFormulaEvaluator.VectorEnabled)
+                Assert.AreEqual(2L, evaluator.FallbackRows, "Скалярно перераховуються лише рядки з помилками");
+        }
+
+        [TestMethod]
+        public void Evaluate_ReadsOwnColumn_RunsScalarInRowOrder()
+        {
+            var cells = new CellStore();
+            cells.Set(new CellAddress(0, 0), FormulaValue.FromNumber(1));
+            // A_n = (A_{n-1} + 1) для n від 2
+            var template = FormulaCompiler.GetOrCompile("=(A1 + 1)", new CellAddress(1, 0))!;
+
+            var evaluator = new BatchFormulaEvaluator(template);
+            evaluator.Evaluate(cells, 0, 1, 500);
+
+            Assert.IsFalse(evaluator.CanVectorize);
+            Assert.AreEqual(500.0, cells.GetCellValue(new CellAddress(499, 0)).Number);
+        }
+
+        // A — числа (іноді нуль або булеве), B — числа з помилками, C — числа з пропусками
+        private static CellStore CreateInputs(int rows, Random random)
+        {
+            var cells = new CellStore();
+            for (int row = 0; row < rows; row++)
+            {
+                int roll = random.Next(20);
+                cells.Set(new CellAddress(row, 0), roll switch
+                {
+                    0 => FormulaValue.Zero,
+                    1 => FormulaValue.FromBool(true),
+                    _ => FormulaValue.FromNumber(Math.Round(random.NextDouble() * 200 - 100, 2))
+                });
+
+                roll = random.Next(20);
+                cells.Set(new CellAddress(row, 1), roll switch
+                {
+                    0 => FormulaValue.GeneralError,
+                    1 => FormulaValue.FromError("#CUSTOM"),
+                    2 => FormulaValue.FromNumber(cells.GetCellValue(new CellAddress(row, 0)).Number),
+                    _ => FormulaValue.FromNumber(random.Next(-50, 50))
+                });
+
+                if (random.Next(20) != 0)
+                    cells.Set(new CellAddress(row, 2), FormulaValue.FromNumber(random.Next(-5, 5)));
+            }
+            return cells;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+using System.IO;
+using System.Text;
+using Microsoft.VisualStudio.TestTools.UnitTesting;
+using TableManager.App.Controllers;
+
+namespace TableManager.Tests
+{
+    [TestClass]
+    public class BinarySheetFormatTests
+    {
+        [TestMethod]
+        public void SaveAndOpen_MatchesCsvFromFileManager()
+        {
+            string csvPath = Path.GetTempFileName();
+            string binaryPath = Path.GetTempFileName();
+            try
+            {
+                var csv = new StringBuilder();
+                for (int row = 1; row <= 25; row++)
+                    csv.AppendLine($"{row},=(A{row} * A{row} - 3),=(B{row} >= 100),слово,=(inc(D{row}))");
+                csv.AppendLine("=(B25 mod 9),=(A26 + C1),,=(E1 + X40),=(A1 +");
+                File.WriteAllText(csvPath, csv.ToString());
+
+                var fileManager = new FileManager();
+                var loaded = fileManager.LoadTableFromFile(csvPath, CellAddress.GetColumnName);
+                var reference = new DictionaryCellSource(name => loaded.map.TryGetValue(name, out var c) ? c.Value : null);
+
+                using (var store = fileManager.LoadSheetFromFile(csvPath))
+                {
+                    Assert.IsNotNull(store);
+                    BinarySheetFormat.Save(binaryPath, store);
+                }
+
+                using var sheet = BinarySheetFormat.Open(binaryPath);
+                sheet.LoadAll();
+
+                Assert.AreEqual(6, sheet.Templates.Count, "Заповнені вниз формули зберігаються одним шаблоном");
+                foreach (var cell in loaded.map.Values)
+                {
+                    Assert.IsTrue(CellAddress.TryParse(cell.CellName, out var address));
+                    var expected = reference.GetCellValue(address);
+                    var actual = sheet.GetCellValue(address);
+
+                    Assert.AreEqual(expected.Type, actual.Type, cell.CellName);
+                    Assert.AreEqual(expected.Number, actual.Number, cell.CellName);
+                    Assert.AreEqual(expected.Error, actual.Error, cell.CellName);
+                }
+            }
+            finally
+            {
+                File.Delete(csvPath);
+                File.Delete(binaryPath);
+            }
+        }
+
+        [TestMethod]
+        public void GetCellValue_LoadsOnlyReferencedColumns()
+        {
+            string path = Path.GetTempFileName();
+            try
+            {
+                using (var store = new NativeSheetStore(10, 4))
+                {
+                    for (int row = 0; row < 10; row++)
+                    {
+                        store.SetText(new CellAddress(row, 0), row.ToString());
+                        store.SetText(new CellAddress(row, 1), "7");
+                        store.SetText(new CellAddress(row, 2), "=(inc(dec(A1)) + 40)");
+                        store.SetText(new CellAddress(row, 3), "=(B1 div 2)");
+                    }
+                    BinarySheetFormat.Save(path, store);
+                }
+
+                using var sheet = BinarySheetFormat.Open(path);
+
+                Assert.AreEqual(0, sheet.LoadedColumnCount);
+                Assert.AreEqual(40.0, sheet.GetCellValue(new CellAddress(5, 2)).Number);
+                Assert.IsTrue(sheet.IsColumnLoaded(0), "Стовпець A потрібен формулі");
+                Assert.IsFalse(sheet.IsColumnLoaded(1));
+                Assert.IsFalse(sheet.IsColumnLoaded(3));
+
+                Assert.AreEqual(3.0, sheet.GetCellValue(new CellAddress(0, 3)).Number);
+                Assert.AreEqual(4, sheet.LoadedColumnCount);
+            }
+            finally
+            {
+                File.Delete(path);
+            }
+        }
+
+        [TestMethod]
+        public void SaveAndOpen_KeepsTextAndInvalidFormulaSource()
+        {
+            string path = Path.GetTempFileName();
+            try
+            {
+                using (var store = new NativeSheetStore(3, 2))
+                {
+                    store.SetText(new CellAddress(0, 0), "назва");
+                    store.SetText(new CellAddress(0, 1), "=(A2 +");
+                    store.SetText(new CellAddress(1, 0), "5");
+                    store.SetText(new CellAddress(1, 1), "=(A2 * 2)");
+                    store.SetText(new CellAddress(2, 0), "=(A1 + 1)");
+                    store.Recalculate();
+                    BinarySheetFormat.Save(path, store);
+                }
+
+                using var sheet = BinarySheetFormat.Open(path);
+                sheet.LoadAll();
+
+                Assert.AreEqual("назва", sheet.Store.GetText(new CellAddress(0, 0)));
+                Assert.AreEqual("=(A2 +", sheet.Store.GetText(new CellAddress(0, 1)), "Формула з помилкою зберігається вихідним текстом");
+                Assert.AreEqual("#ERROR", sheet.GetCellValue(new CellAddress(0, 1)).Error);
+                Assert.AreEqual(10.0, sheet.GetCellValue(new CellAddress(1, 1)).Number);
+                Assert.AreEqual("#ERROR", sheet.GetCellValue(new CellAddress(2, 0)).Error, "Посилання на текст дає #ERROR");
+                Assert.IsNull(sheet.Store.GetText(new CellAddress(1, 0)));
+            }
+            finally
+            {
+                File.Delete(path);
+            }
+        }
+
+        [TestMethod]
+        public void Open_NotBinarySheet_Throws()
+        {
+            string path = Path.GetTempFileName();
+            try
+            {
+                File.WriteAllText(path, "1,2,3");
+
+                Assert.ThrowsException<InvalidDataException>(() => BinarySheetFormat.Open(path));
+            }
+            finally
+            {
+                File.Delete(path);
+            }
+        }
+    }
+}
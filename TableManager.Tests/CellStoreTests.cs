@@ -0,0 +1,78 @@
+using Microsoft.VisualStudio.TestTools.UnitTesting;
+using TableManager.App.Controllers;
+using ValueType = TableManager.App.Controllers.ValueType;
+
+namespace TableManager.Tests
+{
+    [TestClass]
+    public class CellStoreTests
+    {
+        [TestMethod]
+        public void Set_AllValueKinds_RoundTrip()
+        {
+            var store = new CellStore();
+            store.Set(new CellAddress(0, 0), FormulaValue.FromNumber(2.5));
+            store.Set(new CellAddress(1, 0), FormulaValue.FromBool(true));
+            store.Set(new CellAddress(0, 3), FormulaValue.CycleError);
+            store.Set(new CellAddress(500, 2), FormulaValue.FromError("#CUSTOM"));
+
+            Assert.AreEqual(2.5, store.GetCellValue(new CellAddress(0, 0)).Number);
+            Assert.AreEqual(ValueType.Boolean, store.GetCellValue(new CellAddress(1, 0)).Type);
+            Assert.IsTrue(store.GetCellValue(new CellAddress(1, 0)).Bool);
+            Assert.AreEqual("#CYCLE", store.GetCellValue(new CellAddress(0, 3)).Error);
+            Assert.AreEqual("#CUSTOM", store.GetCellValue(new CellAddress(500, 2)).Error);
+        }
+
+        [TestMethod]
+        public void GetCellValue_MissingCell_ReturnsRefError()
+        {
+            var store = new CellStore();
+            store.Set(new CellAddress(3, 1), FormulaValue.Zero);
+
+            Assert.AreEqual("#REF", store.GetCellValue(new CellAddress(2, 1)).Error, "Рядок у межах масиву, але клітинки немає");
+            Assert.AreEqual("#REF", store.GetCellValue(new CellAddress(0, 40)).Error, "Стовпця немає");
+            Assert.AreEqual("#REF", store.GetCellValue(new CellAddress(-1, 0)).Error);
+        }
+
+        [TestMethod]
+        public void Remove_OverwrittenAndRemovedCells_BecomeMissing()
+        {
+            var store = new CellStore();
+            var address = new CellAddress(7, 7);
+            store.Set(address, FormulaValue.FromError("#CUSTOM"));
+            store.Set(address, FormulaValue.FromNumber(4));
+
+            Assert.AreEqual(4.0, store.GetCellValue(address).Number);
+
+            store.Remove(address);
+
+            Assert.IsFalse(store.Contains(address));
+        }
+
+        [TestMethod]
+        public void Set_OtherErrorsFromParallelWriters_AllKept()
+        {
+            var store = new CellStore();
+            const int rows = 2000;
+            store.Reserve(new CellAddress(rows - 1, 3));
+
+            // Як паралельний рівень RecalcScheduler: різні клітинки, один словник помилок
+            Parallel.For(0, rows * 4, i =>
+            {
+                var address = new CellAddress(i / 4, i % 4);
+                store.Set(address, FormulaValue.FromError($"#E{i}"));
+                if (i % 3 == 0)
+                    store.Set(address, FormulaValue.FromNumber(i));
+            });
+
+            for (int i = 0; i < rows * 4; i++)
+            {
+                var value = store.GetCellValue(new CellAddress(i / 4, i % 4));
+                if (i % 3 == 0)
+                    Assert.AreEqual((double)i, value.Number);
+                else
+                    Assert.AreEqual($"#E{i}", value.Error);
+            }
+        }
+    }
+}
@@ -0,0 +1,120 @@
+using System.IO;
+using System.Text;
+using Microsoft.VisualStudio.TestTools.UnitTesting;
+using TableManager.App.Controllers;
+
+namespace TableManager.Tests
+{
+    [TestClass]
+    public class CsvSheetLoaderTests
+    {
+        [TestMethod]
+        [DataRow(3)]
+        [DataRow(16)]
+        [DataRow(CsvSheetLoader.DefaultChunkSize)]
+        public void Load_SameValuesAsFileManager(int chunkSize)
+        {
+            string path = Path.GetTempFileName();
+            try
+            {
+                var csv = new StringBuilder();
+                for (int row = 1; row <= 40; row++)
+                    csv.Append($"{row},{row * 0.5},=(A{row} * 4 + B{row}),,текст,=(E{row} + 1)\r\n");
+                csv.Append("=(C40 div 7),=(A1 +,=(Q99 - 1)\n");
+                csv.Append("\n");
+                csv.Append("  ,7");
+                File.WriteAllText(path, csv.ToString(), new UTF8Encoding(true));
+
+                using var store = CsvSheetLoader.Load(path, chunkSize);
+                var loaded = new FileManager().LoadTableFromFile(path, CellAddress.GetColumnName);
+                var reference = new DictionaryCellSource(name => loaded.map.TryGetValue(name, out var c) ? c.Value : null);
+
+                Assert.IsNotNull(store);
+                Assert.AreEqual(loaded.rows.Count, store.Rows, "Кількість рядків");
+                Assert.AreEqual(6, store.Columns);
+
+                foreach (var cell in loaded.map.Values)
+                {
+                    Assert.IsTrue(CellAddress.TryParse(cell.CellName, out var address));
+                    var expected = reference.GetCellValue(address);
+                    var actual = store.GetCellValue(address);
+
+                    Assert.AreEqual(expected.Type, actual.Type, cell.CellName);
+                    Assert.AreEqual(expected.Number, actual.Number, 1e-9, cell.CellName);
+                    Assert.AreEqual(expected.Error, actual.Error, cell.CellName);
+                }
+            }
+            finally
+            {
+                File.Delete(path);
+            }
+        }
+
+        [TestMethod]
+        public void Load_TextFields_KeptAsText()
+        {
+            string path = Path.GetTempFileName();
+            try
+            {
+                File.WriteAllText(path, "назва,2\nабв 1,=(B1 * 3)\n", new UTF8Encoding(false));
+
+                using var store = CsvSheetLoader.Load(path, chunkSize: 4);
+                Assert.IsNotNull(store);
+                store.Recalculate();
+
+                Assert.AreEqual("назва", store.GetText(new CellAddress(0, 0)));
+                Assert.AreEqual("абв 1", store.GetText(new CellAddress(1, 0)));
+                Assert.AreEqual("#ERROR", store.GetCellValue(new CellAddress(0, 0)).Error);
+                Assert.IsNull(store.GetText(new CellAddress(0, 1)));
+                Assert.AreEqual(6.0, store.GetCellValue(new CellAddress(1, 1)).Number);
+            }
+            finally
+            {
+                File.Delete(path);
+            }
+        }
+
+        [TestMethod]
+        public void Load_ThenSave_KeepsInvalidFormulaText()
+        {
+            string path = Path.GetTempFileName();
+            string saved = Path.GetTempFileName();
+            try
+            {
+                string csv = "1,=(A1 +,назва\n=(A1 * 2),=(,=(A1 + 1)\n";
+                File.WriteAllText(path, csv, new UTF8Encoding(false));
+
+                using var store = CsvSheetLoader.Load(path);
+                Assert.IsNotNull(store);
+                store.Recalculate();
+
+                Assert.AreEqual("=(A1 +", store.GetText(new CellAddress(0, 1)));
+                Assert.AreEqual("#ERROR", store.GetCellValue(new CellAddress(0, 1)).Error);
+                Assert.AreEqual("=(", store.GetText(new CellAddress(1, 1)));
+
+                CsvSheetWriter.Save(saved, store);
+                string expected = csv.Replace("\n", Environment.NewLine);
+                Assert.AreEqual(expected, File.ReadAllText(saved), "Формули з помилкою мають зберегтися вихідним текстом");
+            }
+            finally
+            {
+                File.Delete(path);
+                File.Delete(saved);
+            }
+        }
+
+        [TestMethod]
+        public void Load_EmptyFile_ReturnsNull()
+        {
+            string path = Path.GetTempFileName();
+            try
+            {
+                Assert.IsNull(CsvSheetLoader.Load(path));
+            }
+            finally
+            {
+                File.Delete(path);
+            }
+        }
+    }
+}
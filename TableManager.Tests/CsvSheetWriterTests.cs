@@ -0,0 +1,142 @@
+using System;
+using System.Collections.Generic;
+using System.Globalization;
+using System.IO;
+using Microsoft.VisualStudio.TestTools.UnitTesting;
+using TableManager.App.Controllers;
+
+namespace TableManager.Tests
+{
+    [TestClass]
+    public class CsvSheetWriterTests
+    {
+        [TestMethod]
+        public void Save_Store_WritesFormulaTextAndShortestNumbers()
+        {
+            string path = Path.GetTempFileName();
+            try
+            {
+                using (var store = new NativeSheetStore(2, 3))
+                {
+                    store.SetText(new CellAddress(0, 0), 0.1.ToString(CultureInfo.InvariantCulture));
+                    store.SetText(new CellAddress(0, 1), "=(A1 mod 3 + AB20)");
+                    store.SetText(new CellAddress(1, 0), "-250");
+                    store.SetText(new CellAddress(1, 1), "=(A2 mod 3 + AB21)");
+                    store.SetText(new CellAddress(1, 2), "слово");
+                    store.Recalculate();
+
+                    CsvSheetWriter.Save(path, store);
+                }
+
+                string nl = Environment.NewLine;
+                Assert.AreEqual($"0.1,=(A1 mod 3 + AB20),{nl}-250,=(A2 mod 3 + AB21),слово{nl}", File.ReadAllText(path));
+            }
+            finally
+            {
+                File.Delete(path);
+            }
+        }
+
+        [TestMethod]
+        public void Save_ThenLoad_RoundTripsValues()
+        {
+            string path = Path.GetTempFileName();
+            try
+            {
+                using var original = new NativeSheetStore(300, 2);
+                for (int row = 0; row < original.Rows; row++)
+                {
+                    original.SetText(new CellAddress(row, 0), (row / 7.0).ToString("R", CultureInfo.InvariantCulture));
+                    original.SetText(new CellAddress(row, 1), $"=(A{row + 1} * 9 - 2)");
+                }
+                original.Recalculate();
+
+                CsvSheetWriter.Save(path, original);
+                using var loaded = CsvSheetLoader.Load(path, chunkSize: 128);
+
+                Assert.IsNotNull(loaded);
+                loaded.Recalculate();
+                for (int row = 0; row < original.Rows; row++)
+                {
+                    for (int column = 0; column < 2; column++)
+                    {
+                        var address = new CellAddress(row, column);
+                        Assert.AreEqual(original.GetCellValue(address).Number, loaded.GetCellValue(address).Number, address.ToString());
+                    }
+                }
+                Assert.AreEqual(1, loaded.TemplateCount);
+            }
+            finally
+            {
+                File.Delete(path);
+            }
+        }
+
+        [TestMethod]
+        public void Save_ThenLoad_UkrainianCulture_KeepsDecimalsAndText()
+        {
+            string path = Path.GetTempFileName();
+            var culture = CultureInfo.CurrentCulture;
+            try
+            {
+                // У uk-UA десятковий роздільник — кома, але текст клітинки читається в InvariantCulture
+                CultureInfo.CurrentCulture = new CultureInfo("uk-UA");
+
+                using (var store = new NativeSheetStore(1, 4))
+                {
+                    store.SetText(new CellAddress(0, 0), "1.5");
+                    store.SetValue(new CellAddress(0, 1), FormulaValue.FromNumber(-0.25));
+                    store.SetText(new CellAddress(0, 2), "=(A1 * B1)");
+                    store.SetText(new CellAddress(0, 3), "підсумок");
+                    store.Recalculate();
+
+                    CsvSheetWriter.Save(path, store);
+                }
+
+                Assert.AreEqual($"1.5,-0.25,=(A1 * B1),підсумок{Environment.NewLine}", File.ReadAllText(path));
+
+                using var loaded = CsvSheetLoader.Load(path);
+                Assert.IsNotNull(loaded);
+                loaded.Recalculate();
+
+                Assert.AreEqual(4, loaded.Columns, "Кома в числі не має ділити поле");
+                Assert.AreEqual(1.5, loaded.GetCellValue(new CellAddress(0, 0)).Number);
+                Assert.AreEqual(-0.25, loaded.GetCellValue(new CellAddress(0, 1)).Number);
+                Assert.AreEqual(-0.375, loaded.GetCellValue(new CellAddress(0, 2)).Number);
+                Assert.AreEqual("підсумок", loaded.GetText(new CellAddress(0, 3)));
+            }
+            finally
+            {
+                CultureInfo.CurrentCulture = culture;
+                File.Delete(path);
+            }
+        }
+
+        [TestMethod]
+        public void Save_FailsMidway_KeepsOriginalFile()
+        {
+            string directory = Path.Combine(Path.GetTempPath(), Guid.NewGuid().ToString("N"));
+            Directory.CreateDirectory(directory);
+            string path = Path.Combine(directory, "table.csv");
+            try
+            {
+                File.WriteAllText(path, "1,2,3");
+
+                Assert.ThrowsException<InvalidOperationException>(() => CsvSheetWriter.Save(path, FailingRows()));
+
+                Assert.AreEqual("1,2,3", File.ReadAllText(path), "Файл не має обрізатися");
+                Assert.AreEqual(1, Directory.GetFiles(directory).Length, "Тимчасовий файл видалено");
+            }
+            finally
+            {
+                Directory.Delete(directory, recursive: true);
+            }
+        }
+
+        private static IEnumerable<IEnumerable<string?>> FailingRows()
+        {
+            yield return new[] { "4", "5" };
+            throw new InvalidOperationException();
+        }
+    }
+}
@@ -0,0 +1,169 @@
+using Microsoft.VisualStudio.TestTools.UnitTesting;
+using System.Collections.Generic;
+using System.Linq;
+using TableManager.App.Controllers;
+using TableManager.App.Views;
+
+namespace TableManager.Tests
+{
+    [TestClass]
+    public class DependencyGraphTests
+    {
+        private static CellAddress Cell(string name)
+        {
+            Assert.IsTrue(CellAddress.TryParse(name, out var address));
+            return address;
+        }
+
+        private static List<string> Dependents(DependencyGraph graph, params string[] roots)
+        {
+            var nodes = new List<int>();
+            foreach (var root in roots)
+            {
+                if (graph.TryGetNode(Cell(root), out int node))
+                    nodes.Add(node);
+            }
+            return graph.CollectDependents(nodes).Select(n => graph.GetAddress(n).ToString()).ToList();
+        }
+
+        [TestMethod]
+        public void UpdateCell_BuildsForwardAndReverseEdges()
+        {
+            var graph = new DependencyGraph();
+            graph.UpdateCell(Cell("A2"), "=(A1+B1)");
+
+            Assert.IsTrue(graph.TryGetNode(Cell("A2"), out int a2));
+            Assert.IsTrue(graph.TryGetNode(Cell("A1"), out int a1));
+
+            Assert.AreEqual(2, graph.GetPrecedents(a2).Length);
+            Assert.AreEqual(1, graph.GetDependents(a1).Length);
+            Assert.AreEqual(a2, graph.GetDependents(a1)[0]);
+            Assert.AreEqual(2, graph.EdgeCount);
+        }
+
+        [TestMethod]
+        public void UpdateCell_ChangedFormula_ReplacesEdges()
+        {
+            var graph = new DependencyGraph();
+            graph.UpdateCell(Cell("A2"), "=(A1+B1)");
+            graph.UpdateCell(Cell("A2"), "=(C1*2)");
+
+            CollectionAssert.AreEquivalent(new List<string>(), Dependents(graph, "A1"), "A2 більше не залежить від A1");
+            CollectionAssert.AreEquivalent(new List<string> { "A2" }, Dependents(graph, "C1"));
+            Assert.AreEqual(1, graph.EdgeCount);
+        }
+
+        [TestMethod]
+        public void CollectDependents_FindsTransitiveChain()
+        {
+            var graph = new DependencyGraph();
+            graph.UpdateCell(Cell("A2"), "=(A1+1)");
+            graph.UpdateCell(Cell("A3"), "=(A2+1)");
+            graph.UpdateCell(Cell("A4"), "=(A3+A1)");
+            graph.UpdateCell(Cell("B1"), "=(C1+1)");
+
+            CollectionAssert.AreEquivalent(new List<string> { "A2", "A3", "A4" }, Dependents(graph, "A1"));
+        }
+
+        [TestMethod]
+        public void CollectDependents_WideFanOut_ReturnsEveryDependent()
+        {
+            var graph = new DependencyGraph();
+            for (int row = 2; row <= 1000; row++)
+                graph.UpdateCell(new CellAddress(row - 1, 1), "=(A1*2)");
+
+            Assert.AreEqual(999, Dependents(graph, "A1").Count);
+        }
+
+        [TestMethod]
+        public void RemoveCell_DropsOutgoingEdges()
+        {
+            var graph = new DependencyGraph();
+            graph.UpdateCell(Cell("A2"), "=(A1+1)");
+            graph.RemoveCell(Cell("A2"));
+
+            Assert.AreEqual(0, Dependents(graph, "A1").Count);
+            Assert.AreEqual(0, graph.EdgeCount);
+        }
+
+        [TestMethod]
+        public void IsInCycle_ClosingEdge_MarksOnlyCycleMembers()
+        {
+            var graph = new DependencyGraph();
+            graph.UpdateCell(Cell("A2"), "=(A1+1)");
+            graph.UpdateCell(Cell("A3"), "=(A2+1)");
+            graph.UpdateCell(Cell("B1"), "=(A3*2)");
+            Assert.AreEqual(0, graph.CycleCount);
+
+            graph.UpdateCell(Cell("A1"), "=(A3+1)");
+
+            Assert.IsTrue(graph.IsInCycle(Cell("A1")));
+            Assert.IsTrue(graph.IsInCycle(Cell("A2")));
+            Assert.IsTrue(graph.IsInCycle(Cell("A3")));
+            Assert.IsFalse(graph.IsInCycle(Cell("B1")), "B1 лише залежить від циклу");
+            Assert.AreEqual(1, graph.CycleCount);
+        }
+
+        [TestMethod]
+        public void IsInCycle_BrokenEdge_ClearsWholeCycle()
+        {
+            var graph = new DependencyGraph();
+            graph.UpdateCell(Cell("A1"), "=(A3+1)");
+            graph.UpdateCell(Cell("A2"), "=(A1+1)");
+            graph.UpdateCell(Cell("A3"), "=(A2+1)");
+            Assert.IsTrue(graph.IsInCycle(Cell("A1")));
+
+            // Після розриву A1 більше не досяжна з A2, але її позначка теж має зникнути
+            graph.UpdateCell(Cell("A2"), "=(5)");
+
+            Assert.IsFalse(graph.IsInCycle(Cell("A1")));
+            Assert.IsFalse(graph.IsInCycle(Cell("A2")));
+            Assert.IsFalse(graph.IsInCycle(Cell("A3")));
+            Assert.AreEqual(0, graph.CycleCount);
+        }
+
+        [TestMethod]
+        public void IsInCycle_SelfReferenceAndSeparateCycles()
+        {
+            var graph = new DependencyGraph();
+            graph.UpdateCell(Cell("A1"), "=(A1+1)");
+            graph.UpdateCell(Cell("B1"), "=(C1+1)");
+            graph.UpdateCell(Cell("C1"), "=(B1+1)");
+            graph.UpdateCell(Cell("D1"), "=(E1+1)");
+
+            Assert.IsTrue(graph.IsInCycle(Cell("A1")));
+            Assert.IsTrue(graph.IsInCycle(Cell("B1")));
+            Assert.IsFalse(graph.IsInCycle(Cell("D1")));
+            Assert.AreEqual(2, graph.CycleCount);
+
+            graph.UpdateCell(Cell("A1"), "=(B1+1)");
+
+            Assert.IsFalse(graph.IsInCycle(Cell("A1")));
+            Assert.IsTrue(graph.IsInCycle(Cell("C1")), "Інший цикл не зачеплено");
+            Assert.AreEqual(1, graph.CycleCount);
+        }
+
+        [TestMethod]
+        public void FindAllDependents_AfterEdit_UsesUpdatedFormula()
+        {
+            var controller = new UIController();
+            var cellA1 = new CellViewModel { Value = "10", CellName = "A1" };
+            var cellB1 = new CellViewModel { Value = "20", CellName = "B1" };
+            var cellC1 = new CellViewModel { Value = "=(A1+1)", CellName = "C1" };
+            var cellMap = new Dictionary<string, CellViewModel>
+            {
+                ["A1"] = cellA1,
+                ["B1"] = cellB1,
+                ["C1"] = cellC1
+            };
+
+            Assert.IsTrue(controller.FindAllDependents(new HashSet<string> { "A1" }, cellMap).Contains("C1"));
+
+            cellC1.Value = "=(B1+1)";
+            controller.RecalculateChanged(new HashSet<string> { "C1" }, cellMap);
+
+            Assert.IsFalse(controller.FindAllDependents(new HashSet<string> { "A1" }, cellMap).Contains("C1"));
+            Assert.IsTrue(controller.FindAllDependents(new HashSet<string> { "B1" }, cellMap).Contains("C1"));
+        }
+    }
+}
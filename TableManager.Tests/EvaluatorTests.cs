@@ -1,5 +1,6 @@
 using Microsoft.VisualStudio.TestTools.UnitTesting;
 using System.Collections.Generic;
+using System.Globalization;
 using TableManager.App.Controllers;
 using ValueType = TableManager.App.Controllers.ValueType;
 
@@ -209,5 +210,53 @@ namespace TableManager.Tests
             Assert.IsTrue(result.Success, "Порожня клітинка має розглядатися як 0");
             Assert.AreEqual(5.0, result.NumberValue, 0.0001, "Порожня + 5 = 5");
         }
+
+        [TestMethod]
+        [DataRow("=(A01)")]
+        [DataRow("=(A01+1)")]
+        [DataRow("=(B007*2)")]
+        public void Evaluate_LeadingZeroRow_ReturnsRefError(string expression)
+        {
+            var cellValues = new Dictionary<string, string>
+            {
+                ["A1"] = "10",
+                ["B7"] = "3"
+            };
+
+            var result = Evaluator.Evaluate(expression, cellValues);
+
+            Assert.IsFalse(result.Success, $"'{expression}' не має посилатися на клітинку без нуля в номері рядка");
+            Assert.AreEqual("#REF", result.Error);
+            Assert.IsFalse(CellAddress.TryParse("A01", out _));
+        }
+
+        [TestMethod]
+        public void CellText_UkrainianCulture_ParsedInvariantEverywhere()
+        {
+            var culture = CultureInfo.CurrentCulture;
+            try
+            {
+                CultureInfo.CurrentCulture = new CultureInfo("uk-UA");
+                var cellValues = new Dictionary<string, string> { ["A1"] = "1.5", ["A2"] = "1,5" };
+
+                Assert.AreEqual(1.5, RecalcScheduler.ParseConstant("1.5").Number);
+                Assert.AreEqual("#ERROR", RecalcScheduler.ParseConstant("1,5").Error, "Кома не є десятковим роздільником");
+
+                var cells = new DictionaryCellSource(cellValues);
+                Assert.AreEqual(1.5, cells.GetCellValue(new CellAddress(0, 0)).Number);
+                Assert.AreEqual("#ERROR", cells.GetCellValue(new CellAddress(1, 0)).Error);
+                Assert.AreEqual(3.0, Evaluator.Evaluate("=(A1*2)", cellValues).NumberValue, 0.0001);
+
+                using var store = new NativeSheetStore(2, 1);
+                store.SetText(new CellAddress(0, 0), "1.5");
+                store.SetText(new CellAddress(1, 0), "1,5");
+                Assert.AreEqual(1.5, store.GetCellValue(new CellAddress(0, 0)).Number);
+                Assert.AreEqual("1,5", store.GetText(new CellAddress(1, 0)), "Кома лишається текстом");
+            }
+            finally
+            {
+                CultureInfo.CurrentCulture = culture;
+            }
+        }
     }
 }
\ No newline at end of file
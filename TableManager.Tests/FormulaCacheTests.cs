@@ -0,0 +1,89 @@
+using Microsoft.VisualStudio.TestTools.UnitTesting;
+using TableManager.App.Controllers;
+
+namespace TableManager.Tests
+{
+    [TestClass]
+    public class FormulaCacheTests
+    {
+        [TestMethod]
+        public void GetOrAdd_RepeatedFormula_CompilesOnce()
+        {
+            var cache = new FormulaCache(100);
+            int compilations = 0;
+
+            for (int row = 1; row <= 50; row++)
+            {
+                cache.GetOrAdd("=(A1+B1)", text =>
+                {
+                    compilations++;
+                    return FormulaCompiler.Compile(text);
+                });
+            }
+
+            Assert.AreEqual(1, compilations);
+            Assert.AreEqual(1, cache.Misses);
+            Assert.AreEqual(49, cache.Hits);
+        }
+
+        [TestMethod]
+        public void GetOrAdd_InvalidFormula_CachesFailure()
+        {
+            var cache = new FormulaCache(100);
+            int compilations = 0;
+
+            Assert.IsNull(cache.GetOrAdd("=(A1+)", text => { compilations++; return FormulaCompiler.Compile(text); }));
+            Assert.IsNull(cache.GetOrAdd("=(A1+)", text => { compilations++; return FormulaCompiler.Compile(text); }));
+
+            Assert.AreEqual(1, compilations, "Невалідна формула теж розбирається лише раз");
+        }
+
+        [TestMethod]
+        public void GetOrAdd_ManyDistinctFormulas_StaysWithinMaxEntries()
+        {
+            var cache = new FormulaCache(100);
+
+            for (int row = 1; row <= 1000; row++)
+                cache.GetOrAdd($"=(A{row}+B{row})", FormulaCompiler.Compile);
+
+            Assert.IsTrue(cache.Count <= 100, $"У кеші {cache.Count} записів");
+            Assert.AreEqual(1000 - cache.Count, cache.Evictions);
+        }
+
+        [TestMethod]
+        public void GetOrAdd_ScanOfOneOffFormulas_KeepsFrequentOnes()
+        {
+            var cache = new FormulaCache(100);
+            var hot = new string[20];
+            for (int i = 0; i < hot.Length; i++)
+                hot[i] = $"=(C{i + 1}*2)";
+
+            // Часті формули продовжують використовуватися впереміш з потоком разових
+            for (int row = 1; row <= 2000; row++)
+            {
+                if (row % 20 == 1)
+                {
+                    foreach (var formula in hot)
+                        cache.GetOrAdd(formula, FormulaCompiler.Compile);
+                }
+                cache.GetOrAdd($"=(A{row}+B{row})", FormulaCompiler.Compile);
+            }
+
+            foreach (var formula in hot)
+                Assert.IsTrue(cache.TryGet(formula, out _), $"Часта формула {formula} витіснена разовими");
+        }
+
+        [TestMethod]
+        public void GetOrAdd_WeightLimit_EvictsBeforeEntryLimit()
+        {
+            long maxWeight = FormulaCache.EstimateWeight("=(A1+B1)") * 10;
+            var cache = new FormulaCache(1000, maxWeight);
+
+            for (int row = 1; row <= 100; row++)
+                cache.GetOrAdd($"=(A{row}+B{row})", FormulaCompiler.Compile);
+
+            Assert.IsTrue(cache.Weight <= maxWeight);
+            Assert.IsTrue(cache.Count <= 10);
+        }
+    }
+}
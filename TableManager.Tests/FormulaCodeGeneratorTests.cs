@@ -0,0 +1,96 @@
+using Microsoft.VisualStudio.TestTools.UnitTesting;
+using System.Collections.Generic;
+using TableManager.App.Controllers;
+using ValueType = TableManager.App.Controllers.ValueType;
+
+namespace TableManager.Tests
+{
+    [TestClass]
+    public class FormulaCodeGeneratorTests
+    {
+        [TestMethod]
+        [DataRow("=(A1*B1+C1 mod 7)")]
+        [DataRow("=(inc(A1)-dec(B1)/C1)")]
+        [DataRow("=((A1+B1) div C1)")]
+        [DataRow("=(A1*B1>=C1)")]
+        [DataRow("=(A1<>B1)")]
+        public void Generate_MatchesInterpreter(string expression)
+        {
+            var formula = FormulaCompiler.Compile(expression);
+            Assert.IsNotNull(formula);
+
+            var native = FormulaCodeGenerator.Generate(formula);
+
+            foreach (var (a, b, c) in new[] { (3.0, 4.0, 5.0), (10.0, 0.0, 2.0), (-7.5, 2.0, 3.0), (1.0, 1.0, 1.0) })
+            {
+                var cells = new Dictionary<string, string>
+                {
+                    ["A1"] = a.ToString(),
+                    ["B1"] = b.ToString(),
+                    ["C1"] = c.ToString()
+                };
+                var expected = formula.Root.Evaluate(new DictionaryCellSource(cells));
+
+                var inputs = new double[formula.References.Count];
+                for (int i = 0; i < inputs.Length; i++)
+                    inputs[i] = new DictionaryCellSource(cells).GetCellValue(formula.References[i]).Number;
+
+                double actual = native(inputs);
+
+                if (expected.IsError)
+                    Assert.IsTrue(double.IsNaN(actual), $"{expression}: помилка має кодуватися як NaN");
+                else
+                    Assert.AreEqual(expected.Number, actual, 0.0, $"{expression} для ({a}, {b}, {c})");
+            }
+        }
+
+        [TestMethod]
+        public void Evaluate_AfterPromotion_UsesNativeCodeAndKeepsErrors()
+        {
+            var formula = FormulaCompiler.Compile("=(A1/B1)");
+            Assert.IsNotNull(formula);
+            formula.PromoteToNative();
+
+            var ok = formula.Evaluate(new DictionaryCellSource(new Dictionary<string, string> { ["A1"] = "6", ["B1"] = "3" }));
+            var divByZero = formula.Evaluate(new DictionaryCellSource(new Dictionary<string, string> { ["A1"] = "6", ["B1"] = "0" }));
+            var missing = formula.Evaluate(new DictionaryCellSource(new Dictionary<string, string> { ["A1"] = "6" }));
+
+            Assert.IsTrue(formula.IsNative);
+            Assert.AreEqual(2.0, ok.Number, 0.0001);
+            Assert.AreEqual("#ERROR", divByZero.Error);
+            Assert.AreEqual("#REF", missing.Error);
+        }
+
+        [TestMethod]
+        public void Evaluate_ComparisonAfterPromotion_ReturnsBoolean()
+        {
+            var formula = FormulaCompiler.Compile("=(A1>2)");
+            Assert.IsNotNull(formula);
+            formula.PromoteToNative();
+
+            var value = formula.Evaluate(new DictionaryCellSource(new Dictionary<string, string> { ["A1"] = "3" }));
+
+            Assert.AreEqual(ValueType.Boolean, value.Type);
+            Assert.IsTrue(value.Bool);
+        }
+
+        [TestMethod]
+        public void Evaluate_HotFormula_IsPromotedAfterThreshold()
+        {
+            var formula = FormulaCompiler.Compile("=(A1+1)");
+            Assert.IsNotNull(formula);
+            var cells = new DictionaryCellSource(new Dictionary<string, string> { ["A1"] = "1" });
+
+            for (int i = 0; i < FormulaTiering.CompileThreshold; i++)
+                formula.Evaluate(cells);
+
+            // Поки делегат компілюється у фоні, формула рахується інтерпретатором
+            Assert.IsNotNull(formula.Promotion, "Після порогу має запуститися фонова компіляція");
+            Assert.AreEqual(2.0, formula.Evaluate(cells).Number, 0.0001);
+
+            Assert.IsTrue(formula.Promotion.Wait(TimeSpan.FromSeconds(30)));
+            Assert.IsTrue(formula.IsNative, "Після фонової компіляції формула має бути скомпільована");
+            Assert.AreEqual(2.0, formula.Evaluate(cells).Number, 0.0001);
+        }
+    }
+}
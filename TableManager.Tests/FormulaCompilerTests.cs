@@ -0,0 +1,210 @@
+using Microsoft.VisualStudio.TestTools.UnitTesting;
+using System.Collections.Generic;
+using TableManager.App.Controllers;
+using ValueType = TableManager.App.Controllers.ValueType;
+
+namespace TableManager.Tests
+{
+    [TestClass]
+    public class FormulaCompilerTests
+    {
+        [TestMethod]
+        [DataRow("=(2+3*4)", 14.0)]
+        [DataRow("=(2*3+4)", 10.0)]
+        [DataRow("=(10-2-3)", 5.0)]
+        [DataRow("=(8/2*2)", 8.0)]
+        [DataRow("=(7 mod 3*2)", 2.0)]
+        [DataRow("=(1+7 mod 4)", 4.0)]
+        [DataRow("=(inc(2)*dec(4))", 9.0)]
+        [DataRow("=(1.5+1)", 2.5)]
+        public void Compile_ArithmeticPrecedence_MatchesEvaluator(string expression, double expected)
+        {
+            var formula = FormulaCompiler.Compile(expression);
+
+            Assert.IsNotNull(formula, $"'{expression}' має компілюватися");
+            var value = formula.Evaluate(new DictionaryCellSource(new Dictionary<string, string>()));
+            Assert.AreEqual(ValueType.Number, value.Type);
+            Assert.AreEqual(expected, value.Number, 0.0001);
+        }
+
+        [TestMethod]
+        public void Compile_CollectsUniqueReferences()
+        {
+            var formula = FormulaCompiler.Compile("=((A1+B2)*A1>C10)");
+
+            Assert.IsNotNull(formula);
+            CollectionAssert.AreEqual(
+                new[] { new CellAddress(0, 0), new CellAddress(1, 1), new CellAddress(9, 2) },
+                new List<CellAddress>(formula.References));
+        }
+
+        [TestMethod]
+        public void Evaluate_IncDecWithReferences_ReturnsValue()
+        {
+            var cellValues = new Dictionary<string, string>
+            {
+                ["A1"] = "4",
+                ["B1"] = "10"
+            };
+
+            var result = Evaluator.Evaluate("=(inc(A1)+dec(B1))", cellValues);
+
+            Assert.IsTrue(result.Success);
+            Assert.AreEqual(14.0, result.NumberValue, 0.0001);
+        }
+
+        [TestMethod]
+        [DataRow("=(5 mod 0)")]
+        [DataRow("=(5 div 0.5)")]
+        [DataRow("=(5/0)")]
+        public void Evaluate_ZeroDivisor_ReturnsError(string expression)
+        {
+            var result = Evaluator.Evaluate(expression, new Dictionary<string, string>());
+
+            Assert.IsFalse(result.Success);
+            Assert.AreEqual("#ERROR", result.Error);
+        }
+
+        [TestMethod]
+        public void Evaluate_BooleanInArithmetic_ReturnsError()
+        {
+            var cellValues = new Dictionary<string, string>
+            {
+                ["A1"] = "=(1<2)"
+            };
+
+            var result = Evaluator.Evaluate("=(A1+1)", cellValues);
+
+            Assert.IsFalse(result.Success, "Булеве значення не можна додавати до числа");
+        }
+
+        [TestMethod]
+        public void Evaluate_CompareBooleans_ReturnsBoolean()
+        {
+            var cellValues = new Dictionary<string, string>
+            {
+                ["A1"] = "=(1<2)",
+                ["A2"] = "=(3<4)"
+            };
+
+            var result = Evaluator.Evaluate("=(A1=A2)", cellValues);
+
+            Assert.IsTrue(result.Success);
+            Assert.AreEqual(ValueType.Boolean, result.Type);
+            Assert.IsTrue(result.BoolValue);
+        }
+
+        [TestMethod]
+        public void Evaluate_CyclicReferences_ReturnsCycleError()
+        {
+            var cellValues = new Dictionary<string, string>
+            {
+                ["A1"] = "=(A2+1)",
+                ["A2"] = "=(A1+1)"
+            };
+
+            var result = Evaluator.Evaluate("=(A1)", cellValues);
+
+            Assert.IsFalse(result.Success);
+            Assert.AreEqual("#CYCLE", result.Error);
+        }
+
+        [TestMethod]
+        [DataRow("=(A1+)")]
+        [DataRow("=(A1  +A2)")]
+        [DataRow("5")]
+        public void Compile_InvalidFormula_ReturnsNull(string expression)
+        {
+            Assert.IsNull(FormulaCompiler.Compile(expression));
+        }
+
+        [TestMethod]
+        public void GetOrCompile_SameText_ReturnsCachedInstance()
+        {
+            var first = FormulaCompiler.GetOrCompile("=(A1*B1+C1)");
+            var second = FormulaCompiler.GetOrCompile("=(A1*B1+C1)");
+
+            Assert.IsNotNull(first);
+            Assert.AreSame(first, second);
+        }
+
+        [TestMethod]
+        public void TryCanonicalize_FilledDownFormulas_ShareKey()
+        {
+            Assert.IsTrue(FormulaCompiler.TryCanonicalize("=(A1+B1)", new CellAddress(0, 2), out var first));
+            Assert.IsTrue(FormulaCompiler.TryCanonicalize("=(A2+B2)", new CellAddress(1, 2), out var second));
+            Assert.IsTrue(FormulaCompiler.TryCanonicalize("=(A1+B2)", new CellAddress(0, 2), out var other));
+
+            Assert.AreEqual("=(R[0]C[-2]+R[0]C[-1])", first);
+            Assert.AreEqual(first, second);
+            Assert.AreNotEqual(first, other);
+            Assert.IsFalse(FormulaCompiler.TryCanonicalize("=(A0+B1)", new CellAddress(0, 2), out _), "A0 не канонізується");
+        }
+
+        [TestMethod]
+        public void GetOrCompile_WithHost_SharesTemplateAcrossColumn()
+        {
+            var cells = new Dictionary<string, string>
+            {
+                ["A1"] = "1", ["B1"] = "2",
+                ["A2"] = "10", ["B2"] = "20"
+            };
+
+            var first = FormulaCompiler.GetOrCompile("=(A1*7-B1)", new CellAddress(0, 2));
+            var second = FormulaCompiler.GetOrCompile("=(A2*7-B2)", new CellAddress(1, 2));
+
+            Assert.IsNotNull(first);
+            Assert.AreSame(first, second, "Одна скомпільована форма на весь стовпець");
+            Assert.IsTrue(first.IsRelative);
+
+            var source = new DictionaryCellSource(cells);
+            Assert.AreEqual(5.0, first.Evaluate(source, new CellAddress(0, 2)).Number, 0.0001);
+            Assert.AreEqual(50.0, first.Evaluate(source, new CellAddress(1, 2)).Number, 0.0001);
+            CollectionAssert.AreEqual(
+                new[] { new CellAddress(1, 0), new CellAddress(1, 1) },
+                new List<CellAddress>(first.GetReferences(new CellAddress(1, 2))));
+        }
+
+        [TestMethod]
+        public void Template_InterpretedEvaluation_DoesNotAllocate()
+        {
+            var cells = new CellStore();
+            for (int row = 0; row < 64; row++)
+            {
+                cells.Set(new CellAddress(row, 0), FormulaValue.FromNumber(row));
+                cells.Set(new CellAddress(row, 1), FormulaValue.FromNumber(2));
+            }
+
+            var template = FormulaCompiler.GetOrCompile("=(A1*2+inc(B1) mod 3)", new CellAddress(0, 2));
+            Assert.IsNotNull(template);
+            Assert.IsTrue(template.IsRelative);
+            Assert.AreEqual(new CellAddress(5, 1), template.GetReference(1, new CellAddress(5, 2)));
+
+            // Прогрів, щоб у вимір не потрапили статичні ініціалізатори
+            template.Root.Evaluate(cells, new CellAddress(0, 2));
+
+            long before = GC.GetAllocatedBytesForCurrentThread();
+            double sum = 0;
+            for (int row = 0; row < 64; row++)
+                sum += template.Root.Evaluate(cells, new CellAddress(row, 2)).Number;
+            long allocated = GC.GetAllocatedBytesForCurrentThread() - before;
+
+            Assert.AreEqual(0L, allocated, "Відносні посилання не мають створювати об'єктів на кожне обчислення");
+            Assert.AreEqual(4032.0, sum, 0.0001);
+        }
+
+        [TestMethod]
+        public void Template_NativeTier_ResolvesReferencesPerHost()
+        {
+            var cells = new Dictionary<string, string> { ["A1"] = "4", ["A2"] = "9" };
+            var template = FormulaCompiler.GetOrCompile("=(A1 div 2+A1)", new CellAddress(0, 3));
+            Assert.IsNotNull(template);
+
+            template.PromoteToNative();
+            var source = new DictionaryCellSource(cells);
+
+            Assert.AreEqual(6.0, template.Evaluate(source, new CellAddress(0, 3)).Number, 0.0001);
+            Assert.AreEqual(13.0, template.Evaluate(source, new CellAddress(1, 3)).Number, 0.0001);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+using Antlr4.Runtime;
+using Microsoft.VisualStudio.TestTools.UnitTesting;
+using System;
+using System.Collections.Generic;
+using System.IO;
+using System.Text;
+using TableManager.App.Controllers;
+
+namespace TableManager.Tests
+{
+    [TestClass]
+    public class FormulaLexerTests
+    {
+        private static readonly string[] Fragments =
+        {
+            "=", "(", ")", "+", "-", "*", "/", "<", ">", "<=", ">=", "<>", "=",
+            " mod ", " div ", " mo", " di", "inc", "dec", "in", "de", "i", "d",
+            "A1", "AB12", "Z", "A", "1", "42", "1.5", "1.", ".5", ".",
+            " ", "  ", "\t", "\n", "\r\n", "x", "m", "a1", "é"
+        };
+
+        private static List<string> Describe(ITokenSource source)
+        {
+            var tokens = new List<string>();
+            IToken token;
+            do
+            {
+                token = source.NextToken();
+                tokens.Add($"{token.Type}:{token.StartIndex}-{token.StopIndex}@{token.Line}:{token.Column}:{token.Channel}:{token.Text}");
+            } while (token.Type != TokenConstants.EOF);
+            return tokens;
+        }
+
+        private static (List<string> tokens, int errors) RunGenerated(string text)
+        {
+            var lexer = new TableExpressionLexer(new AntlrInputStream(text));
+            lexer.RemoveErrorListeners();
+            var counter = new CountingListener();
+            lexer.AddErrorListener(counter);
+            return (Describe(lexer), counter.Count);
+        }
+
+        private static (List<string> tokens, int errors) RunFast(string text)
+        {
+            var lexer = new FormulaLexer(text);
+            return (Describe(lexer), lexer.ErrorCount);
+        }
+
+        private static void AssertSameTokens(string text)
+        {
+            var expected = RunGenerated(text);
+            var actual = RunFast(text);
+
+            CollectionAssert.AreEqual(expected.tokens, actual.tokens, $"Токени відрізняються для '{text}'");
+            Assert.AreEqual(expected.errors, actual.errors, $"Кількість помилок відрізняється для '{text}'");
+        }
+
+        [TestMethod]
+        [DataRow("=(A1+B1*2)")]
+        [DataRow("=(A1 mod B1)")]
+        [DataRow("=(inc(A1)<=dec(B1))")]
+        [DataRow("=(1.5<>2.25)")]
+        [DataRow("=(A1 mo B1)")]
+        [DataRow("=(1.+AB)")]
+        [DataRow("=(a1\n+\tB2)")]
+        [DataRow("")]
+        public void NextToken_KnownFormulas_MatchesGeneratedLexer(string text)
+        {
+            AssertSameTokens(text);
+        }
+
+        [TestMethod]
+        public void NextToken_FuzzedInput_MatchesGeneratedLexer()
+        {
+            var random = new Random(20240901);
+            var builder = new StringBuilder();
+
+            for (int i = 0; i < 5000; i++)
+            {
+                builder.Clear();
+                int parts = random.Next(1, 12);
+                for (int j = 0; j < parts; j++)
+                {
+                    if (random.Next(8) == 0)
+                        builder.Append((char)random.Next(32, 127));
+                    else
+                        builder.Append(Fragments[random.Next(Fragments.Length)]);
+                }
+
+                AssertSameTokens(builder.ToString());
+            }
+        }
+
+        [TestMethod]
+        public void Parser_WithFastLexer_BuildsSameTree()
+        {
+            const string formula = "=((A1+2)*inc(B3) mod 4>=dec(C1))";
+
+            var expected = new TableExpressionParser(new CommonTokenStream(new TableExpressionLexer(new AntlrInputStream(formula)))).formula();
+            var actual = new TableExpressionParser(new CommonTokenStream(new FormulaLexer(formula))).formula();
+
+            Assert.AreEqual(expected.ToStringTree(), actual.ToStringTree());
+        }
+
+        private class CountingListener : IAntlrErrorListener<int>
+        {
+            public int Count { get; private set; }
+
+            public void SyntaxError(TextWriter output, IRecognizer recognizer, int offendingSymbol, int line, int charPositionInLine, string msg, RecognitionException e)
+            {
+                Count++;
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+using System.Threading.Tasks;
+using Microsoft.VisualStudio.TestTools.UnitTesting;
+using TableManager.App.Controllers;
+
+namespace TableManager.Tests
+{
+    [TestClass]
+    public class FormulaMetricsTests
+    {
+        [TestMethod]
+        public void StripedCounter_ParallelAdds_SumIsExact()
+        {
+            var counter = new StripedCounter();
+
+            Parallel.For(0, 100_000, _ => counter.Increment());
+
+            Assert.AreEqual(100_000L, counter.Sum);
+        }
+
+        [TestMethod]
+        public void LatencyHistogram_Percentiles_WithinBucketPrecision()
+        {
+            var histogram = new LatencyHistogram();
+            for (long value = 1; value <= 10_000; value++)
+                histogram.Record(value * 1000);
+
+            Assert.AreEqual(10_000L, histogram.Count);
+            Assert.AreEqual(10_000_000L, histogram.Max);
+            Assert.AreEqual(5_000_000.0, histogram.GetPercentile(50), 5_000_000 * 0.07, "Похибка кошика не більше ~6%");
+            Assert.AreEqual(9_900_000.0, histogram.GetPercentile(99), 9_900_000 * 0.07);
+            Assert.AreEqual(10_000_000L, histogram.GetPercentile(100));
+        }
+
+        [TestMethod]
+        public void LatencyHistogram_SmallValues_AreExact()
+        {
+            var histogram = new LatencyHistogram();
+            histogram.Record(3);
+            histogram.Record(7);
+            histogram.Record(15);
+
+            Assert.AreEqual(3L, histogram.GetPercentile(0));
+            Assert.AreEqual(7L, histogram.GetPercentile(50));
+            Assert.AreEqual(15L, histogram.GetPercentile(100));
+            Assert.AreEqual(25L, histogram.Total);
+        }
+
+        [TestMethod]
+        public void FormulaCache_ParallelLookups_CountsAreExact()
+        {
+            var cache = new FormulaCache();
+
+            Parallel.For(0, 10_000, i => cache.GetOrAdd($"=({i % 10})", FormulaCompiler.Compile));
+
+            Assert.AreEqual(10_000L, cache.Hits + cache.Misses);
+            Assert.IsTrue(cache.Misses >= 10, "Кожен ключ хоча б раз промахнувся");
+        }
+
+        [TestMethod]
+        public void ProfilingEnabled_DumpReportsDfaTransitions()
+        {
+            Parser.ProfilingEnabled = true;
+            try
+            {
+                long before = Parser.GetPredictionTotals().Invocations;
+
+                Assert.IsTrue(Parser.TryParseFormula("=(A1 mod 2 + inc(B3) * 4)", out _));
+                Assert.IsTrue(Parser.TryParseFormula("=(A1 mod 2 + inc(B3) * 4)", out _));
+
+                var totals = Parser.GetPredictionTotals();
+                Assert.IsTrue(totals.Invocations > before, "Рішення профілюючого симулятора підсумовуються");
+                Assert.IsTrue(totals.DfaTransitions > 0, "Повторний розбір бере переходи з кешу DFA");
+                StringAssert.Contains(FormulaMetrics.Dump(), "parser prediction");
+                StringAssert.Contains(FormulaMetrics.Dump(), "SLL ratio");
+            }
+            finally
+            {
+                Parser.ProfilingEnabled = false;
+            }
+        }
+
+        [TestMethod]
+        public void Enabled_ParseRecordsPhaseAndDumpListsIt()
+        {
+            FormulaMetrics.Enabled = true;
+            try
+            {
+                long before = FormulaMetrics.GetHistogram(MetricPhase.Parse).Count;
+
+                Assert.IsTrue(Parser.TryParseFormula("=(A1 div 4 - B7)", out _));
+
+                Assert.IsTrue(FormulaMetrics.GetHistogram(MetricPhase.Parse).Count > before);
+                StringAssert.Contains(FormulaMetrics.Dump(), "Parse");
+                StringAssert.Contains(FormulaMetrics.Dump(), "formula cache");
+            }
+            finally
+            {
+                FormulaMetrics.Enabled = false;
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+using System;
+using System.Collections.Generic;
+using System.Linq;
+using System.Text;
+using Antlr4.Runtime;
+using Microsoft.VisualStudio.TestTools.UnitTesting;
+using TableManager.App.Controllers;
+
+namespace TableManager.Tests
+{
+    [TestClass]
+    public class FormulaRecognizerTests
+    {
+        private static readonly string[] Pieces =
+        {
+            "=", "(", ")", "+", "-", "*", "/", " mod ", " div ", "mod", "inc", "dec", "inc(", "dec(",
+            "<", "<=", ">", ">=", "<>", "A1", "B12", "AB3", "A", "3", "4.5", "1.", " ", "\t", "?", "a1"
+        };
+
+        [TestMethod]
+        public void IsValid_SameLanguageAsGeneratedParser()
+        {
+            var random = new Random(24);
+            var corpus = ParserProfiler.DefaultCorpus(rows: 200).ToList();
+            int generated = corpus.Count;
+
+            // Мутації коректних формул: вставка, видалення чи заміна одного фрагмента
+            for (int i = 0; i < generated; i++)
+                corpus.Add(Mutate(corpus[i], random));
+
+            // Суміш токенів, здебільшого в рамці =( ... )
+            for (int i = 0; i < 20_000; i++)
+                corpus.Add(RandomSoup(random));
+
+            int accepted = 0;
+            foreach (var formula in corpus)
+            {
+                bool expected = GeneratedParserAccepts(formula);
+                Assert.AreEqual(expected, FormulaRecognizer.IsValid(formula), $"'{formula}'");
+                if (expected)
+                    accepted++;
+            }
+
+            Assert.IsTrue(accepted > generated, "Корпус має містити й коректні, й некоректні формули");
+            Assert.IsTrue(accepted < corpus.Count);
+        }
+
+        [TestMethod]
+        public void Validate_ReportsErrorPosition()
+        {
+            Assert.IsTrue(FormulaRecognizer.Validate("=(A1 mod 2 <= inc(B3))", out int none));
+            Assert.AreEqual(-1, none);
+
+            Assert.IsFalse(FormulaRecognizer.Validate("=(A1+)", out int missingOperand));
+            Assert.AreEqual(5, missingOperand, "Зупинка на ')' після '+'");
+
+            Assert.IsFalse(FormulaRecognizer.Validate("=(A1 ? B1)", out int badCharacter));
+            Assert.AreEqual(5, badCharacter, "Помилка лексера на '?'");
+
+            Assert.IsFalse(FormulaRecognizer.Validate("=(A1 < B1 < C1)", out int chained));
+            Assert.AreEqual(10, chained, "Порівняння лише одне й лише на верхньому рівні");
+        }
+
+        private static bool GeneratedParserAccepts(string formula)
+        {
+            var errors = new SyntaxErrorListener();
+            var lexer = new TableExpressionLexer(new AntlrInputStream(formula));
+            lexer.RemoveErrorListeners();
+            lexer.AddErrorListener(errors);
+
+            var parser = new TableExpressionParser(new CommonTokenStream(lexer));
+            parser.RemoveErrorListeners();
+            parser.AddErrorListener(errors);
+
+            parser.formula();
+            return !errors.HasErrors;
+        }
+
+        private static string Mutate(string formula, Random random)
+        {
+            int position = random.Next(formula.Length + 1);
+            string piece = Pieces[random.Next(Pieces.Length)];
+            return random.Next(3) switch
+            {
+                0 => formula.Insert(position, piece),
+                1 when position < formula.Length => formula.Remove(position, 1),
+                _ => formula.Substring(0, position) + piece + formula.Substring(Math.Min(formula.Length, position + 1))
+            };
+        }
+
+        private static string RandomSoup(Random random)
+        {
+            var text = new StringBuilder();
+            bool framed = random.Next(4) != 0;
+            if (framed)
+                text.Append("=(");
+
+            int count = random.Next(1, 10);
+            for (int i = 0; i < count; i++)
+                text.Append(Pieces[random.Next(Pieces.Length)]);
+
+            if (framed)
+                text.Append(')');
+            return text.ToString();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+using System;
+using Microsoft.VisualStudio.TestTools.UnitTesting;
+using TableManager.App.Controllers;
+
+namespace TableManager.Tests
+{
+    [TestClass]
+    public class FormulaSimplifierTests
+    {
+        // Двійково-точні значення: під inc/dec додавання точні, і злиття дає той самий біт-у-біт результат.
+        // 2^-14 менше за поріг 0.0001, тож ділення на нього — #ERROR.
+        private static readonly double[] Literals = { 0, 1.0 / 16384, 1, 2, 3, 7, -4, 12.25, -0.5, 100, 1000 };
+        private static readonly FormulaOperator[] ExactOperators =
+            { FormulaOperator.Add, FormulaOperator.Subtract, FormulaOperator.Mod, FormulaOperator.Div };
+
+        [TestMethod]
+        public void Simplify_RandomTrees_EvaluateSameAsOriginal()
+        {
+            var random = new Random(2024);
+            var cells = CreateCells();
+
+            for (int i = 0; i < 5000; i++)
+            {
+                var original = RandomNode(random, depth: 5, exact: false);
+                var simplified = FormulaSimplifier.Simplify(original);
+
+                var want = original.Evaluate(cells);
+                var got = simplified.Evaluate(cells);
+
+                Assert.AreEqual(want.Type, got.Type, $"Дерево {i}");
+                Assert.AreEqual(want.Error, got.Error, $"Дерево {i}");
+                Assert.IsTrue(want.Number.Equals(got.Number), $"Дерево {i}: {want.Number} і {got.Number}");
+            }
+        }
+
+        [TestMethod]
+        public void Compile_LiteralSubexpressions_AreFolded()
+        {
+            var parenthesized = (BinaryNode)FormulaCompiler.Compile("=((2+3)*A1)")!.Root;
+            var incremented = (BinaryNode)FormulaCompiler.Compile("=(inc(inc(3))*A1)")!.Root;
+            var chain = (IncDecNode)FormulaCompiler.Compile("=(inc(inc(dec(inc(A1)))))")!.Root;
+
+            Assert.AreEqual(5.0, ((NumberNode)parenthesized.Left).Value);
+            Assert.AreEqual(5.0, ((NumberNode)incremented.Left).Value);
+            Assert.AreEqual(2.0, chain.Delta, "Чотири inc/dec — одне додавання");
+            Assert.IsInstanceOfType(chain.Operand, typeof(CellReferenceNode));
+        }
+
+        [TestMethod]
+        public void Compile_ErroringConstants_KeepErrorSemantics()
+        {
+            var cells = new CellStore();
+            cells.Set(new CellAddress(0, 0), FormulaValue.FromBool(true));
+
+            var division = FormulaCompiler.Compile("=(1/0 + 4)")!;
+            var neutral = FormulaCompiler.Compile("=(inc(dec(A1)))")!;
+
+            Assert.IsInstanceOfType(division.Root, typeof(BinaryNode), "Ділення на нуль не згортається");
+            Assert.AreEqual("#ERROR", division.Evaluate(cells).Error);
+            Assert.AreEqual("#ERROR", neutral.Evaluate(cells).Error, "inc/dec над булевим значенням — помилка й після злиття");
+        }
+
+        // exact: лише +, -, mod, div — під inc/dec не буває неточних проміжних значень,
+        // а для |x| >= 2^53 злиття inc/dec може відрізнятися на одиницю округлення
+        private static FormulaNode RandomNode(Random random, int depth, bool exact)
+        {
+            int roll = random.Next(depth <= 0 ? 2 : 7);
+            switch (roll)
+            {
+                case 0:
+                    return new NumberNode(Literals[random.Next(Literals.Length)]);
+                case 1:
+                    // A1..C3; C3 порожня — #REF
+                    return new CellReferenceNode(new CellAddress(random.Next(3), random.Next(3)));
+                case 2:
+                case 3:
+                    return new IncDecNode(RandomNode(random, depth - 1, exact: true), random.Next(2) == 0 ? 1 : -1);
+                case 4 when !exact:
+                    return new ComparisonNode((ComparisonOperator)random.Next(6), RandomNode(random, depth - 1, exact), RandomNode(random, depth - 1, exact));
+                default:
+                    var op = exact ? ExactOperators[random.Next(ExactOperators.Length)] : (FormulaOperator)random.Next(6);
+                    return new BinaryNode(op, RandomNode(random, depth - 1, exact), RandomNode(random, depth - 1, exact));
+            }
+        }
+
+        private static CellStore CreateCells()
+        {
+            var cells = new CellStore();
+            cells.Set(new CellAddress(0, 0), FormulaValue.FromNumber(5));
+            cells.Set(new CellAddress(0, 1), FormulaValue.FromNumber(-2.5));
+            cells.Set(new CellAddress(0, 2), FormulaValue.Zero);
+            cells.Set(new CellAddress(1, 0), FormulaValue.FromBool(true));
+            cells.Set(new CellAddress(1, 1), FormulaValue.GeneralError);
+            cells.Set(new CellAddress(1, 2), FormulaValue.FromNumber(1000));
+            cells.Set(new CellAddress(2, 0), FormulaValue.CycleError);
+            cells.Set(new CellAddress(2, 1), FormulaValue.FromNumber(1.0 / 16384));
+            return cells;
+        }
+    }
+}
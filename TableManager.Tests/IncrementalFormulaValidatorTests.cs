@@ -0,0 +1,85 @@
+using System;
+using Microsoft.VisualStudio.TestTools.UnitTesting;
+using TableManager.App.Controllers;
+
+namespace TableManager.Tests
+{
+    [TestClass]
+    public class IncrementalFormulaValidatorTests
+    {
+        private static readonly string[] Pieces =
+        {
+            "=", "(", ")", "+", "-", "*", "/", " mod ", " div ", " ", "m", "o", "d", "inc(", "dec(",
+            "<", "<=", ">", "<>", "A", "B1", "12", "3.5", ".", "1", "?", "  "
+        };
+
+        [TestMethod]
+        public void Update_TypingAndRandomEdits_MatchesFullCheckAndFullLex()
+        {
+            var random = new Random(25);
+            var validator = new IncrementalFormulaValidator();
+            string text = "";
+
+            // Набір формули посимвольно
+            foreach (char c in "=(inc(A1) mod 3 + B12 * 4.5 <> dec(C7 div 2))")
+            {
+                text += c;
+                AssertSameAsFull(validator, text);
+            }
+
+            // Випадкові правки: вставка, видалення, заміна в будь-якому місці
+            for (int step = 0; step < 3000; step++)
+            {
+                int position = random.Next(text.Length + 1);
+                string piece = Pieces[random.Next(Pieces.Length)];
+                text = random.Next(3) switch
+                {
+                    0 => text.Insert(position, piece),
+                    1 when position < text.Length => text.Remove(position, Math.Min(text.Length - position, random.Next(1, 4))),
+                    _ => text.Substring(0, position) + piece + text.Substring(Math.Min(text.Length, position + 1))
+                };
+
+                if (text.Length > 80)
+                    text = "=(A1+B2)";
+
+                AssertSameAsFull(validator, text);
+            }
+        }
+
+        [TestMethod]
+        public void Update_EditInLongFormula_RelexesOnlyNearbyTokens()
+        {
+            var validator = new IncrementalFormulaValidator();
+            string formula = "=(" + string.Join("+", Enumerable.Range(1, 200).Select(i => "A" + i)) + ")";
+            validator.Update(formula);
+
+            var result = validator.Update(formula.Replace("+A100+", "+A1000+"));
+
+            Assert.IsTrue(result.IsValid);
+            Assert.IsTrue(validator.RelexedTokens <= 3, $"Перелексовано {validator.RelexedTokens}");
+            Assert.IsTrue(validator.ReusedTokens > 390);
+        }
+
+        [TestMethod]
+        public void Update_InvalidFormula_ReportsErrorPosition()
+        {
+            var validator = new IncrementalFormulaValidator();
+
+            Assert.AreEqual(5, validator.Update("=(A1+)").ErrorPosition);
+            Assert.AreEqual(4, validator.Update("=(A1  + B1)").ErrorPosition, "Подвійний пробіл");
+            Assert.AreEqual(-1, validator.Update("=(A1 + B1)").ErrorPosition);
+            Assert.IsTrue(validator.Update("текст").IsValid, "Не формула — як у CheckSyntax");
+        }
+
+        private static void AssertSameAsFull(IncrementalFormulaValidator validator, string text)
+        {
+            var result = validator.Update(text);
+            var fresh = new IncrementalFormulaValidator();
+            var full = fresh.Update(text);
+
+            Assert.AreEqual(Parser.CheckSyntax(text).isValid, result.IsValid, $"'{text}'");
+            Assert.AreEqual(full.ErrorPosition, result.ErrorPosition, $"'{text}'");
+            CollectionAssert.AreEqual(fresh.Tokens.ToArray(), validator.Tokens.ToArray(), $"Токени '{text}'");
+        }
+    }
+}
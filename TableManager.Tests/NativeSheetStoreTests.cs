@@ -0,0 +1,129 @@
+using System;
+using Microsoft.VisualStudio.TestTools.UnitTesting;
+using TableManager.App.Controllers;
+
+namespace TableManager.Tests
+{
+    [TestClass]
+    public class NativeSheetStoreTests
+    {
+        [TestMethod]
+        public void Recalculate_FilledDownColumn_SharesOneTemplate()
+        {
+            using var store = new NativeSheetStore(1000, 3);
+            for (int row = 0; row < store.Rows; row++)
+            {
+                store.SetText(new CellAddress(row, 0), (row + 1).ToString());
+                // B_n = (A_n * 3 - 1), унікальна форма, щоб не залежати від інших тестів
+                store.SetText(new CellAddress(row, 1), $"=(A{row + 1} * 3 - 1)");
+            }
+
+            Assert.AreEqual(1000L, store.Recalculate());
+            Assert.AreEqual(1, store.TemplateCount, "Заповнені вниз формули мають один шаблон");
+            Assert.AreEqual(2.0, store.GetCellValue(new CellAddress(0, 1)).Number);
+            Assert.AreEqual(2999.0, store.GetCellValue(new CellAddress(999, 1)).Number);
+            Assert.AreEqual(0.0, store.GetCellValue(new CellAddress(500, 2)).Number, "Порожня клітинка — 0");
+        }
+
+        [TestMethod]
+        public void GetCellValue_FormulaDependsOnLaterCell_EvaluatedOnDemand()
+        {
+            using var store = new NativeSheetStore(4, 4);
+            store.SetText(new CellAddress(0, 0), "=(inc(D4))");
+            store.SetText(new CellAddress(3, 3), "=(C3 + 5)");
+            store.SetText(new CellAddress(2, 2), "2");
+
+            Assert.AreEqual(8.0, store.GetCellValue(new CellAddress(0, 0)).Number);
+
+            store.SetText(new CellAddress(2, 2), "10");
+            store.Recalculate();
+
+            Assert.AreEqual(16.0, store.GetCellValue(new CellAddress(0, 0)).Number);
+        }
+
+        [TestMethod]
+        public void Recalculate_CycleAndOutOfRangeReference_ReturnErrors()
+        {
+            using var store = new NativeSheetStore(3, 3);
+            store.SetText(new CellAddress(0, 0), "=(B1 + 1)");
+            store.SetText(new CellAddress(0, 1), "=(A1 + 1)");
+            store.SetText(new CellAddress(1, 0), "=(Z9 + 1)");
+            store.SetText(new CellAddress(1, 1), "текст");
+            store.SetText(new CellAddress(2, 0), "=(A3");
+
+            store.Recalculate();
+
+            Assert.AreEqual("#CYCLE", store.GetCellValue(new CellAddress(0, 0)).Error);
+            Assert.AreEqual("#CYCLE", store.GetCellValue(new CellAddress(0, 1)).Error);
+            Assert.AreEqual("#REF", store.GetCellValue(new CellAddress(1, 0)).Error, "Посилання за межі таблиці");
+            Assert.AreEqual("#ERROR", store.GetCellValue(new CellAddress(1, 1)).Error);
+            Assert.AreEqual("#ERROR", store.GetCellValue(new CellAddress(2, 0)).Error, "Синтаксична помилка");
+        }
+
+        [TestMethod]
+        public void Recalculate_LongForwardChain_DoesNotOverflowStack()
+        {
+            const int rows = 200_000;
+            using var store = new NativeSheetStore(rows, 1);
+            // Кожен рядок посилається на наступний: A1 = (A2 + 1), ..., останній — константа
+            for (int row = 0; row < rows - 1; row++)
+                store.SetText(new CellAddress(row, 0), $"=(A{row + 2} + 1)");
+            store.SetText(new CellAddress(rows - 1, 0), "0");
+
+            Assert.AreEqual((long)rows - 1, store.Recalculate());
+            Assert.AreEqual(rows - 1.0, store.GetCellValue(new CellAddress(0, 0)).Number);
+            Assert.AreEqual(1.0, store.GetCellValue(new CellAddress(rows - 2, 0)).Number);
+        }
+
+        [TestMethod]
+        public void GetCellValue_LongForwardChainBeforeRecalculate_EvaluatedOnDemand()
+        {
+            const int rows = 100_000;
+            using var store = new NativeSheetStore(rows, 1);
+            for (int row = 0; row < rows - 1; row++)
+                store.SetText(new CellAddress(row, 0), $"=(A{row + 2} * 1 + 1)");
+            store.SetText(new CellAddress(rows - 1, 0), "=(A1 * 0)");
+
+            // Останній рядок посилається на перший, що ще на стеку обчислення
+            Assert.AreEqual("#CYCLE", store.GetCellValue(new CellAddress(0, 0)).Error);
+            Assert.AreEqual("#CYCLE", store.GetCellValue(new CellAddress(rows / 2, 0)).Error);
+        }
+
+        [TestMethod]
+        public void SetText_NonNumericText_KeptForSaving()
+        {
+            using var store = new NativeSheetStore(2, 2);
+            store.SetText(new CellAddress(0, 0), "назва");
+            store.SetText(new CellAddress(0, 1), "=(A1 + 1)");
+            store.SetText(new CellAddress(1, 0), "3");
+
+            store.Recalculate();
+
+            Assert.AreEqual("назва", store.GetText(new CellAddress(0, 0)));
+            Assert.AreEqual("#ERROR", store.GetCellValue(new CellAddress(0, 0)).Error, "Текст у формулах — #ERROR");
+            Assert.AreEqual("#ERROR", store.GetCellValue(new CellAddress(0, 1)).Error);
+            Assert.IsNull(store.GetText(new CellAddress(1, 0)), "Число — не текст");
+            Assert.IsFalse(store.IsEmpty(new CellAddress(0, 0)));
+
+            store.SetValue(new CellAddress(0, 0), FormulaValue.FromNumber(5));
+            store.Recalculate();
+
+            Assert.IsNull(store.GetText(new CellAddress(0, 0)), "Новий запис прибирає текст");
+            Assert.AreEqual(6.0, store.GetCellValue(new CellAddress(0, 1)).Number);
+        }
+
+        [TestMethod]
+        public void Dispose_ThenWrite_Throws()
+        {
+            var store = new NativeSheetStore(2, 2);
+            store.SetValue(new CellAddress(1, 1), FormulaValue.FromBool(true));
+
+            Assert.IsTrue(store.GetCellValue(new CellAddress(1, 1)).Bool);
+
+            store.Dispose();
+            store.Dispose();
+
+            Assert.ThrowsException<ObjectDisposedException>(() => store.SetText(new CellAddress(0, 0), "1"));
+        }
+    }
+}
@@ -0,0 +1,37 @@
+using System.Linq;
+using Microsoft.VisualStudio.TestTools.UnitTesting;
+using TableManager.App.Controllers;
+
+namespace TableManager.Tests
+{
+    [TestClass]
+    public class ParserProfilerTests
+    {
+        [TestMethod]
+        public void Run_Corpus_ReportsEveryDecision()
+        {
+            var corpus = new[] { "=(A1+B1*C1)", "=(inc(A1) mod 3)", "=(A1 div 2<=B2)", "=(A1+)", "=((A1)" };
+
+            var report = ParserProfiler.Run(corpus);
+
+            Assert.AreEqual(5, report.Formulas);
+            Assert.AreEqual(2, report.Rejected);
+            Assert.IsTrue(report.Decisions.Count > 0);
+            Assert.IsTrue(report.Decisions.Any(d => d.Rule == "arithmeticExpr" && d.Invocations > 0), "Рішення лівої рекурсії arithmeticExpr");
+            Assert.IsTrue(report.Decisions.Any(d => d.Rule == "expression" && d.Invocations > 0), "Вибір між порівнянням і арифметикою");
+            StringAssert.Contains(report.ToString(), "arithmeticExpr");
+        }
+
+        [TestMethod]
+        public void DefaultCorpus_AllGeneratedFormulasAccepted()
+        {
+            var corpus = ParserProfiler.DefaultCorpus(rows: 50).ToList();
+            int invalidWarmUp = Parser.WarmUpFormulas.Count(f => !Parser.TryParseFormula(f, out _));
+
+            var report = ParserProfiler.Run(corpus);
+
+            Assert.AreEqual(corpus.Count, report.Formulas);
+            Assert.AreEqual(invalidWarmUp, report.Rejected, "Відхилені лише навмисно хибні формули корпусу прогріву");
+        }
+    }
+}
@@ -1,5 +1,6 @@
 using Microsoft.VisualStudio.TestTools.UnitTesting;
 using System.Collections.Generic;
+using System.Threading.Tasks;
 using TableManager.App.Controllers;
 
 namespace TableManager.Tests
@@ -33,6 +34,22 @@ namespace TableManager.Tests
             Assert.AreEqual(expectedValid, result.isValid, $"Вираз '{expression}' має бути НЕвалідним");
         }
 
+        [TestMethod]
+        [DataRow("=(1.5)", true)]
+        [DataRow("=(A1=B1)", true)]
+        [DataRow("=(inc(dec(A1)) mod 2)", true)]
+        [DataRow("=(A1+B1*C1-D1/E1)", true)]
+        [DataRow("=(A1<B1<C1)", false)]
+        [DataRow("=(a1+1)", false)]
+        [DataRow("=(A1)x", false)]
+        [DataRow("=(5)=", false)]
+        [DataRow("=(A1 mod)", false)]
+        public void TryParseFormula_SllWithLlFallback_KeepsAcceptReject(string expression, bool expectedValid)
+        {
+            Assert.AreEqual(expectedValid, Parser.TryParseFormula(expression, out var tree), expression);
+            Assert.AreEqual(expectedValid, tree != null);
+        }
+
         [TestMethod]
         public void GetDependencies_SimpleExpression_FindsAllReferences()
         {
@@ -84,5 +101,29 @@ namespace TableManager.Tests
 
             CollectionAssert.AreEquivalent(expected, dependencies);
         }
+
+        [TestMethod]
+        public void TryParseFormula_AfterSyntaxError_ReusedParserStillValid()
+        {
+            Assert.IsFalse(Parser.TryParseFormula("=(A1++A2)", out _));
+            Assert.IsTrue(Parser.TryParseFormula("=(A1+A2)", out var tree), "Помилка попереднього розбору не має залишатися в парсері");
+            Assert.AreEqual("=(A1+A2)<EOF>", tree!.GetText());
+        }
+
+        [TestMethod]
+        public void TryParseFormula_ConcurrentThreads_MatchSerialResults()
+        {
+            Parser.WarmUp();
+            var formulas = new[] { "=(A1+B1*2)", "=(inc(A1) mod 3)", "=(A1<>B1)", "=(A1+)", "=((A1)", "=(dec(B2) div 2)" };
+            var expected = new bool[formulas.Length];
+            for (int i = 0; i < formulas.Length; i++)
+                expected[i] = Parser.TryParseFormula(formulas[i], out _);
+
+            Parallel.For(0, 2000, i =>
+            {
+                int index = i % formulas.Length;
+                Assert.AreEqual(expected[index], Parser.TryParseFormula(formulas[index], out _), formulas[index]);
+            });
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,209 @@
+using Microsoft.VisualStudio.TestTools.UnitTesting;
+using System.Collections.Generic;
+using System.Collections.ObjectModel;
+using TableManager.App.Controllers;
+using TableManager.App.Views;
+
+namespace TableManager.Tests
+{
+    [TestClass]
+    public class RecalcSchedulerTests
+    {
+        private static (DependencyGraph graph, RecalcScheduler scheduler, Dictionary<string, string> cells) Build(Dictionary<string, string> cells)
+        {
+            var graph = new DependencyGraph();
+            foreach (var kvp in cells)
+            {
+                CellAddress.TryParse(kvp.Key, out var address);
+                graph.UpdateCell(address, kvp.Value);
+            }
+            return (graph, new RecalcScheduler(graph), cells);
+        }
+
+        private static List<int> Nodes(DependencyGraph graph, params string[] names)
+        {
+            var nodes = new List<int>();
+            foreach (var name in names)
+            {
+                CellAddress.TryParse(name, out var address);
+                nodes.Add(graph.GetOrAddNode(address));
+            }
+            return nodes;
+        }
+
+        [TestMethod]
+        public void Recalculate_Diamond_EvaluatesEachCellOnce()
+        {
+            var (graph, scheduler, cells) = Build(new Dictionary<string, string>
+            {
+                ["A1"] = "2",
+                ["B1"] = "=(A1*10)",
+                ["C1"] = "=(A1+1)",
+                ["D1"] = "=(B1+C1)",
+                ["E1"] = "=(D1*2)"
+            });
+
+            var order = scheduler.Recalculate(Nodes(graph, "A1"), a => cells.TryGetValue(a.ToString(), out var v) ? v : null);
+
+            Assert.AreEqual(5, order.Count);
+            Assert.AreEqual(4, scheduler.LastPass.Evaluated, "B1, C1, D1, E1 — по одному разу");
+            Assert.AreEqual(3, scheduler.LastPass.Skipped, "D1 читає готові B1 і C1, E1 — готове D1");
+            Assert.AreEqual(46.0, scheduler.GetValue(Nodes(graph, "E1")[0]).Number, 0.0001);
+        }
+
+        [TestMethod]
+        public void Recalculate_DependencyOrder_IsTopological()
+        {
+            var (graph, scheduler, cells) = Build(new Dictionary<string, string>
+            {
+                ["A1"] = "1",
+                ["A4"] = "=(A3+1)",
+                ["A3"] = "=(A2+1)",
+                ["A2"] = "=(A1+1)"
+            });
+
+            var order = scheduler.Recalculate(Nodes(graph, "A1"), a => cells.TryGetValue(a.ToString(), out var v) ? v : null);
+            var position = new Dictionary<string, int>();
+            for (int i = 0; i < order.Count; i++)
+                position[graph.GetAddress(order[i]).ToString()] = i;
+
+            Assert.IsTrue(position["A1"] < position["A2"]);
+            Assert.IsTrue(position["A2"] < position["A3"]);
+            Assert.IsTrue(position["A3"] < position["A4"]);
+            Assert.AreEqual(4.0, scheduler.GetValue(Nodes(graph, "A4")[0]).Number, 0.0001);
+        }
+
+        [TestMethod]
+        public void Recalculate_Cycle_MarksCycleAndDownstream()
+        {
+            var (graph, scheduler, cells) = Build(new Dictionary<string, string>
+            {
+                ["A1"] = "=(A2+1)",
+                ["A2"] = "=(A1+1)",
+                ["A3"] = "=(A2*2)",
+                ["B1"] = "=(5)"
+            });
+
+            scheduler.Recalculate(Nodes(graph, "A1", "A2", "A3", "B1"), a => cells.TryGetValue(a.ToString(), out var v) ? v : null);
+
+            Assert.AreEqual("#CYCLE", scheduler.GetValue(Nodes(graph, "A1")[0]).Error);
+            Assert.AreEqual("#CYCLE", scheduler.GetValue(Nodes(graph, "A3")[0]).Error);
+            Assert.AreEqual(5.0, scheduler.GetValue(Nodes(graph, "B1")[0]).Number, 0.0001);
+            Assert.AreEqual(3, scheduler.LastPass.Cycles);
+        }
+
+        [TestMethod]
+        public void Recalculate_Parallel_MatchesSerialResults()
+        {
+            var cells = new Dictionary<string, string> { ["A1"] = "3" };
+            for (int row = 1; row <= 2000; row++)
+            {
+                cells[$"B{row}"] = $"=(A1*{row}+{row} mod 7)";
+                cells[$"C{row}"] = $"=(B{row}/3-dec(A1))";
+                cells[$"D{row}"] = $"=(C{row}>B{row} div 5)";
+            }
+
+            var (serialGraph, serial, _) = Build(cells);
+            var (parallelGraph, parallel, _) = Build(cells);
+            parallel.ParallelEnabled = true;
+            parallel.ParallelThreshold = 64;
+
+            serial.Recalculate(Nodes(serialGraph, "A1"), a => cells.TryGetValue(a.ToString(), out var v) ? v : null);
+            parallel.Recalculate(Nodes(parallelGraph, "A1"), a => cells.TryGetValue(a.ToString(), out var v) ? v : null);
+
+            Assert.AreEqual(3, parallel.LastPass.Levels - 1, "B, C, D — три рівні після A1");
+            Assert.IsTrue(parallel.LastPass.ParallelLevels > 0);
+            Assert.AreEqual(serial.LastPass.Evaluated, parallel.LastPass.Evaluated);
+
+            foreach (var name in cells.Keys)
+            {
+                var expected = serial.GetValue(Nodes(serialGraph, name)[0]);
+                var actual = parallel.GetValue(Nodes(parallelGraph, name)[0]);
+                Assert.AreEqual(expected.Type, actual.Type, name);
+                Assert.AreEqual(
+                    System.BitConverter.DoubleToInt64Bits(expected.Number),
+                    System.BitConverter.DoubleToInt64Bits(actual.Number),
+                    name);
+            }
+        }
+
+        [TestMethod]
+        public void RecalculateChanged_SharedAncestor_EvaluatedOnce()
+        {
+            var controller = new UIController();
+            var cellMap = new Dictionary<string, CellViewModel>();
+            var row = new RowViewModel { RowNumber = "1" };
+            var values = new[] { "1", "=(A1+1)", "=(B1*2)", "=(B1*3)", "=(C1+D1)" };
+            for (int i = 0; i < values.Length; i++)
+            {
+                var cell = new CellViewModel { Value = values[i], CellName = $"{(char)('A' + i)}1" };
+                row.Cells.Add(cell);
+                cellMap[cell.CellName] = cell;
+            }
+            controller.RecalculateAll(new ObservableCollection<RowViewModel> { row }, cellMap);
+
+            cellMap["A1"].Value = "2";
+            controller.RecalculateChanged(new HashSet<string> { "A1" }, cellMap);
+
+            Assert.AreEqual("15", cellMap["E1"].DisplayValue, "(2+1)*2 + (2+1)*3 = 15");
+            Assert.AreEqual(4, controller.LastRecalcStatistics.Evaluated);
+        }
+
+        [TestMethod]
+        public void Recalculate_FilledDownTemplate_BatchedAndMatchesCellByCell()
+        {
+            var cells = new Dictionary<string, string>();
+            for (int row = 1; row <= 500; row++)
+            {
+                cells[$"A{row}"] = $"{row - 250}";
+                cells[$"B{row}"] = $"{row % 9}";
+                cells[$"C{row}"] = $"=(A{row}/B{row}+inc(A{row}))";
+                cells[$"D{row}"] = $"=(C{row}>=A{row} mod 4)";
+            }
+            cells["B77"] = "текст";
+
+            var (batchGraph, batched, _) = Build(cells);
+            var (plainGraph, plain, _) = Build(cells);
+            plain.BatchTemplates = false;
+
+            var changed = new List<string>();
+            for (int row = 1; row <= 500; row++)
+                changed.Add($"A{row}");
+            batched.Recalculate(Nodes(batchGraph, changed.ToArray()), a => cells.TryGetValue(a.ToString(), out var v) ? v : null);
+            plain.Recalculate(Nodes(plainGraph, changed.ToArray()), a => cells.TryGetValue(a.ToString(), out var v) ? v : null);
+
+            if (BatchFormulaEvaluator.VectorEnabled)
+                Assert.AreEqual(1000, batched.LastPass.Batched, "C і D заповнені вниз одним шаблоном кожен");
+            Assert.AreEqual(0, plain.LastPass.Batched);
+            Assert.AreEqual(plain.LastPass.Evaluated, batched.LastPass.Evaluated);
+
+            foreach (var name in cells.Keys)
+            {
+                var expected = plain.GetValue(Nodes(plainGraph, name)[0]);
+                var actual = batched.GetValue(Nodes(batchGraph, name)[0]);
+                Assert.AreEqual(expected.Type, actual.Type, name);
+                Assert.AreEqual(expected.Error, actual.Error, name);
+                Assert.AreEqual(expected.Number, actual.Number, name);
+            }
+        }
+
+        [TestMethod]
+        public void Recalculate_LongChainOfUncomputedPrecedents_DoesNotOverflowStack()
+        {
+            const int length = 100_000;
+            var cells = new Dictionary<string, string> { ["A1"] = "1" };
+            for (int row = 2; row <= length; row++)
+                cells[$"A{row}"] = $"=(A{row - 1}+1)";
+            var (graph, scheduler, _) = Build(cells);
+
+            // Змінено лише останню клітинку: усі її попередники ще не обчислені й
+            // рахуються на вимогу ланцюжком завглибшки в усю таблицю
+            var order = scheduler.Recalculate(Nodes(graph, $"A{length}"), a => cells.TryGetValue(a.ToString(), out var v) ? v : null);
+
+            Assert.AreEqual(1, order.Count);
+            Assert.AreEqual(length - 1, scheduler.LastPass.Evaluated, "Кожну формулу ланцюжка обчислено один раз");
+            Assert.AreEqual((double)length, scheduler.GetValue(Nodes(graph, $"A{length}")[0]).Number);
+            Assert.AreEqual(50_000.0, scheduler.GetValue(Nodes(graph, "A50000")[0]).Number);
+        }
+    }
+}
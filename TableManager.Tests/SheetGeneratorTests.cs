@@ -0,0 +1,83 @@
+using System.Linq;
+using Microsoft.VisualStudio.TestTools.UnitTesting;
+using TableManager.App.Controllers;
+
+namespace TableManager.Tests
+{
+    [TestClass]
+    public class SheetGeneratorTests
+    {
+        [TestMethod]
+        public void GenerateRows_SameSeed_SameSheet()
+        {
+            var options = new SheetGeneratorOptions { Rows = 50, Columns = 8, Seed = 42 };
+
+            var first = new SheetGenerator(options).GenerateRows().SelectMany(r => r).ToArray();
+            var second = new SheetGenerator(options).GenerateRows().SelectMany(r => r).ToArray();
+            var other = new SheetGenerator(new SheetGeneratorOptions { Rows = 50, Columns = 8, Seed = 43 })
+                .GenerateRows().SelectMany(r => r).ToArray();
+
+            CollectionAssert.AreEqual(first, second);
+            CollectionAssert.AreNotEqual(first, other);
+        }
+
+        [TestMethod]
+        [DataRow(1UL)]
+        [DataRow(7UL)]
+        [DataRow(12345UL)]
+        public void GenerateRows_AllFormulasParse(ulong seed)
+        {
+            var options = new SheetGeneratorOptions
+            {
+                Rows = 200,
+                Columns = 6,
+                FormulaDensity = 0.9,
+                ChainDepth = 20,
+                FanOut = 30,
+                Cycles = 3,
+                ComparisonShare = 0.3,
+                IncDecShare = 0.3,
+                Seed = seed
+            };
+
+            foreach (var cell in new SheetGenerator(options).GenerateRows().SelectMany(r => r))
+            {
+                if (cell.StartsWith("="))
+                    Assert.IsTrue(Parser.TryParseFormula(cell, out _), cell);
+                else
+                    Assert.IsTrue(double.TryParse(cell, out _), cell);
+            }
+        }
+
+        [TestMethod]
+        public void GenerateRows_ShapeMatchesOptions()
+        {
+            var options = new SheetGeneratorOptions
+            {
+                Rows = 120,
+                Columns = 5,
+                FormulaDensity = 0.7,
+                ChainDepth = 40,
+                FanOut = 25,
+                Cycles = 4,
+                Seed = 9
+            };
+            var rows = new SheetGenerator(options).GenerateRows().ToArray();
+
+            var graph = new DependencyGraph();
+            for (int row = 0; row < rows.Length; row++)
+            {
+                for (int column = 0; column < rows[row].Length; column++)
+                    graph.UpdateCell(new CellAddress(row, column), rows[row][column]);
+            }
+
+            Assert.AreEqual(4, graph.CycleCount, "Лише явно додані цикли");
+            Assert.AreEqual("=(A39 + 1)", rows[39][0], "Ланцюжок у стовпці A");
+            Assert.IsFalse(rows[40][0].StartsWith("="), "Новий ланцюжок починається з числа");
+
+            graph.TryGetNode(new CellAddress(0, 0), out int a1);
+            // Крім FanOut формул і ланцюжка, A1 можуть випадково читати формули перших рядків
+            Assert.IsTrue(graph.GetDependents(a1).Length >= options.FanOut + 1, "A1 читають FanOut формул і ланцюжок");
+        }
+    }
+}
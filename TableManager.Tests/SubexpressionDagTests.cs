@@ -0,0 +1,123 @@
+using System.Collections.Generic;
+using System.Linq;
+using Microsoft.VisualStudio.TestTools.UnitTesting;
+using TableManager.App.Controllers;
+
+namespace TableManager.Tests
+{
+    [TestClass]
+    public class SubexpressionDagTests
+    {
+        [TestMethod]
+        public void Recalculate_RepeatedSubexpression_EvaluatedOncePerPass()
+        {
+            var cells = new Dictionary<string, string>
+            {
+                ["A1"] = "2",
+                ["B1"] = "3",
+                ["C1"] = "=((A1+B1)*2)",
+                ["D1"] = "=((A1+B1)+C1)",
+                ["E1"] = "=(inc(A1+B1))"
+            };
+            var (graph, scheduler) = Build(cells);
+            scheduler.ShareSubexpressions = true;
+
+            scheduler.Recalculate(AllNodes(graph, cells), a => cells.TryGetValue(a.ToString(), out var v) ? v : null);
+
+            Assert.AreEqual(10.0, Value(graph, scheduler, "C1"));
+            Assert.AreEqual(15.0, Value(graph, scheduler, "D1"));
+            Assert.AreEqual(6.0, Value(graph, scheduler, "E1"));
+
+            var stats = scheduler.Subexpressions.GetStatistics();
+            Assert.AreEqual(3, stats.Cells);
+            Assert.AreEqual(1, stats.SharedNodes, "(A1+B1) — один вузол на три формули");
+            Assert.AreEqual(2L, stats.Hits, "D1 і E1 беруть (A1+B1) з кешу проходу");
+            Assert.IsTrue(stats.ApproximateBytes > 0);
+
+            cells["A1"] = "10";
+            scheduler.Recalculate(Nodes(graph, "A1"), a => cells.TryGetValue(a.ToString(), out var v) ? v : null);
+
+            Assert.AreEqual(26.0, Value(graph, scheduler, "C1"), "Новий прохід не бачить старих значень");
+            Assert.AreEqual(39.0, Value(graph, scheduler, "D1"));
+            Assert.AreEqual(14.0, Value(graph, scheduler, "E1"));
+        }
+
+        [TestMethod]
+        public void Recalculate_GeneratedSheet_SameValuesWithAndWithoutSharing()
+        {
+            var generator = new SheetGenerator(new SheetGeneratorOptions
+            {
+                Rows = 300,
+                Columns = 6,
+                FormulaDensity = 0.8,
+                ReferenceWindow = 3,
+                MaxOperands = 4,
+                FanOut = 20,
+                Cycles = 2,
+                ComparisonShare = 0.2,
+                IncDecShare = 0.3,
+                Seed = 77
+            });
+
+            var cells = new Dictionary<string, string>();
+            int row = 0;
+            foreach (var values in generator.GenerateRows())
+            {
+                for (int column = 0; column < values.Length; column++)
+                    cells[CellAddress.GetColumnName(column) + (row + 1)] = values[column];
+                row++;
+            }
+
+            var (plainGraph, plain) = Build(cells);
+            var (sharedGraph, shared) = Build(cells);
+            shared.ShareSubexpressions = true;
+
+            plain.Recalculate(AllNodes(plainGraph, cells), a => cells.TryGetValue(a.ToString(), out var v) ? v : null);
+            shared.Recalculate(AllNodes(sharedGraph, cells), a => cells.TryGetValue(a.ToString(), out var v) ? v : null);
+
+            foreach (var name in cells.Keys)
+            {
+                CellAddress.TryParse(name, out var address);
+                var want = plain.Values.GetCellValue(address);
+                var got = shared.Values.GetCellValue(address);
+                Assert.AreEqual(want.Type, got.Type, name);
+                Assert.AreEqual(want.Error, got.Error, name);
+                Assert.IsTrue(want.Number.Equals(got.Number), name);
+            }
+
+            Assert.IsTrue(shared.Subexpressions.GetStatistics().Nodes > 0);
+        }
+
+        private static (DependencyGraph graph, RecalcScheduler scheduler) Build(Dictionary<string, string> cells)
+        {
+            var graph = new DependencyGraph();
+            foreach (var kvp in cells)
+            {
+                CellAddress.TryParse(kvp.Key, out var address);
+                graph.UpdateCell(address, kvp.Value);
+            }
+            return (graph, new RecalcScheduler(graph));
+        }
+
+        private static List<int> AllNodes(DependencyGraph graph, Dictionary<string, string> cells)
+        {
+            return Nodes(graph, cells.Keys.ToArray());
+        }
+
+        private static List<int> Nodes(DependencyGraph graph, params string[] names)
+        {
+            var nodes = new List<int>();
+            foreach (var name in names)
+            {
+                CellAddress.TryParse(name, out var address);
+                nodes.Add(graph.GetOrAddNode(address));
+            }
+            return nodes;
+        }
+
+        private static double Value(DependencyGraph graph, RecalcScheduler scheduler, string name)
+        {
+            return scheduler.GetValue(Nodes(graph, name)[0]).Number;
+        }
+    }
+}
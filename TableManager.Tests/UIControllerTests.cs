@@ -299,6 +299,39 @@ namespace TableManager.Tests
             Assert.IsFalse(cellMap.ContainsKey("C2"));
         }
 
+        [TestMethod]
+        public void AddRowAndColumn_FormulaReferencingNewCells_LosesRef()
+        {
+            var rows = new ObservableCollection<RowViewModel>();
+            var headers = new ObservableCollection<string> { "A", "B" };
+            var cellMap = new Dictionary<string, CellViewModel>();
+
+            for (int i = 1; i <= 2; i++)
+            {
+                var row = new RowViewModel { RowNumber = $"{i}" };
+                for (int j = 0; j < 2; j++)
+                {
+                    string cellName = $"{headers[j]}{i}";
+                    var cell = new CellViewModel { CellName = cellName, Value = "" };
+                    row.Cells.Add(cell);
+                    cellMap[cellName] = cell;
+                }
+                rows.Add(row);
+            }
+            cellMap["A1"].Value = "=(A3+1)";
+            cellMap["B1"].Value = "=(C1+2)";
+
+            _controller.RecalculateAll(rows, cellMap);
+            Assert.AreEqual("#REF", cellMap["A1"].DisplayValue, "A3 ще не існує");
+            Assert.AreEqual("#REF", cellMap["B1"].DisplayValue, "C1 ще не існує");
+
+            _controller.AddRow(rows, headers, cellMap, GetColumnName);
+            Assert.AreEqual("1", cellMap["A1"].DisplayValue, "Після додавання рядка A3 порожня, тобто 0");
+
+            _controller.AddColumn(rows, headers, cellMap, GetColumnName);
+            Assert.AreEqual("2", cellMap["B1"].DisplayValue, "Після додавання стовпця C1 порожня, тобто 0");
+        }
+
         private static string GetColumnName(int index)
         {
             string columnName = "";